@@ -0,0 +1,156 @@
+package csvtool.benchmark;
+
+import csvtool.data.Context;
+import csvtool.data.OptSettings;
+import csvtool.enums.Operations;
+import csvtool.enums.Settings;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Synthetic CSV files, and the Context wiring that Main normally does, shared by the benchmarks.
+// Columns are: id (unique), key (repeats every 'keys' rows), serial (empty), then a mix of text, numbers and dates.
+public class BenchmarkData
+{
+    public static final String ID = "id";
+    public static final String KEY = "key";
+    public static final String SERIAL = "serial";
+    private static final String CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    public static Path tempDir() throws IOException
+    {
+        Path dir = Files.createTempDirectory("csvtool-jmh-");
+        dir.toFile().deleteOnExit();
+        return dir;
+    }
+
+    public static List<String> buildHeader(int width)
+    {
+        List<String> header = new ArrayList<>(List.of(ID, KEY, SERIAL));
+
+        for (int i = header.size(); i < width; i++)
+        {
+            header.add("col" + i);
+        }
+
+        return header;
+    }
+
+    public static List<String> buildRow(Random random, int row, int width, int keys)
+    {
+        List<String> line = new ArrayList<>(width);
+
+        line.add(String.valueOf(row));
+        line.add("K" + (row % Math.max(keys, 1)));
+        line.add("");
+
+        for (int i = line.size(); i < width; i++)
+        {
+            switch (i % 4)
+            {
+                case 0 -> line.add(String.valueOf(random.nextInt(100)));
+                case 1 -> line.add(String.format("%04d%02d%02d", 1990 + random.nextInt(40), 1 + random.nextInt(12), 1 + random.nextInt(28)));
+                case 2 -> line.add(random.nextInt(10) == 0 ? "" : randomString(random, 8));
+                default -> line.add(randomString(random, 4 + random.nextInt(12)));
+            }
+        }
+
+        return line;
+    }
+
+    public static List<List<String>> buildRows(int rows, int width, int keys, long seed)
+    {
+        Random random = new Random(seed);
+        List<List<String>> list = new ArrayList<>(rows);
+
+        for (int i = 0; i < rows; i++)
+        {
+            list.add(buildRow(random, i, width, keys));
+        }
+
+        return list;
+    }
+
+    public static Path writeCsv(Path dir, String name, int rows, int width, int keys, long seed) throws IOException
+    {
+        return writeCsv(dir, name, 0, rows, width, keys, seed);
+    }
+
+    // Rows get the ids [start, start + rows); so two files with overlapping ranges only partially match.
+    public static Path writeCsv(Path dir, String name, int start, int rows, int width, int keys, long seed) throws IOException
+    {
+        Path file = dir.resolve(name);
+        Random random = new Random(seed);
+
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            writer.write(String.join(",", buildHeader(width)));
+            writer.newLine();
+
+            for (int i = start; i < start + rows; i++)
+            {
+                writer.write(String.join(",", buildRow(random, i, width, keys)));
+                writer.newLine();
+            }
+        }
+
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    public static String randomString(Random random, int length)
+    {
+        StringBuilder builder = new StringBuilder(length);
+
+        for (int i = 0; i < length; i++)
+        {
+            builder.append(CHARS.charAt(random.nextInt(CHARS.length())));
+        }
+
+        return builder.toString();
+    }
+
+    // Same mapping as Main.processSettings(), for the settings that the benchmarks use.
+    public static Context buildContext(Operations op, String input, Map<Settings, String> settings)
+    {
+        Context ctx = new Context(op, new HashMap<>(settings), input);
+        OptSettings opt = new OptSettings();
+
+        opt.setQuiet(true);
+
+        settings.forEach((entry, value) ->
+        {
+            switch (entry)
+            {
+                case INPUT2 -> opt.setInput2(value);
+                case OUTPUT -> opt.setOutput(value);
+                case KEY -> opt.setKey(value);
+                case KEY2 -> opt.setKey2(value);
+                case JOIN_KEY -> opt.setJoinKey(value);
+                case SERIAL_KEY -> opt.setSerialKey(value);
+                case SERIAL_START -> opt.setSerialStart(value);
+                case SERIAL_END -> opt.setSerialEnd(value);
+                case SQUASH_DUPE -> opt.setSquashDupe(true);
+                case MULTI -> opt.setMultiJoin(true);
+                case COLUMNAR -> opt.setColumnar(true);
+                case SPILL -> opt.setSpill(value);
+                case BLOOM -> opt.setBloom(value);
+                default -> throw new IllegalArgumentException("Unsupported benchmark setting: " + entry.getName());
+            }
+        });
+
+        return ctx.setOptSettings(opt);
+    }
+
+    // The class level loggers are not quiet by default, so silence them so that console IO isn't measured.
+    public static void silenceOutput()
+    {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+}
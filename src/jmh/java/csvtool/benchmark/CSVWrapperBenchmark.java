@@ -0,0 +1,66 @@
+package csvtool.benchmark;
+
+import csvtool.utils.CSVWrapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CSVWrapperBenchmark
+{
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"8", "32"})
+    public int width;
+
+    private Path input;
+    private Path output;
+    private HashMap<Integer, List<String>> lines;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        BenchmarkData.silenceOutput();
+        Path dir = BenchmarkData.tempDir();
+
+        this.input = BenchmarkData.writeCsv(dir, "input.csv", this.rows, this.width, this.rows / 10, 1L);
+        this.output = dir.resolve("output.csv");
+        this.output.toFile().deleteOnExit();
+
+        CSVWrapper wrapper = new CSVWrapper(this.input.toString());
+        wrapper.read(true, false);
+        this.lines = wrapper.getAllLines();
+    }
+
+    @Benchmark
+    public int read(RowCounter counter)
+    {
+        CSVWrapper wrapper = new CSVWrapper(this.input.toString());
+
+        wrapper.read(true, false);
+        counter.rows += wrapper.getSize();
+
+        return wrapper.getSize();
+    }
+
+    @Benchmark
+    public boolean write(RowCounter counter)
+    {
+        CSVWrapper wrapper = new CSVWrapper(this.output.toString(), false);
+
+        wrapper.putAllLines(this.lines, true);
+        counter.rows += this.lines.size();
+
+        return wrapper.write(false, false);
+    }
+}
@@ -0,0 +1,54 @@
+package csvtool.benchmark;
+
+import csvtool.data.FileCache;
+import csvtool.header.CSVHeader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileCacheBenchmark
+{
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"8", "32"})
+    public int width;
+
+    @Param({"false", "true"})
+    public boolean columnar;
+
+    private List<String> header;
+    private List<List<String>> data;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        BenchmarkData.silenceOutput();
+        this.header = BenchmarkData.buildHeader(this.width);
+        this.data = BenchmarkData.buildRows(this.rows, this.width, this.rows / 10, 1L);
+    }
+
+    @Benchmark
+    public FileCache addLine(RowCounter counter)
+    {
+        FileCache cache = new FileCache(this.columnar);
+
+        cache.setHeader(new CSVHeader(new ArrayList<>(this.header)));
+
+        for (List<String> line : this.data)
+        {
+            cache.addLine(line);
+        }
+
+        counter.rows += this.data.size();
+        return cache;
+    }
+}
@@ -0,0 +1,150 @@
+package csvtool.benchmark;
+
+import csvtool.data.Context;
+import csvtool.enums.Operations;
+import csvtool.enums.Settings;
+import csvtool.operation.Operation;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Whole operations, end to end (read, process, write), the same way that Main runs them.
+// FILE_2 overlaps 90% of FILE_1's ids; and the 'key' column repeats every 10 rows for dedupe.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OperationBenchmark
+{
+    @Param({"10000", "100000"})
+    public int rows;
+
+    @Param({"8", "32"})
+    public int width;
+
+    private Context join;
+    private Context joinBloom;
+    private Context diff;
+    private Context diffBloom;
+    private Context dedupe;
+    private Context dedupeSpill;
+    private Context serialize;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException
+    {
+        BenchmarkData.silenceOutput();
+        Path dir = BenchmarkData.tempDir();
+        String file1 = BenchmarkData.writeCsv(dir, "file1.csv", 0, this.rows, this.width, this.rows / 10, 1L).toString();
+        String file2 = BenchmarkData.writeCsv(dir, "file2.csv", this.rows / 10, this.rows, this.width, this.rows / 10, 2L).toString();
+
+        this.join = BenchmarkData.buildContext(Operations.JOIN, file1, Map.of(
+                Settings.INPUT2, file2,
+                Settings.OUTPUT, output(dir, "join.csv"),
+                Settings.KEY, BenchmarkData.ID,
+                Settings.JOIN_KEY, BenchmarkData.ID));
+
+        this.joinBloom = BenchmarkData.buildContext(Operations.JOIN, file1, Map.of(
+                Settings.INPUT2, file2,
+                Settings.OUTPUT, output(dir, "join-bloom.csv"),
+                Settings.KEY, BenchmarkData.ID,
+                Settings.JOIN_KEY, BenchmarkData.ID,
+                Settings.BLOOM, "0.01"));
+
+        this.diff = BenchmarkData.buildContext(Operations.DIFF, file1, Map.of(
+                Settings.INPUT2, file2,
+                Settings.OUTPUT, output(dir, "diff.csv"),
+                Settings.KEY, BenchmarkData.ID));
+
+        this.diffBloom = BenchmarkData.buildContext(Operations.DIFF, file1, Map.of(
+                Settings.INPUT2, file2,
+                Settings.OUTPUT, output(dir, "diff-bloom.csv"),
+                Settings.KEY, BenchmarkData.ID,
+                Settings.BLOOM, "0.01"));
+
+        this.dedupe = BenchmarkData.buildContext(Operations.DEDUPE, file1, Map.of(
+                Settings.OUTPUT, output(dir, "dedupe.csv"),
+                Settings.KEY, BenchmarkData.KEY));
+
+        // Runs of a tenth of the file; so that every row goes through the temp files
+        this.dedupeSpill = BenchmarkData.buildContext(Operations.DEDUPE, file1, Map.of(
+                Settings.OUTPUT, output(dir, "dedupe-spill.csv"),
+                Settings.KEY, BenchmarkData.KEY,
+                Settings.SPILL, String.valueOf(this.rows / 10)));
+
+        this.serialize = BenchmarkData.buildContext(Operations.SERIALIZE, file1, Map.of(
+                Settings.OUTPUT, output(dir, "serialize.csv"),
+                Settings.KEY, BenchmarkData.KEY,
+                Settings.SERIAL_KEY, BenchmarkData.SERIAL,
+                Settings.SERIAL_START, "1",
+                Settings.SERIAL_END, String.valueOf(this.rows * 10)));
+    }
+
+    private static String output(Path dir, String name)
+    {
+        Path file = dir.resolve(name);
+
+        file.toFile().deleteOnExit();
+        return file.toString();
+    }
+
+    private boolean run(Context ctx, RowCounter counter)
+    {
+        Operation op = ctx.getOp().init();
+
+        if (op == null || !op.runOperation(ctx))
+        {
+            throw new IllegalStateException("Operation " + ctx.getOp().getName() + " failed");
+        }
+
+        counter.rows += this.rows;
+        return true;
+    }
+
+    @Benchmark
+    public boolean join(RowCounter counter)
+    {
+        return this.run(this.join, counter);
+    }
+
+    @Benchmark
+    public boolean joinBloom(RowCounter counter)
+    {
+        return this.run(this.joinBloom, counter);
+    }
+
+    @Benchmark
+    public boolean diff(RowCounter counter)
+    {
+        return this.run(this.diff, counter);
+    }
+
+    @Benchmark
+    public boolean diffBloom(RowCounter counter)
+    {
+        return this.run(this.diffBloom, counter);
+    }
+
+    @Benchmark
+    public boolean dedupe(RowCounter counter)
+    {
+        return this.run(this.dedupe, counter);
+    }
+
+    @Benchmark
+    public boolean dedupeSpill(RowCounter counter)
+    {
+        return this.run(this.dedupeSpill, counter);
+    }
+
+    @Benchmark
+    public boolean serialize(RowCounter counter)
+    {
+        return this.run(this.serialize, counter);
+    }
+}
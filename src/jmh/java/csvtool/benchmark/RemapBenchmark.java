@@ -0,0 +1,108 @@
+package csvtool.benchmark;
+
+import csvtool.enums.Operations;
+import csvtool.header.CSVRemap;
+import csvtool.header.CSVRemapCompiled;
+import csvtool.header.CSVRemapList;
+import csvtool.header.RemapType;
+import csvtool.operation.Operation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One op == one field remapped; so ops/s is rows/s for a single column, and gc.alloc.rate.norm is bytes per row.
+// Each RemapType uses its entry from CSVRemapList.EXAMPLES.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemapBenchmark
+{
+    private static final int WIDTH = 48;
+
+    @Param
+    public RemapType type;
+
+    private RemapOperation operation;
+    private CSVRemapCompiled remap;
+    private List<String> row;
+    private String data;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        BenchmarkData.silenceOutput();
+        CSVRemap example = null;
+
+        for (CSVRemap entry : CSVRemapList.EXAMPLES.getList())
+        {
+            if (entry.getType() == this.type)
+            {
+                example = entry;
+                break;
+            }
+        }
+
+        if (example == null)
+        {
+            throw new IllegalStateException("No example remap for type: " + this.type.getName());
+        }
+
+        this.operation = new RemapOperation();
+        this.remap = CSVRemapCompiled.compile(example);
+        this.data = sampleData(this.type);
+        this.row = new ArrayList<>(WIDTH);
+
+        for (int i = 0; i < WIDTH; i++)
+        {
+            this.row.add("field" + i);
+        }
+
+        // Fields referenced by the examples
+        this.row.set(2, "apple");
+        this.row.set(3, "orange");
+        this.row.set(4, "01/15/2020");
+        this.row.set(5, "12/31/2025");
+        this.row.set(13, "same");
+        this.row.set(14, "same");
+    }
+
+    private static String sampleData(RemapType type)
+    {
+        return switch (type)
+        {
+            case DATE -> "20200115";
+            case DATE_NOW, DATE_YEARS, DATE_MONTHS, DATE_DAYS -> "2020-01-15";
+            case DATE_EPOCH -> "2020-01-15 10:30:00";
+            case IF_DATE_RANGE -> "06/15/2022";
+            case PAD, IF_RANGE, IF_NUMBER_EMPTY, NOT_NUMBER_EMPTY -> "17";
+            case IF_FLOAT_EMPTY, NOT_FLOAT_EMPTY -> "17.5";
+            case INCLUDE, EXCLUDE -> "02";
+            case PHONE_NUMBER -> "+1 650-253-0000";
+            default -> "some included text DEL";
+        };
+    }
+
+    @Benchmark
+    public Object applyRemapEach()
+    {
+        return this.operation.apply(this.remap, this.data, this.row);
+    }
+
+    private static class RemapOperation extends Operation
+    {
+        private RemapOperation()
+        {
+            super(Operations.REFORMAT);
+        }
+
+        private Object apply(CSVRemapCompiled remap, String data, List<String> row)
+        {
+            return this.applyRemapEach(remap, data, row);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package csvtool.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Reported by JMH as a secondary 'rows' result, in rows per second
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class RowCounter
+{
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+        this.rows = 0;
+    }
+}
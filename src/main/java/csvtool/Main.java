@@ -360,6 +360,15 @@ public class Main
             System.out.print(" SerialEnd: [NOT_SET]\n");
         }
 
+        if (opt.hasSerialRegistry())
+        {
+            System.out.printf(" SerialRegistry: [%s] // applied [%s]\n", opt.getSerialRegistry(), ctx.getSettingValue(Settings.SERIAL_REGISTRY));
+        }
+        else
+        {
+            System.out.print(" SerialRegistry: [NOT_SET]\n");
+        }
+
         if (opt.hasSide())
         {
             System.out.printf(" Side: [%s] // applied [%s]\n", opt.getSide(), ctx.getSettingValue(Settings.SIDE));
@@ -369,11 +378,76 @@ public class Main
             System.out.print(" Side: [NOT_SET]\n");
         }
 
+        if (opt.hasThreads())
+        {
+            System.out.printf(" Threads: [%s] // applied [%s]\n", opt.getThreads(), ctx.getSettingValue(Settings.THREADS));
+        }
+        else
+        {
+            System.out.print(" Threads: [NOT_SET]\n");
+        }
+
+        if (opt.hasSpill())
+        {
+            System.out.printf(" Spill: [%s] // applied [%s]\n", opt.getSpill(), ctx.getSettingValue(Settings.SPILL));
+        }
+        else
+        {
+            System.out.print(" Spill: [NOT_SET]\n");
+        }
+
+        if (opt.hasBloom())
+        {
+            System.out.printf(" Bloom: [%s] // applied [%s]\n", opt.getBloom(), ctx.getSettingValue(Settings.BLOOM));
+        }
+        else
+        {
+            System.out.print(" Bloom: [NOT_SET]\n");
+        }
+
+        if (opt.hasWriteBuffer())
+        {
+            System.out.printf(" WriteBuffer: [%s] // applied [%s]\n", opt.getWriteBuffer(), ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+        else
+        {
+            System.out.print(" WriteBuffer: [NOT_SET]\n");
+        }
+
+        if (opt.hasSplitRows())
+        {
+            System.out.printf(" SplitRows: [%s] // applied [%s]\n", opt.getSplitRows(), ctx.getSettingValue(Settings.SPLIT_ROWS));
+        }
+        else
+        {
+            System.out.print(" SplitRows: [NOT_SET]\n");
+        }
+
+        if (opt.hasSplitSize())
+        {
+            System.out.printf(" SplitSize: [%s] // applied [%s]\n", opt.getSplitSize(), ctx.getSettingValue(Settings.SPLIT_SIZE));
+        }
+        else
+        {
+            System.out.print(" SplitSize: [NOT_SET]\n");
+        }
+
+        if (opt.hasMaxWriters())
+        {
+            System.out.printf(" MaxWriters: [%s] // applied [%s]\n", opt.getMaxWriters(), ctx.getSettingValue(Settings.MAX_WRITERS));
+        }
+        else
+        {
+            System.out.print(" MaxWriters: [NOT_SET]\n");
+        }
+
         System.out.printf(" De-Dupe: [%s]\n", opt.isDeDupe());
         System.out.printf(" Apply Quotes: [%s]\n", opt.isApplyQuotes());
         System.out.printf(" Append Output: [%s]\n", opt.isAppendOutput());
         System.out.printf(" Multi Join: [%s]\n", opt.isMultiJoin());
         System.out.printf(" Outer Join: [%s]\n", opt.isOuterJoin());
+        System.out.printf(" Diff Regex: [%s]\n", opt.isDiffRegex());
+        System.out.printf(" Columnar Cache: [%s]\n", opt.isColumnar());
         System.out.printf(" Debug Log: [%s]\n", opt.isDebug());
         System.out.printf(" Quiet Log: [%s]\n", opt.isQuiet());
         System.out.printf(" Ansi Colors: [%s]\n", opt.isAnsiColors());
@@ -446,7 +520,15 @@ public class Main
                     case SERIAL_KEY -> opt.setSerialKey(ctx.getSettingValue(entry));
                     case SERIAL_START -> opt.setSerialStart(ctx.getSettingValue(entry));
                     case SERIAL_END -> opt.setSerialEnd(ctx.getSettingValue(entry));
+                    case SERIAL_REGISTRY -> opt.setSerialRegistry(ctx.getSettingValue(entry));
                     case SIDE -> opt.setSide(ctx.getSettingValue(entry));
+                    case THREADS -> opt.setThreads(ctx.getSettingValue(entry));
+                    case SPILL -> opt.setSpill(ctx.getSettingValue(entry));
+                    case BLOOM -> opt.setBloom(ctx.getSettingValue(entry));
+                    case WRITE_BUFFER -> opt.setWriteBuffer(ctx.getSettingValue(entry));
+                    case SPLIT_ROWS -> opt.setSplitRows(ctx.getSettingValue(entry));
+                    case SPLIT_SIZE -> opt.setSplitSize(ctx.getSettingValue(entry));
+                    case MAX_WRITERS -> opt.setMaxWriters(ctx.getSettingValue(entry));
                     case HEADERS -> opt.setHeadersConfig(ctx.getSettingValue(entry));
                     case DE_DUPE -> opt.setDeDupe(true);
                     case SQUASH_DUPE -> opt.setSquashDupe(true);
@@ -454,6 +536,8 @@ public class Main
                     case APPEND -> opt.setAppendOutput(true);
                     case MULTI -> opt.setMultiJoin(true);
                     case OUTER -> opt.setOuterJoin(true);
+                    case DIFF_REGEX -> opt.setDiffRegex(true);
+                    case COLUMNAR -> opt.setColumnar(true);
                     case QUIET ->
                     {
                         LOGGER.toggleQuiet(true);
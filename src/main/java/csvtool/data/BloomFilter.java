@@ -0,0 +1,163 @@
+package csvtool.data;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+// Bloom filter over composite keys; sized for the expected key count and false positive rate.
+// mightContain() never returns false for a key that was added, so a miss can skip the real lookup.
+// Bits are rounded up to a power of two (which only lowers the false positive rate), and the
+// k probes are derived from two 64-bit hashes (Kirsch-Mitzenmacher double hashing).
+public class BloomFilter
+{
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long MIN_BITS = 64;
+    private static final long MAX_BITS = 1L << 36;
+
+    private final double fpp;
+    private final long[] words;
+    private final long mask;
+    private final int hashes;
+    private long count;
+    private long probes;
+    private long rejected;
+
+    public BloomFilter(long expected, double fpp)
+    {
+        long n = Math.max(expected, 1);
+        double bits = -n * Math.log(fpp) / (Math.log(2) * Math.log(2));
+        long size = Math.min(Math.max(Long.highestOneBit((long) Math.ceil(bits) - 1) << 1, MIN_BITS), MAX_BITS);
+
+        this.fpp = fpp;
+        this.words = new long[(int) (size >>> 6)];
+        this.mask = size - 1;
+        this.hashes = (int) Math.max(1, Math.round(bits / n * Math.log(2)));
+        this.count = 0;
+        this.probes = 0;
+        this.rejected = 0;
+    }
+
+    // Valid rates are between 0 and 1 (exclusive)
+    public static boolean isValidFpp(double fpp)
+    {
+        return fpp > 0.0 && fpp < 1.0;
+    }
+
+    public void put(@Nonnull List<String> key)
+    {
+        this.put(hash(key));
+    }
+
+    public void put(String key)
+    {
+        this.put(mix(SEED ^ hashOf(key)));
+    }
+
+    public boolean mightContain(@Nonnull List<String> key)
+    {
+        return this.mightContain(hash(key));
+    }
+
+    public boolean mightContain(String key)
+    {
+        return this.mightContain(mix(SEED ^ hashOf(key)));
+    }
+
+    private void put(long hash)
+    {
+        long h2 = mix(hash ^ SEED) | 1;
+
+        for (int i = 0; i < this.hashes; i++)
+        {
+            long bit = (hash + i * h2) & this.mask;
+
+            this.words[(int) (bit >>> 6)] |= 1L << bit;
+        }
+
+        this.count++;
+    }
+
+    private boolean mightContain(long hash)
+    {
+        long h2 = mix(hash ^ SEED) | 1;
+
+        this.probes++;
+
+        for (int i = 0; i < this.hashes; i++)
+        {
+            long bit = (hash + i * h2) & this.mask;
+
+            if ((this.words[(int) (bit >>> 6)] & (1L << bit)) == 0)
+            {
+                this.rejected++;
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static long hash(List<String> key)
+    {
+        long hash = SEED;
+
+        for (String entry : key)
+        {
+            hash = (hash ^ hashOf(entry)) * SEED;
+            hash ^= hash >>> 29;
+        }
+
+        return mix(hash);
+    }
+
+    private static int hashOf(String key)
+    {
+        return key == null ? 0 : key.hashCode();
+    }
+
+    // MurmurHash3 finalizer
+    private static long mix(long hash)
+    {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    public double getFpp()
+    {
+        return this.fpp;
+    }
+
+    public long getBits()
+    {
+        return this.mask + 1;
+    }
+
+    public long getMemoryBytes()
+    {
+        return (long) this.words.length * Long.BYTES;
+    }
+
+    public int getHashes()
+    {
+        return this.hashes;
+    }
+
+    public long getCount()
+    {
+        return this.count;
+    }
+
+    public long getProbes()
+    {
+        return this.probes;
+    }
+
+    public long getRejected()
+    {
+        return this.rejected;
+    }
+}
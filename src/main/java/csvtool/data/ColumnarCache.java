@@ -0,0 +1,272 @@
+package csvtool.data;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.*;
+
+// Column-oriented line storage for FileCache; each column keeps an int code per line,
+// and a dictionary of its unique values, so repeated values are only stored once.
+// Lines are rebuilt on get(), so any changes to a returned line must be put() back.
+public class ColumnarCache extends AbstractMap<Integer, List<String>>
+{
+    private static final int ABSENT = -1;
+    private static final int NULL_VALUE = -1;
+    private final List<Column> columns;
+    private int[] widths;
+    private int size;
+
+    public ColumnarCache()
+    {
+        this.columns = new ArrayList<>();
+        this.widths = new int[16];
+        this.size = 0;
+        Arrays.fill(this.widths, ABSENT);
+    }
+
+    @Override
+    public int size()
+    {
+        return this.size;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return this.indexOf(key) > -1;
+    }
+
+    @Override
+    public @Nullable List<String> get(Object key)
+    {
+        int line = this.indexOf(key);
+
+        if (line < 0)
+        {
+            return null;
+        }
+
+        List<String> out = new ArrayList<>(this.widths[line]);
+
+        for (int i = 0; i < this.widths[line]; i++)
+        {
+            out.add(this.columns.get(i).get(line));
+        }
+
+        return out;
+    }
+
+    @Override
+    public @Nullable List<String> put(@Nonnull Integer key, @Nonnull List<String> value)
+    {
+        if (key < 0)
+        {
+            throw new IllegalArgumentException("Line index cannot be negative: " + key);
+        }
+
+        List<String> old = this.get(key);
+
+        this.ensureLines(key + 1);
+
+        while (this.columns.size() < value.size())
+        {
+            this.columns.add(new Column());
+        }
+
+        for (int i = 0; i < value.size(); i++)
+        {
+            this.columns.get(i).set(key, value.get(i));
+        }
+
+        if (this.widths[key] == ABSENT)
+        {
+            this.size++;
+        }
+
+        this.widths[key] = value.size();
+
+        return old;
+    }
+
+    @Override
+    public @Nullable List<String> remove(Object key)
+    {
+        List<String> old = this.get(key);
+
+        if (old != null)
+        {
+            this.widths[(Integer) key] = ABSENT;
+            this.size--;
+        }
+
+        return old;
+    }
+
+    @Override
+    public void clear()
+    {
+        this.columns.clear();
+        this.widths = new int[16];
+        this.size = 0;
+        Arrays.fill(this.widths, ABSENT);
+    }
+
+    @Override
+    public @Nonnull Set<Entry<Integer, List<String>>> entrySet()
+    {
+        return new AbstractSet<>()
+        {
+            @Override
+            public int size()
+            {
+                return ColumnarCache.this.size;
+            }
+
+            @Override
+            public @Nonnull Iterator<Entry<Integer, List<String>>> iterator()
+            {
+                return new Iterator<>()
+                {
+                    private int next = this.seek(0);
+                    private int last = -1;
+
+                    private int seek(int from)
+                    {
+                        int[] widths = ColumnarCache.this.widths;
+
+                        while (from < widths.length && widths[from] == ABSENT)
+                        {
+                            from++;
+                        }
+
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return this.next < ColumnarCache.this.widths.length;
+                    }
+
+                    @Override
+                    public Entry<Integer, List<String>> next()
+                    {
+                        if (!this.hasNext())
+                        {
+                            throw new NoSuchElementException();
+                        }
+
+                        this.last = this.next;
+                        this.next = this.seek(this.next + 1);
+
+                        return new LineEntry(this.last);
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        if (this.last < 0)
+                        {
+                            throw new IllegalStateException();
+                        }
+
+                        ColumnarCache.this.remove(this.last);
+                        this.last = -1;
+                    }
+                };
+            }
+        };
+    }
+
+    public List<Integer> getDictionarySizes()
+    {
+        List<Integer> list = new ArrayList<>();
+
+        this.columns.forEach(column -> list.add(column.values.size()));
+
+        return list;
+    }
+
+    private int indexOf(Object key)
+    {
+        if (key instanceof Integer line && line > -1 && line < this.widths.length && this.widths[line] != ABSENT)
+        {
+            return line;
+        }
+
+        return -1;
+    }
+
+    private void ensureLines(int count)
+    {
+        if (count <= this.widths.length)
+        {
+            return;
+        }
+
+        int oldLen = this.widths.length;
+        int newLen = Math.max(count, oldLen + (oldLen >> 1));
+
+        this.widths = Arrays.copyOf(this.widths, newLen);
+        Arrays.fill(this.widths, oldLen, newLen, ABSENT);
+    }
+
+    private class LineEntry extends SimpleEntry<Integer, List<String>>
+    {
+        private LineEntry(int line)
+        {
+            super(line, ColumnarCache.this.get(line));
+        }
+
+        @Override
+        public List<String> setValue(List<String> value)
+        {
+            ColumnarCache.this.put(this.getKey(), value);
+            return super.setValue(value);
+        }
+    }
+
+    private static class Column
+    {
+        private final HashMap<String, Integer> dictionary = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+        private int[] codes = new int[0];
+
+        private @Nullable String get(int line)
+        {
+            if (line >= this.codes.length)
+            {
+                return "";
+            }
+            else if (this.codes[line] == NULL_VALUE)
+            {
+                return null;
+            }
+
+            return this.values.get(this.codes[line]);
+        }
+
+        private void set(int line, @Nullable String value)
+        {
+            if (line >= this.codes.length)
+            {
+                int oldLen = this.codes.length;
+                int newLen = Math.max(line + 1, Math.max(16, oldLen + (oldLen >> 1)));
+
+                this.codes = Arrays.copyOf(this.codes, newLen);
+                Arrays.fill(this.codes, oldLen, newLen, NULL_VALUE);
+            }
+
+            if (value == null)
+            {
+                this.codes[line] = NULL_VALUE;
+                return;
+            }
+
+            this.codes[line] = this.dictionary.computeIfAbsent(value, v ->
+            {
+                this.values.add(v);
+                return this.values.size() - 1;
+            });
+        }
+    }
+}
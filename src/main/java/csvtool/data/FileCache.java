@@ -8,24 +8,34 @@ import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class FileCache implements AutoCloseable
 {
     private final LogWrapper LOGGER = new LogWrapper(this.getClass());
 
-    public HashMap<Integer, List<String>> file;
+    public Map<Integer, List<String>> file;
     public CSVHeader header;
     public String fileName;
+    private final boolean columnar;
+    private List<String> headerRow;
 
     public FileCache()
     {
-        this.file = new HashMap<>();
+        this(false);
+    }
+
+    public FileCache(boolean columnar)
+    {
+        this.columnar = columnar;
+        this.file = this.newStorage();
         this.header = new CSVHeader();
         this.fileName = "";
     }
 
     public FileCache(@Nonnull CSVHeader newHeader)
     {
+        this.columnar = false;
         this.file = new HashMap<>();
         this.setHeader(newHeader);
         this.fileName = "";
@@ -33,6 +43,7 @@ public class FileCache implements AutoCloseable
 
     public FileCache(@Nonnull CSVHeader newHeader, String fileName)
     {
+        this.columnar = false;
         this.file = new HashMap<>();
         this.setHeader(newHeader);
         this.fileName = fileName;
@@ -48,7 +59,16 @@ public class FileCache implements AutoCloseable
         LOGGER.debug("copyFile(): Caching file [{} lines] ...", wrapper.getSize());
         this.copyHeader(wrapper);
         this.setFileName(wrapper.getFile());
-        this.file.putAll(wrapper.getAllLines());
+
+        if (this.columnar)
+        {
+            this.file = this.newStorage();
+            this.file.putAll(wrapper.detachAllLines());
+        }
+        else
+        {
+            this.file = wrapper.detachAllLines();
+        }
     }
 
     public void copyFileHeadersOnly(CSVWrapper wrapper)
@@ -69,11 +89,21 @@ public class FileCache implements AutoCloseable
         this.header = wrapper.getHeader();
     }
 
-    public HashMap<Integer, List<String>> getFile()
+    private Map<Integer, List<String>> newStorage()
+    {
+        return this.columnar ? new ColumnarCache() : new HashMap<>();
+    }
+
+    public Map<Integer, List<String>> getFile()
     {
         return this.file;
     }
 
+    public boolean isColumnar()
+    {
+        return this.columnar;
+    }
+
     public String getFileName()
     {
         return this.fileName;
@@ -85,7 +115,15 @@ public class FileCache implements AutoCloseable
         this.header = header;
 
         // Add header to FILE
-        this.file.put(0, header.stream().toList());
+        this.putHeaderRow();
+    }
+
+    // Line 0 is a copy of the header, that appendHeader() can extend in place
+    private void putHeaderRow()
+    {
+        this.headerRow = new ArrayList<>(this.header.size());
+        this.header.iterator().forEachRemaining(this.headerRow::add);
+        this.file.put(0, this.headerRow);
     }
 
     public void appendHeader(String header)
@@ -93,9 +131,16 @@ public class FileCache implements AutoCloseable
         LOGGER.debug("appendHeader(): Appending Header");
         this.header.add(header);
 
-        // Replace headers to FILE
-        List<String> newHeaders = this.header.stream().toList();
-        this.file.put(0, newHeaders);
+        // Only replace the header line if it can't be extended in place; ie. columnar lines are rebuilt on get(),
+        // or the header was changed (or the file replaced) since line 0 was put.
+        if (!this.columnar && this.headerRow != null && this.headerRow.size() + 1 == this.header.size() &&
+            this.file.get(0) == this.headerRow)
+        {
+            this.headerRow.add(header);
+            return;
+        }
+
+        this.putHeaderRow();
     }
 
     public FileCache setFileName(String name)
@@ -140,7 +185,11 @@ public class FileCache implements AutoCloseable
 //            }
         }
 
-        LOGGER.debug("addLine({}): out [{}]", this.file.size(), out.toString());
+        if (LOGGER.isDebug())
+        {
+            LOGGER.debug("addLine({}): out [{}]", this.file.size(), out);
+        }
+
         this.file.put(this.file.size(), out);
     }
 
@@ -0,0 +1,160 @@
+package csvtool.data;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.IntFunction;
+
+// Open-addressing index from a row's composite key (its keyIds columns) to a line number.
+// Each entry is only a 64-bit hash of the key and the line; on a hash match the key is verified
+// against the stored line's row (via rows), so the key fields are never copied.  Rows must not
+// change their key fields once they are indexed.
+public class KeyIndex
+{
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final int MIN_CAPACITY = 16;
+
+    private final int[] keyIds;
+    private final IntFunction<List<String>> rows;
+    private long[] hashes;
+    private int[] lines; // line + 1; so 0 marks an empty slot
+    private int mask;
+    private int size;
+
+    public KeyIndex(@Nonnull int[] keyIds, @Nonnull IntFunction<List<String>> rows, int expected)
+    {
+        this.keyIds = keyIds;
+        this.rows = rows;
+        this.init(capacityFor(expected));
+    }
+
+    private static int capacityFor(int expected)
+    {
+        // Keep the load under 2/3, so that linear probes stay short
+        long needed = Math.max((long) expected * 3 / 2, MIN_CAPACITY);
+
+        return (int) Math.min(Long.highestOneBit(needed - 1) << 1, 1 << 30);
+    }
+
+    private void init(int capacity)
+    {
+        this.hashes = new long[capacity];
+        this.lines = new int[capacity];
+        this.mask = capacity - 1;
+        this.size = 0;
+    }
+
+    public int size()
+    {
+        return this.size;
+    }
+
+    // Returns the line of the first row with the same key, or -1
+    public int get(@Nonnull List<String> row)
+    {
+        long hash = this.hash(row);
+
+        for (int slot = this.slot(hash); this.lines[slot] != 0; slot = (slot + 1) & this.mask)
+        {
+            if (this.hashes[slot] == hash && this.matches(row, this.lines[slot] - 1))
+            {
+                return this.lines[slot] - 1;
+            }
+        }
+
+        return -1;
+    }
+
+    // Returns the line of the first row with the same key; or adds this row's line, and returns -1
+    public int putIfAbsent(@Nonnull List<String> row, int line)
+    {
+        long hash = this.hash(row);
+        int slot = this.slot(hash);
+
+        for (; this.lines[slot] != 0; slot = (slot + 1) & this.mask)
+        {
+            if (this.hashes[slot] == hash && this.matches(row, this.lines[slot] - 1))
+            {
+                return this.lines[slot] - 1;
+            }
+        }
+
+        this.hashes[slot] = hash;
+        this.lines[slot] = line + 1;
+        this.size++;
+
+        if (this.size * 3 >= this.lines.length * 2)
+        {
+            this.resize();
+        }
+
+        return -1;
+    }
+
+    private long hash(List<String> row)
+    {
+        long hash = SEED;
+
+        for (int id : this.keyIds)
+        {
+            String key = row.get(id);
+
+            hash = (hash ^ (key == null ? 0 : key.hashCode())) * SEED;
+            hash ^= hash >>> 29;
+        }
+
+        return hash ^ (hash >>> 32);
+    }
+
+    private int slot(long hash)
+    {
+        return (int) hash & this.mask;
+    }
+
+    private boolean matches(List<String> row, int line)
+    {
+        List<String> other = this.rows.apply(line);
+
+        for (int id : this.keyIds)
+        {
+            if (!Objects.equals(row.get(id), other.get(id)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void resize()
+    {
+        long[] oldHashes = this.hashes;
+        int[] oldLines = this.lines;
+        int oldSize = this.size;
+
+        this.init(oldLines.length << 1);
+
+        for (int i = 0; i < oldLines.length; i++)
+        {
+            if (oldLines[i] != 0)
+            {
+                int slot = this.slot(oldHashes[i]);
+
+                while (this.lines[slot] != 0)
+                {
+                    slot = (slot + 1) & this.mask;
+                }
+
+                this.hashes[slot] = oldHashes[i];
+                this.lines[slot] = oldLines[i];
+            }
+        }
+
+        this.size = oldSize;
+    }
+
+    public void clear()
+    {
+        this.init(MIN_CAPACITY);
+    }
+}
@@ -30,13 +30,23 @@ public class OptSettings
     private String serialKey;
     private String serialStart;
     private String serialEnd;
+    private String serialRegistry;
     private String side;
+    private String threads;
+    private String spill;
+    private String bloom;
+    private String writeBuffer;
+    private String splitRows;
+    private String splitSize;
+    private String maxWriters;
     private boolean deDupe;
     private boolean squashDupe;
     private boolean applyQuotes;
     private boolean appendOutput;
     private boolean multi;
     private boolean outer;
+    private boolean diffRegex;
+    private boolean columnar;
     private boolean quiet;
     private boolean debug;
     private boolean ansiColors;
@@ -65,13 +75,23 @@ public class OptSettings
         this.serialKey = "";
         this.serialStart = "";
         this.serialEnd = "";
+        this.serialRegistry = "";
         this.side = "";
+        this.threads = "";
+        this.spill = "";
+        this.bloom = "";
+        this.writeBuffer = "";
+        this.splitRows = "";
+        this.splitSize = "";
+        this.maxWriters = "";
         this.deDupe = false;
         this.squashDupe = false;
         this.applyQuotes = false;
         this.appendOutput = false;
         this.multi = false;
         this.outer = false;
+        this.diffRegex = false;
+        this.columnar = false;
         this.quiet = Const.QUIET;
         this.debug = Const.DEBUG;
         this.ansiColors = Const.ANSI_COLOR;
@@ -187,11 +207,51 @@ public class OptSettings
         return this.serialEnd != null && !this.serialEnd.isEmpty();
     }
 
+    public boolean hasSerialRegistry()
+    {
+        return this.serialRegistry != null && !this.serialRegistry.isEmpty();
+    }
+
     public boolean hasSide()
     {
         return this.side != null && !this.side.isEmpty();
     }
 
+    public boolean hasThreads()
+    {
+        return this.threads != null && !this.threads.isEmpty();
+    }
+
+    public boolean hasSpill()
+    {
+        return this.spill != null && !this.spill.isEmpty();
+    }
+
+    public boolean hasBloom()
+    {
+        return this.bloom != null && !this.bloom.isEmpty();
+    }
+
+    public boolean hasWriteBuffer()
+    {
+        return this.writeBuffer != null && !this.writeBuffer.isEmpty();
+    }
+
+    public boolean hasSplitRows()
+    {
+        return this.splitRows != null && !this.splitRows.isEmpty();
+    }
+
+    public boolean hasSplitSize()
+    {
+        return this.splitSize != null && !this.splitSize.isEmpty();
+    }
+
+    public boolean hasMaxWriters()
+    {
+        return this.maxWriters != null && !this.maxWriters.isEmpty();
+    }
+
     public @Nullable String getInput2()
     {
         return this.input2;
@@ -302,11 +362,51 @@ public class OptSettings
         return this.serialEnd;
     }
 
+    public @Nullable String getSerialRegistry()
+    {
+        return this.serialRegistry;
+    }
+
     public @Nullable String getSide()
     {
         return this.side;
     }
 
+    public @Nullable String getThreads()
+    {
+        return this.threads;
+    }
+
+    public @Nullable String getSpill()
+    {
+        return this.spill;
+    }
+
+    public @Nullable String getBloom()
+    {
+        return this.bloom;
+    }
+
+    public @Nullable String getWriteBuffer()
+    {
+        return this.writeBuffer;
+    }
+
+    public @Nullable String getSplitRows()
+    {
+        return this.splitRows;
+    }
+
+    public @Nullable String getSplitSize()
+    {
+        return this.splitSize;
+    }
+
+    public @Nullable String getMaxWriters()
+    {
+        return this.maxWriters;
+    }
+
     public boolean isDeDupe()
     {
         return this.deDupe;
@@ -337,6 +437,16 @@ public class OptSettings
         return this.outer;
     }
 
+    public boolean isDiffRegex()
+    {
+        return this.diffRegex;
+    }
+
+    public boolean isColumnar()
+    {
+        return this.columnar;
+    }
+
     public boolean isQuiet()
     {
         return this.quiet;
@@ -489,11 +599,51 @@ public class OptSettings
         this.serialEnd = end;
     }
 
+    public void setSerialRegistry(String registry)
+    {
+        this.serialRegistry = registry;
+    }
+
     public void setSide(String side)
     {
         this.side = side;
     }
 
+    public void setThreads(String threads)
+    {
+        this.threads = threads;
+    }
+
+    public void setSpill(String spill)
+    {
+        this.spill = spill;
+    }
+
+    public void setBloom(String bloom)
+    {
+        this.bloom = bloom;
+    }
+
+    public void setWriteBuffer(String size)
+    {
+        this.writeBuffer = size;
+    }
+
+    public void setSplitRows(String rows)
+    {
+        this.splitRows = rows;
+    }
+
+    public void setSplitSize(String size)
+    {
+        this.splitSize = size;
+    }
+
+    public void setMaxWriters(String writers)
+    {
+        this.maxWriters = writers;
+    }
+
     public void setDeDupe(boolean toggle)
     {
         this.deDupe = toggle;
@@ -524,6 +674,16 @@ public class OptSettings
         this.outer = toggle;
     }
 
+    public void setDiffRegex(boolean toggle)
+    {
+        this.diffRegex = toggle;
+    }
+
+    public void setColumnar(boolean toggle)
+    {
+        this.columnar = toggle;
+    }
+
     public void setQuiet(boolean toggle)
     {
         this.quiet = toggle;
@@ -0,0 +1,678 @@
+package csvtool.data;
+
+import csvtool.utils.CSVChannelWriter;
+import csvtool.utils.FileUtils;
+import csvtool.utils.LogWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+// Append-only log of the serials handed out by OperationSerialize; one (serial, key1 [.. key5]) record per line.
+// Existing records are never rewritten, new ones are only appended once the output has been written.
+// The log is never read as a whole; lookups go through a hashed index of the log offsets (file.idx), which is
+// memory-mapped, so only the records for the keys and serials that are looked up are read.  The index catches up
+// on any records appended since it was written, and is rebuilt from the log if it is missing or invalid.
+public class SerialRegistry implements AutoCloseable
+{
+    private final LogWrapper LOGGER = new LogWrapper(this.getClass());
+    private static final long MAGIC = 0x4353565352494458L;
+    private static final int HEADER_SIZE = 64;
+    private static final int KEY_SLOT = 8;
+    private static final int SERIAL_SLOT = 16;
+    private static final int MIN_CAPACITY = 1 << 12;
+    private static final int MAX_CAPACITY = 1 << 30;
+    private static final long SEGMENT_SIZE = 1L << 30;
+    private static final int SCAN_SIZE = 1 << 20;
+    private static final int PROBE_SIZE = 256;
+    private static final byte SEPARATOR = ',';
+    private static final byte QUOTE = '"';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final String file;
+    private final String indexFile;
+    private final List<List<String>> pending;
+    // Only the lookups made by this run are cached
+    private final HashMap<List<String>, Integer> serials;
+    private final HashMap<Integer, List<String>> keySets;
+    private @Nullable FileChannel log;
+    private @Nullable FileChannel index;
+    private MappedByteBuffer[] segments;
+    private int capacity;
+    private int count;
+    private int keyCount;
+    private int maxSerial;
+    private long indexedLength;
+
+    public SerialRegistry(@Nonnull String file)
+    {
+        this.file = file;
+        this.indexFile = file + ".idx";
+        this.pending = new ArrayList<>();
+        this.serials = new HashMap<>();
+        this.keySets = new HashMap<>();
+        this.log = null;
+        this.index = null;
+        this.segments = new MappedByteBuffer[0];
+        this.capacity = 0;
+        this.count = 0;
+        this.keyCount = 0;
+        this.maxSerial = Integer.MIN_VALUE;
+        this.indexedLength = 0;
+    }
+
+    public String getFile()
+    {
+        return this.file;
+    }
+
+    // Opens the log, and brings its index up to date; the index is only rebuilt if it can't be used.
+    public boolean open()
+    {
+        if (this.log != null)
+        {
+            return true;
+        }
+
+        try
+        {
+            if (!FileUtils.fileExists(this.file))
+            {
+                LOGGER.info("open(): Serial Registry [{}] does not exist, it will be created.", this.file);
+            }
+
+            this.log = FileChannel.open(Path.of(this.file), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.index = FileChannel.open(Path.of(this.indexFile), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+            if (!this.readHeader())
+            {
+                LOGGER.info("open(): Serial Registry index [{}] is missing or invalid, rebuilding it ...", this.indexFile);
+                this.resize(MIN_CAPACITY);
+            }
+
+            if (!this.update())
+            {
+                this.close();
+                return false;
+            }
+        }
+        catch (IOException err)
+        {
+            LOGGER.error("open(): Exception opening Serial Registry [{}]; {}", this.file, err.getMessage());
+            this.closeQuietly();
+            return false;
+        }
+
+        LOGGER.debug("open(): Serial Registry [{}] has [{}] entries, index capacity [{}].", this.file, this.count, this.capacity);
+        return true;
+    }
+
+    // The number of keys in each record; or 0 if the registry is empty
+    public int getKeyCount()
+    {
+        return this.keyCount;
+    }
+
+    // The highest serial in the registry; or Integer.MIN_VALUE if the registry is empty
+    public int getMaxSerial()
+    {
+        return this.maxSerial;
+    }
+
+    // The first serial that was registered for this keySet; or -1
+    public int getSerial(@Nonnull List<String> keySet) throws IOException
+    {
+        Integer cached = this.serials.get(keySet);
+
+        if (cached != null)
+        {
+            return cached;
+        }
+
+        int hash = hash(keySet);
+        int serial = -1;
+
+        for (int slot = hash & (this.capacity - 1); ; slot = (slot + 1) & (this.capacity - 1))
+        {
+            long pos = this.keySlot(slot);
+            int ref = this.getInt(pos + 4);
+
+            if (ref == 0)
+            {
+                break;
+            }
+
+            if (this.getInt(pos) == hash && keySet.equals(this.readKeySet(ref - 1)))
+            {
+                serial = this.getInt(this.serialSlot(ref - 1));
+                break;
+            }
+        }
+
+        this.serials.put(new ArrayList<>(keySet), serial);
+        return serial;
+    }
+
+    // The keySet that the serial was registered for; or null
+    public @Nullable List<String> getKeySet(int serial) throws IOException
+    {
+        if (this.keySets.containsKey(serial))
+        {
+            return this.keySets.get(serial);
+        }
+
+        int slot = this.findSerial(serial);
+        List<String> keySet = slot < 0 ? null : this.readKeySet(slot);
+
+        this.keySets.put(serial, keySet);
+        return keySet;
+    }
+
+    public void add(int serial, @Nonnull List<String> keySet)
+    {
+        List<String> record = new ArrayList<>(keySet.size() + 1);
+
+        record.add(String.valueOf(serial));
+        record.addAll(keySet);
+        this.pending.add(record);
+    }
+
+    public int getPendingSize()
+    {
+        return this.pending.size();
+    }
+
+    // Appends the new records to the end of the log, then indexes them
+    public boolean save()
+    {
+        if (this.pending.isEmpty())
+        {
+            return true;
+        }
+
+        if (this.log == null && !this.open())
+        {
+            return false;
+        }
+
+        try (CSVChannelWriter writer = new CSVChannelWriter(this.file, true))
+        {
+            for (List<String> record : this.pending)
+            {
+                writer.writeNext(record, false);
+            }
+        }
+        catch (Exception err)
+        {
+            LOGGER.error("save(): Exception appending to Serial Registry [{}]; {}", this.file, err.getMessage());
+            return false;
+        }
+
+        try
+        {
+            if (!this.update())
+            {
+                return false;
+            }
+        }
+        catch (IOException err)
+        {
+            LOGGER.error("save(): Exception indexing Serial Registry [{}]; {}", this.file, err.getMessage());
+            return false;
+        }
+
+        LOGGER.debug("save(): Serial Registry [{}] appended [{}] entries.", this.file, this.pending.size());
+        this.pending.clear();
+        this.serials.clear();
+        this.keySets.clear();
+        return true;
+    }
+
+    private boolean readHeader() throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        if (this.index.read(header, 0) < HEADER_SIZE || header.getLong(0) != MAGIC)
+        {
+            return false;
+        }
+
+        long indexed = header.getLong(8);
+        int cap = header.getInt(16);
+
+        if (cap < MIN_CAPACITY || cap > MAX_CAPACITY || Integer.bitCount(cap) != 1 ||
+            this.index.size() < indexSize(cap) || indexed > this.log.size())
+        {
+            return false;
+        }
+
+        this.map(cap);
+        this.indexedLength = indexed;
+        this.count = header.getInt(20);
+        this.keyCount = header.getInt(24);
+        this.maxSerial = header.getInt(28);
+        return true;
+    }
+
+    // The header is written last, so an index that was only partly written is rebuilt
+    private void writeHeader()
+    {
+        MappedByteBuffer header = this.segments[0];
+
+        header.putLong(8, this.indexedLength);
+        header.putInt(16, this.capacity);
+        header.putInt(20, this.count);
+        header.putInt(24, this.keyCount);
+        header.putInt(28, this.maxSerial);
+        header.putLong(0, MAGIC);
+    }
+
+    // Starts a new, empty index; all of the log is indexed again by update()
+    private void resize(int cap) throws IOException
+    {
+        this.segments = new MappedByteBuffer[0];
+        this.index.truncate(0);
+        this.index.write(ByteBuffer.allocate(1), indexSize(cap) - 1);
+        this.map(cap);
+        this.indexedLength = 0;
+        this.count = 0;
+        this.keyCount = 0;
+        this.maxSerial = Integer.MIN_VALUE;
+        this.serials.clear();
+        this.keySets.clear();
+    }
+
+    private void map(int cap) throws IOException
+    {
+        long size = indexSize(cap);
+        MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+
+        for (int i = 0; i < mapped.length; i++)
+        {
+            long start = i * SEGMENT_SIZE;
+            mapped[i] = this.index.map(FileChannel.MapMode.READ_WRITE, start, Math.min(SEGMENT_SIZE, size - start));
+        }
+
+        this.segments = mapped;
+        this.capacity = cap;
+    }
+
+    // Indexes the records appended to the log since the index was last written; the index is grown (and rebuilt) once it is full
+    private boolean update() throws IOException
+    {
+        long size = this.log.size();
+        long offset = this.indexedLength;
+        byte[] buf = new byte[SCAN_SIZE];
+        List<String> record = new ArrayList<>();
+
+        while (offset < size)
+        {
+            int limit = this.readLog(offset, buf);
+            boolean eof = offset + limit >= size;
+            int pos = 0;
+            int next;
+
+            while (pos < limit && (next = parseRecord(buf, pos, limit, eof, record)) >= 0)
+            {
+                if (this.count >= this.capacity - (this.capacity >> 2))
+                {
+                    if (this.capacity >= MAX_CAPACITY)
+                    {
+                        LOGGER.error("update(): Serial Registry [{}] is full!", this.file);
+                        return false;
+                    }
+
+                    LOGGER.debug("update(): Serial Registry index [{}] is full, rebuilding it with capacity [{}] ...", this.indexFile, this.capacity << 1);
+                    this.resize(this.capacity << 1);
+                    return this.update();
+                }
+
+                if (!this.insert(offset + pos, record))
+                {
+                    return false;
+                }
+
+                pos = next;
+            }
+
+            if (pos == 0)
+            {
+                if (eof)
+                {
+                    LOGGER.error("update(): Serial Registry [{}] record at offset [{}] is invalid!", this.file, offset);
+                    return false;
+                }
+
+                // The record is longer than the buffer
+                buf = new byte[buf.length << 1];
+            }
+
+            offset += pos;
+        }
+
+        this.indexedLength = size;
+        this.writeHeader();
+        return true;
+    }
+
+    private boolean insert(long offset, List<String> record) throws IOException
+    {
+        // Blank lines are skipped
+        if (record.size() == 1 && record.getFirst().isEmpty())
+        {
+            return true;
+        }
+
+        if (record.size() < 2)
+        {
+            LOGGER.error("insert(): Serial Registry [{}] record at offset [{}] is invalid!", this.file, offset);
+            return false;
+        }
+
+        int serial;
+
+        try
+        {
+            serial = Integer.parseInt(record.getFirst());
+        }
+        catch (NumberFormatException err)
+        {
+            LOGGER.error("insert(): Serial Registry [{}] record at offset [{}] has an invalid serial; {}", this.file, offset, err.getMessage());
+            return false;
+        }
+
+        List<String> keySet = record.subList(1, record.size());
+
+        if (this.keyCount == 0)
+        {
+            this.keyCount = keySet.size();
+        }
+        else if (this.keyCount != keySet.size())
+        {
+            LOGGER.error("insert(): Serial Registry [{}] record at offset [{}] has [{}] keys, but the other records have [{}].", this.file, offset, keySet.size(), this.keyCount);
+            return false;
+        }
+
+        int hash = hash(keySet);
+        int slot = this.findSerial(serial);
+
+        if (slot >= 0)
+        {
+            if (this.getInt(this.serialSlot(slot) + 4) == hash && keySet.equals(this.readKeySet(slot)))
+            {
+                return true;
+            }
+
+            LOGGER.error("insert(): Serial Registry [{}] Serial [{}] already exists, but it doesn't match: keySet [{}]", this.file, serial, keySet);
+            return false;
+        }
+
+        slot = -slot - 1;
+        long pos = this.serialSlot(slot);
+
+        this.putInt(pos, serial);
+        this.putInt(pos + 4, hash);
+        this.putLong(pos + 8, offset + 1);
+        this.count++;
+        this.maxSerial = Math.max(this.maxSerial, serial);
+
+        // The first serial registered for a keySet is the one that gets reused
+        for (int key = hash & (this.capacity - 1); ; key = (key + 1) & (this.capacity - 1))
+        {
+            long keyPos = this.keySlot(key);
+            int ref = this.getInt(keyPos + 4);
+
+            if (ref == 0)
+            {
+                this.putInt(keyPos, hash);
+                this.putInt(keyPos + 4, slot + 1);
+                return true;
+            }
+
+            if (this.getInt(keyPos) == hash && keySet.equals(this.readKeySet(ref - 1)))
+            {
+                return true;
+            }
+        }
+    }
+
+    // The serial's slot; or (-slot - 1) of the empty slot where it would go
+    private int findSerial(int serial)
+    {
+        for (int slot = mix(serial) & (this.capacity - 1); ; slot = (slot + 1) & (this.capacity - 1))
+        {
+            long pos = this.serialSlot(slot);
+
+            if (this.getLong(pos + 8) == 0)
+            {
+                return -slot - 1;
+            }
+
+            if (this.getInt(pos) == serial)
+            {
+                return slot;
+            }
+        }
+    }
+
+    private List<String> readKeySet(int slot) throws IOException
+    {
+        long offset = this.getLong(this.serialSlot(slot) + 8) - 1;
+        List<String> record = new ArrayList<>();
+        long size = this.log.size();
+
+        for (byte[] buf = new byte[PROBE_SIZE]; ; buf = new byte[buf.length << 1])
+        {
+            int limit = this.readLog(offset, buf);
+            boolean eof = offset + limit >= size;
+
+            if (parseRecord(buf, 0, limit, eof, record) >= 0)
+            {
+                return record.subList(1, record.size());
+            }
+
+            if (eof)
+            {
+                throw new IOException("Record at offset [" + offset + "] is invalid");
+            }
+        }
+    }
+
+    private int readLog(long offset, byte[] buf) throws IOException
+    {
+        ByteBuffer wrapped = ByteBuffer.wrap(buf);
+
+        while (wrapped.hasRemaining())
+        {
+            if (this.log.read(wrapped, offset + wrapped.position()) < 0)
+            {
+                break;
+            }
+        }
+
+        return wrapped.position();
+    }
+
+    // Parses the record at pos, and returns the position after its line ending; or -1 if it does not end before the limit.
+    // Same format as CSVChannelWriter writes; fields are only quoted if needed, and quotes are doubled to escape them.
+    private static int parseRecord(byte[] buf, int pos, int limit, boolean eof, List<String> out) throws IOException
+    {
+        int i = pos;
+
+        out.clear();
+
+        while (true)
+        {
+            if (i < limit && buf[i] == QUOTE)
+            {
+                ByteArrayOutputStream field = new ByteArrayOutputStream();
+
+                for (i++; ; i++)
+                {
+                    if (i >= limit || (buf[i] == QUOTE && i + 1 >= limit && !eof))
+                    {
+                        return -1;
+                    }
+
+                    if (buf[i] == QUOTE)
+                    {
+                        if (i + 1 >= limit || buf[i + 1] != QUOTE)
+                        {
+                            break;
+                        }
+
+                        i++;
+                    }
+
+                    field.write(buf[i]);
+                }
+
+                out.add(field.toString(StandardCharsets.UTF_8));
+                i++;
+            }
+            else
+            {
+                int start = i;
+
+                while (i < limit && buf[i] != SEPARATOR && buf[i] != LF && buf[i] != CR)
+                {
+                    i++;
+                }
+
+                out.add(new String(buf, start, i - start, StandardCharsets.UTF_8));
+            }
+
+            if (i >= limit)
+            {
+                return eof ? limit : -1;
+            }
+
+            if (buf[i] == SEPARATOR)
+            {
+                i++;
+            }
+            else if (buf[i] == LF)
+            {
+                return i + 1;
+            }
+            else if (buf[i] == CR)
+            {
+                if (i + 1 >= limit)
+                {
+                    return eof ? limit : -1;
+                }
+
+                return buf[i + 1] == LF ? i + 2 : i + 1;
+            }
+            else
+            {
+                throw new IOException("Unexpected character after a quoted field at [" + i + "]");
+            }
+        }
+    }
+
+    private static long indexSize(int cap)
+    {
+        return HEADER_SIZE + (long) cap * (KEY_SLOT + SERIAL_SLOT);
+    }
+
+    // Key slots are (keySet hash, serial slot + 1); followed by the serial slots, which are (serial, keySet hash, log offset + 1)
+    private long keySlot(int slot)
+    {
+        return HEADER_SIZE + (long) slot * KEY_SLOT;
+    }
+
+    private long serialSlot(int slot)
+    {
+        return HEADER_SIZE + (long) this.capacity * KEY_SLOT + (long) slot * SERIAL_SLOT;
+    }
+
+    // Slots never cross a segment, since the slot sizes divide the segment size
+    private int getInt(long pos)
+    {
+        return this.segments[(int) (pos / SEGMENT_SIZE)].getInt((int) (pos % SEGMENT_SIZE));
+    }
+
+    private long getLong(long pos)
+    {
+        return this.segments[(int) (pos / SEGMENT_SIZE)].getLong((int) (pos % SEGMENT_SIZE));
+    }
+
+    private void putInt(long pos, int value)
+    {
+        this.segments[(int) (pos / SEGMENT_SIZE)].putInt((int) (pos % SEGMENT_SIZE), value);
+    }
+
+    private void putLong(long pos, long value)
+    {
+        this.segments[(int) (pos / SEGMENT_SIZE)].putLong((int) (pos % SEGMENT_SIZE), value);
+    }
+
+    // String.hashCode() is fixed by its spec, so the hash is the same on every run
+    private static int hash(List<String> keySet)
+    {
+        return mix(keySet.hashCode());
+    }
+
+    private static int mix(int h)
+    {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        return h ^ (h >>> 16);
+    }
+
+    private void closeQuietly()
+    {
+        try
+        {
+            this.close();
+        }
+        catch (IOException ignored)
+        {
+        }
+    }
+
+    public void clear()
+    {
+        this.pending.clear();
+        this.closeQuietly();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        for (MappedByteBuffer segment : this.segments)
+        {
+            segment.force();
+        }
+
+        this.segments = new MappedByteBuffer[0];
+        this.serials.clear();
+        this.keySets.clear();
+
+        if (this.index != null)
+        {
+            this.index.close();
+            this.index = null;
+        }
+
+        if (this.log != null)
+        {
+            this.log.close();
+            this.log = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package csvtool.enums;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+public enum Compression
+{
+    NONE    ("none",  List.of(),                 new byte[] {}),
+    GZIP    ("gzip",  List.of(".gz", ".gzip"),   new byte[] {0x1F, (byte) 0x8B}),
+    ZSTD    ("zstd",  List.of(".zst", ".zstd"),  new byte[] {0x28, (byte) 0xB5, 0x2F, (byte) 0xFD}),
+    BZIP2   ("bzip2", List.of(".bz2", ".bzip2"), new byte[] {'B', 'Z', 'h'});
+
+    private static final int MAGIC_SIZE = 10;
+    private static final byte[] BZIP2_BLOCK = new byte[] {0x31, 0x41, 0x59, 0x26, 0x53, 0x59};
+    private static final byte[] BZIP2_END = new byte[] {0x17, 0x72, 0x45, 0x38, 0x50, (byte) 0x90};
+
+    private final String name;
+    private final List<String> extensions;
+    private final byte[] magic;
+
+    Compression(String name, List<String> extensions, byte[] magic)
+    {
+        this.name = name;
+        this.extensions = extensions;
+        this.magic = magic;
+    }
+
+    public String getName() { return this.name; }
+
+    public boolean isCompressed() { return this != NONE; }
+
+    // Output files are only compressed based on their extension
+    public static Compression fromFileName(@Nonnull String file)
+    {
+        String lower = file.toLowerCase(Locale.ROOT);
+
+        for (Compression entry : Compression.values())
+        {
+            for (String ext : entry.extensions)
+            {
+                if (lower.endsWith(ext))
+                {
+                    return entry;
+                }
+            }
+        }
+
+        return NONE;
+    }
+
+    // Returns the file name without this compression's extension (ie. out.csv.gz -> out.csv)
+    public String stripExtension(@Nonnull String file)
+    {
+        String lower = file.toLowerCase(Locale.ROOT);
+
+        for (String ext : this.extensions)
+        {
+            if (lower.endsWith(ext))
+            {
+                return file.substring(0, file.length() - ext.length());
+            }
+        }
+
+        return file;
+    }
+
+    // Input files are detected by their magic bytes first, so that a misnamed file is still read correctly
+    public static Compression detect(@Nonnull String file) throws IOException
+    {
+        Path path = Path.of(file);
+
+        if (!Files.isRegularFile(path))
+        {
+            return fromFileName(file);
+        }
+
+        byte[] head;
+
+        try (InputStream in = Files.newInputStream(path))
+        {
+            head = in.readNBytes(MAGIC_SIZE);
+        }
+
+        for (Compression entry : Compression.values())
+        {
+            if (entry.matches(head))
+            {
+                return entry;
+            }
+        }
+
+        return NONE;
+    }
+
+    private boolean matches(byte[] head)
+    {
+        if (this.magic.length == 0 || head.length < this.magic.length ||
+            !Arrays.equals(head, 0, this.magic.length, this.magic, 0, this.magic.length))
+        {
+            return false;
+        }
+
+        // A plain file could start with "BZh"; so the block size ('1' - '9') must follow,
+        // then the magic of the first block (or the end of stream, if it's empty).
+        if (this == BZIP2)
+        {
+            return head.length >= MAGIC_SIZE && head[3] >= '1' && head[3] <= '9' &&
+                   (Arrays.equals(head, 4, MAGIC_SIZE, BZIP2_BLOCK, 0, BZIP2_BLOCK.length) ||
+                    Arrays.equals(head, 4, MAGIC_SIZE, BZIP2_END, 0, BZIP2_END.length));
+        }
+
+        return true;
+    }
+}
@@ -28,13 +28,23 @@ public enum Settings
     SERIAL_KEY  ("serial-key",  "--serial-key",   true,  List.of("--sk", "-serial-key", "-sk")),
     SERIAL_START("serial-start","--serial-start", true,  List.of("--sks", "-serial-start", "-sks")),
     SERIAL_END  ("serial-ebd",  "--serial-end",   true,  List.of("--ske", "-serial-end", "-ske")),
+    SERIAL_REGISTRY("serial-registry", "--serial-registry", true, List.of("--skr", "-serial-registry", "-skr", "--registry", "-registry")),
     SIDE        ("side",        "--side",         true,  List.of("--sides", "-side", "-sides", "--s", "-s")),
+    THREADS     ("threads",     "--threads",      true,  List.of("-threads", "--workers", "-workers", "--th", "-th")),
+    SPILL       ("spill",       "--spill",        true,  List.of("-spill", "--external", "-external", "--sp", "-sp")),
+    BLOOM       ("bloom",       "--bloom",        true,  List.of("-bloom", "--bloom-fpp", "-bloom-fpp", "--bf", "-bf")),
+    WRITE_BUFFER("write-buffer","--write-buffer", true,  List.of("-write-buffer", "--buffer", "-buffer", "--wb", "-wb")),
+    SPLIT_ROWS  ("split-rows",  "--split-rows",   true,  List.of("-split-rows", "--rows", "-rows", "--sr", "-sr")),
+    SPLIT_SIZE  ("split-size",  "--split-size",   true,  List.of("-split-size", "--size", "-size", "--ss", "-ss")),
+    MAX_WRITERS ("max-writers", "--max-writers",  true,  List.of("-max-writers", "--writers", "-writers", "--mw", "-mw")),
     DE_DUPE     ("de-dupe",     "--de-dupe",      false, List.of("-de-dupe", "--dedupe", "-dedupe", "--dd", "-dd")),
     SQUASH_DUPE ("squash-dupe", "--squash-dupe",  false, List.of("-squash-dupe", "--squashdupe", "-squashdupe", "--sqdd", "-sqdd", "--sqd", "-sqd")),
     QUOTES      ("quotes",      "--quotes",       false, List.of("-quotes")),
     APPEND      ("append",      "--append",       false, List.of("--a", "-append", "-a")),
     MULTI       ("multi-join",  "--multi-join",   false, List.of("-multi-join", "--multi", "-multi", "--mj", "-mj")),
     OUTER       ("outer-join",  "--outer-join",   false, List.of("-outer-join", "--outer", "-outer", "--oj", "-oj")),
+    DIFF_REGEX  ("diff-regex",  "--diff-regex",   false, List.of("-diff-regex", "--regex", "-regex", "--rx", "-rx")),
+    COLUMNAR    ("columnar",    "--columnar",     false, List.of("-columnar", "--column", "-column", "--col", "-col")),
     QUIET       ("quiet",       "--quiet",        false, List.of("-quiet", "--q", "-q")),
     DEBUG       ("debug",       "--debug",        false, List.of("--db", "-db", "-debug", "--d", "-d")),
     ANSI_COLORS ("ansi-colors", "--ansi-colors",  false, List.of("--colors", "--color", "--ansi", "-colors", "-color", "-ansi")),
@@ -2,16 +2,17 @@ package csvtool.header;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.AbstractList;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Stream;
 
 public class CSVHeader implements AutoCloseable
 {
 //    private final LogWrapper LOGGER = new LogWrapper(this.getClass(), true, false, true);
     private final AbstractList<String> headers;
+    // Name -> first id, kept up to date as headers are added; transient, so it's not saved to the JSON configs,
+    // and it catches up with any headers that were set without add() (ie. loaded by Gson) on the next getId().
+    private final transient Map<String, Integer> index = new HashMap<>();
+    private transient volatile int indexed = 0;
 
     public CSVHeader()
     {
@@ -39,6 +40,7 @@ public class CSVHeader implements AutoCloseable
     {
         this.headers.clear();
         this.headers.addAll(headers);
+        this.resetIndex();
     }
 
     public boolean matches(@Nonnull CSVHeader otherHeaders)
@@ -72,20 +74,40 @@ public class CSVHeader implements AutoCloseable
     public CSVHeader add(String header)
     {
         this.headers.add(header);
+        this.updateIndex();
         return this;
     }
 
     public int getId(String header)
     {
-        for (int i = 0; i < this.headers.size(); i++)
+        if (this.indexed < this.headers.size())
         {
-            if (this.headers.get(i).equals(header))
-            {
-                return i;
-            }
+            this.updateIndex();
         }
 
-        return -1;
+        Integer id = this.index.get(header);
+
+        return id != null ? id : -1;
+    }
+
+    // Indexes any headers added since the last update; duplicate names keep their first id
+    private synchronized void updateIndex()
+    {
+        int size = this.headers.size();
+
+        for (int i = this.indexed; i < size; i++)
+        {
+            this.index.putIfAbsent(this.headers.get(i), i);
+        }
+
+        this.indexed = size;
+    }
+
+    private synchronized void resetIndex()
+    {
+        this.index.clear();
+        this.indexed = 0;
+        this.updateIndex();
     }
 
     public @Nullable String getFromId(int id)
@@ -123,6 +145,7 @@ public class CSVHeader implements AutoCloseable
         if (!this.headers.isEmpty())
         {
             this.headers.clear();
+            this.resetIndex();
         }
     }
 
@@ -0,0 +1,273 @@
+package csvtool.header;
+
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import csvtool.utils.LogWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+// An immutable CSVRemap, with its params pre-parsed once, so that it can be applied to every row without re-parsing them.
+public class CSVRemapCompiled
+{
+    private static final LogWrapper LOGGER = new LogWrapper(CSVRemapCompiled.class);
+    private final int id;
+    private final RemapType type;
+    private final List<String> params;
+    private final List<Integer> ints;
+    @Nullable
+    private final CSVRemapCompiled subRemap;
+    @Nullable
+    private final Pattern pattern;
+    @Nullable
+    private final DateTimeFormatter dateTimeFormat;
+    @Nullable
+    private final PhoneNumberUtil.PhoneNumberFormat phoneFormat;
+    @Nullable
+    private final ThreadLocal<SimpleDateFormat[]> dateFormats;
+    private final List<String> dateErrors;
+
+    private CSVRemapCompiled(int id, @Nonnull RemapType type, @Nonnull List<String> params, @Nullable CSVRemapCompiled subRemap) throws PatternSyntaxException
+    {
+        this.id = id;
+        this.type = type;
+        this.params = List.copyOf(params);
+        this.subRemap = subRemap;
+        this.dateErrors = new ArrayList<>();
+
+        List<Integer> list = new ArrayList<>();
+
+        for (String param : this.params)
+        {
+            list.add(parseInt(param));
+        }
+
+        this.ints = Collections.unmodifiableList(list);
+        this.pattern = (type == RemapType.INCLUDE_REGEX || type == RemapType.EXCLUDE_REGEX) && !this.params.isEmpty() ? Pattern.compile(this.params.getFirst()) : null;
+        this.dateTimeFormat = type == RemapType.DATE_EPOCH ? this.buildDateTimeFormat() : null;
+        this.phoneFormat = type == RemapType.PHONE_NUMBER ? this.buildPhoneFormat() : null;
+
+        switch (type)
+        {
+            case DATE -> this.dateFormats = this.buildDateFormats(0, 1);
+            case DATE_NOW, DATE_YEARS, DATE_MONTHS, DATE_DAYS -> this.dateFormats = this.buildDateFormats(0);
+            case IF_DATE_RANGE -> this.dateFormats = this.buildDateFormats(0, 2, 4);
+            default -> this.dateFormats = null;
+        }
+    }
+
+    public static @Nullable CSVRemapCompiled compile(@Nonnull CSVRemap remap)
+    {
+        CSVRemapCompiled sub = null;
+
+        if (remap.getSubRemap() != null)
+        {
+            sub = compile(remap.getSubRemap());
+
+            if (sub == null)
+            {
+                return null;
+            }
+        }
+
+        try
+        {
+            return new CSVRemapCompiled(remap.getId(), remap.getType(), remap.getParams() != null ? remap.getParams() : List.of(), sub);
+        }
+        catch (PatternSyntaxException err)
+        {
+            LOGGER.error("compile(): Remap [{}] has an invalid Regex; {}", remap.getId(), err.getMessage());
+        }
+
+        return null;
+    }
+
+    private @Nullable DateTimeFormatter buildDateTimeFormat()
+    {
+        if (this.params.isEmpty())
+        {
+            return null;
+        }
+
+        try
+        {
+            return DateTimeFormatter.ofPattern(this.params.getFirst(), Locale.ROOT);
+        }
+        catch (IllegalArgumentException err)
+        {
+            this.dateErrors.add(err.getMessage());
+        }
+
+        return null;
+    }
+
+    private PhoneNumberUtil.PhoneNumberFormat buildPhoneFormat()
+    {
+        if (this.params.isEmpty())
+        {
+            return PhoneNumberUtil.PhoneNumberFormat.RFC3966;
+        }
+
+        return switch (this.params.getFirst().toUpperCase())
+        {
+            case "INTERNATIONAL", "INTL" -> PhoneNumberUtil.PhoneNumberFormat.INTERNATIONAL;
+            case "NATIONAL", "NAT" -> PhoneNumberUtil.PhoneNumberFormat.NATIONAL;
+            case "E164", "E.164" -> PhoneNumberUtil.PhoneNumberFormat.E164;
+            default -> PhoneNumberUtil.PhoneNumberFormat.RFC3966;
+        };
+    }
+
+    private ThreadLocal<SimpleDateFormat[]> buildDateFormats(int... positions)
+    {
+        String[] patterns = new String[this.params.size()];
+
+        for (int pos : positions)
+        {
+            if (pos < this.params.size())
+            {
+                try
+                {
+                    new SimpleDateFormat(this.params.get(pos));
+                    patterns[pos] = this.params.get(pos);
+                }
+                catch (IllegalArgumentException err)
+                {
+                    this.dateErrors.add(err.getMessage());
+                }
+            }
+        }
+
+        // SimpleDateFormat isn't thread-safe, so each thread gets its own copies.
+        return ThreadLocal.withInitial(() ->
+        {
+            SimpleDateFormat[] formats = new SimpleDateFormat[patterns.length];
+
+            for (int i = 0; i < patterns.length; i++)
+            {
+                if (patterns[i] != null)
+                {
+                    formats[i] = new SimpleDateFormat(patterns[i]);
+                }
+            }
+
+            return formats;
+        });
+    }
+
+    private static @Nullable Integer parseInt(String param)
+    {
+        try
+        {
+            return Integer.parseInt(param);
+        }
+        catch (NumberFormatException ignored)
+        {
+            return null;
+        }
+    }
+
+    public int getId()
+    {
+        return this.id;
+    }
+
+    public RemapType getType()
+    {
+        return this.type;
+    }
+
+    public List<String> getParams()
+    {
+        return this.params;
+    }
+
+    public boolean hasInt(int param)
+    {
+        return param < this.ints.size() && this.ints.get(param) != null;
+    }
+
+    public int getInt(int param) throws NumberFormatException
+    {
+        Integer value = this.ints.get(param);
+
+        if (value == null)
+        {
+            throw new NumberFormatException("For input string: \"" + this.params.get(param) + "\"");
+        }
+
+        return value;
+    }
+
+    public @Nullable CSVRemapCompiled getSubRemap()
+    {
+        return this.subRemap;
+    }
+
+    public @Nullable Pattern getPattern()
+    {
+        return this.pattern;
+    }
+
+    public DateTimeFormatter getDateTimeFormat() throws IllegalArgumentException
+    {
+        if (this.dateTimeFormat == null)
+        {
+            throw new IllegalArgumentException(this.getDateError());
+        }
+
+        return this.dateTimeFormat;
+    }
+
+    public @Nullable PhoneNumberUtil.PhoneNumberFormat getPhoneFormat()
+    {
+        return this.phoneFormat;
+    }
+
+    public SimpleDateFormat getDateFormat(int param) throws IllegalArgumentException
+    {
+        SimpleDateFormat format = this.dateFormats != null && param < this.params.size() ? this.dateFormats.get()[param] : null;
+
+        if (format == null)
+        {
+            throw new IllegalArgumentException(this.getDateError());
+        }
+
+        return format;
+    }
+
+    private String getDateError()
+    {
+        return this.dateErrors.isEmpty() ? "Invalid date format" : this.dateErrors.getFirst();
+    }
+
+    // DROP and SWAP are handled by the plan itself
+    public boolean isNoOp()
+    {
+        return this.type == RemapType.DROP || this.type == RemapType.SWAP || (this.type == RemapType.NONE && this.subRemap == null);
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder builder = new StringBuilder("CSVRemapCompiled[");
+        builder.append("id=").append(this.getId()).append(",");
+        builder.append("type={").append(this.getType().toString()).append("}");
+        builder.append(",params=").append(this.getParams().toString());
+
+        if (this.getSubRemap() != null)
+        {
+            builder.append(",subRemap={").append(this.getSubRemap()).append("}");
+        }
+        else
+        {
+            builder.append(",subRemap={}");
+        }
+
+        builder.append("]");
+        return builder.toString();
+    }
+}
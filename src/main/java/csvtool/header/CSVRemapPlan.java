@@ -0,0 +1,153 @@
+package csvtool.header;
+
+import csvtool.utils.LogWrapper;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+// The CSVRemapList resolved once for every row; the IF_STATIC passes, the SWAP permutation,
+// and the compiled remap for each field after the swaps have been applied.
+public class CSVRemapPlan
+{
+    private static final LogWrapper LOGGER = new LogWrapper(CSVRemapPlan.class);
+    private final List<IfStatic> ifStatics;
+    private final List<Swap> swaps;
+    private final List<CSVRemapCompiled> remaps;
+
+    private CSVRemapPlan(List<IfStatic> ifStatics, List<Swap> swaps, List<CSVRemapCompiled> remaps)
+    {
+        this.ifStatics = List.copyOf(ifStatics);
+        this.swaps = List.copyOf(swaps);
+        this.remaps = List.copyOf(remaps);
+    }
+
+    public static @Nullable CSVRemapPlan compile(@Nonnull CSVRemapList remapList)
+    {
+        List<CSVRemap> list = new ArrayList<>(remapList.getList());
+        List<IfStatic> ifStatics = new ArrayList<>();
+        List<Swap> swaps = new ArrayList<>();
+        List<CSVRemapCompiled> remaps = new ArrayList<>();
+
+        // Pass 1 (IF-STATIC)
+        for (int i = 0; i < list.size(); i++)
+        {
+            CSVRemap remap = list.get(i);
+
+            if (remap == null)
+            {
+                LOGGER.error("compile():1: Error; Remap at pos [{}] is empty!", i);
+                return null;
+            }
+
+            if (remap.getType() == RemapType.IF_STATIC)
+            {
+                List<String> params = remap.getParams();
+
+                if (params == null || params.size() < 3)
+                {
+                    LOGGER.error("compile():1: IF_STATIC error; Invalid parameters given at pos [{}]", i);
+                    return null;
+                }
+
+                int fieldId = parseField(params.getFirst(), list.size());
+
+                if (fieldId < 0)
+                {
+                    LOGGER.error("compile():1: IF_STATIC error; Invalid fieldId [{}] at pos [{}]", params.getFirst(), i);
+                    return null;
+                }
+
+                ifStatics.add(new IfStatic(i, fieldId, List.copyOf(params)));
+                list.set(i, remap.getSubRemap() != null ? remap.getSubRemap() : new CSVRemap(i, RemapType.NONE));
+            }
+        }
+
+        // Pass 2 (SWAP)
+        for (int i = 0; i < list.size(); i++)
+        {
+            CSVRemap remap = list.get(i);
+
+            if (remap.getType() == RemapType.SWAP)
+            {
+                List<String> params = remap.getParams();
+
+                if (params == null || params.isEmpty())
+                {
+                    LOGGER.error("compile():2: SWAP error; No parameters given at pos [{}]", i);
+                    return null;
+                }
+
+                int swapId = parseField(params.getFirst(), list.size());
+
+                if (swapId < 0)
+                {
+                    LOGGER.error("compile():2: SWAP error; Invalid swapId [{}] at pos [{}]", params.getFirst(), i);
+                    return null;
+                }
+
+                swaps.add(new Swap(i, swapId));
+                list.set(i, list.get(swapId));
+                list.set(swapId, remap.getSubRemap() != null ? remap.getSubRemap() : new CSVRemap(swapId, RemapType.NONE));
+            }
+        }
+
+        // Pass 3 (Each)
+        for (CSVRemap remap : list)
+        {
+            CSVRemapCompiled compiled = CSVRemapCompiled.compile(remap);
+
+            if (compiled == null)
+            {
+                return null;
+            }
+
+            remaps.add(compiled);
+        }
+
+        LOGGER.debug("compile(): Compiled [{}] remaps, [{}] if-static, [{}] swaps", remaps.size(), ifStatics.size(), swaps.size());
+
+        return new CSVRemapPlan(ifStatics, swaps, remaps);
+    }
+
+    private static int parseField(String param, int size)
+    {
+        try
+        {
+            int field = Integer.parseInt(param);
+
+            if (field >= 0 && field < size)
+            {
+                return field;
+            }
+        }
+        catch (NumberFormatException ignored) { }
+
+        return -1;
+    }
+
+    public int size()
+    {
+        return this.remaps.size();
+    }
+
+    public List<IfStatic> getIfStatics()
+    {
+        return this.ifStatics;
+    }
+
+    public List<Swap> getSwaps()
+    {
+        return this.swaps;
+    }
+
+    public CSVRemapCompiled getRemap(int entry)
+    {
+        return this.remaps.get(entry);
+    }
+
+    public record IfStatic(int id, int field, List<String> params) {}
+
+    public record Swap(int id, int other) {}
+}
@@ -103,6 +103,17 @@ public class HeaderParser implements AutoCloseable
         return null;
     }
 
+    public @Nullable CSVRemapPlan compileRemapList()
+    {
+        if (this.CONFIG == null || this.CONFIG.remapList == null)
+        {
+            LOGGER.error("compileRemapList(): Error; Remap List is empty/null!");
+            return null;
+        }
+
+        return CSVRemapPlan.compile(this.CONFIG.remapList);
+    }
+
     public int getRemapListSize()
     {
         if (this.CONFIG != null && this.CONFIG.remapList != null)
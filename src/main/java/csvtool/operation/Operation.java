@@ -3,11 +3,15 @@ package csvtool.operation;
 import com.google.i18n.phonenumbers.NumberParseException;
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
 import com.google.i18n.phonenumbers.Phonenumber;
+import csvtool.data.BloomFilter;
+import csvtool.data.ColumnarCache;
 import csvtool.data.Context;
 import csvtool.data.FileCache;
 import csvtool.enums.Operations;
+import csvtool.enums.Settings;
 import csvtool.header.CSVHeader;
-import csvtool.header.CSVRemap;
+import csvtool.header.CSVRemapCompiled;
+import csvtool.utils.CSVChannelWriter;
 import csvtool.utils.CSVWrapper;
 import csvtool.utils.LogWrapper;
 import csvtool.utils.StringUtils;
@@ -21,13 +25,13 @@ import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public abstract class Operation
 {
     private final LogWrapper LOGGER = new LogWrapper(this.getClass());
+    private boolean columnar = false;
+    private int writeBuffer = CSVChannelWriter.DEFAULT_BUFFER_SIZE;
 
     public Operation(Operations op)
     {
@@ -57,6 +61,32 @@ public abstract class Operation
         LOGGER.toggleAnsiColor(toggle);
     }
 
+    protected void toggleColumnar(boolean toggle)
+    {
+        this.columnar = toggle;
+    }
+
+    // Output buffer size in KB; invalid sizes keep the default
+    protected void setWriteBuffer(String size)
+    {
+        try
+        {
+            int kb = Integer.parseInt(size);
+
+            if (kb > 0 && kb <= Integer.MAX_VALUE / 1024)
+            {
+                this.writeBuffer = kb * 1024;
+                return;
+            }
+
+            LOGGER.warn("setWriteBuffer(): Write Buffer size [{}] is out of range, using the default.", kb);
+        }
+        catch (NumberFormatException err)
+        {
+            LOGGER.warn("setWriteBuffer(): Exception reading Write Buffer size, using the default; {}", err.getLocalizedMessage());
+        }
+    }
+
     protected @Nullable FileCache readFile(String file)
     {
         return this.readFile(file, true, false);
@@ -66,6 +96,11 @@ public abstract class Operation
     {
         LOGGER.debug("readFile(): Reading file [{}] ...", file);
 
+        if (this.columnar)
+        {
+            return this.readFileColumnar(file, ignoreQuotes, dump);
+        }
+
         try (CSVWrapper wrapper = new CSVWrapper(file))
         {
             if (wrapper.read(true, ignoreQuotes))
@@ -91,6 +126,65 @@ public abstract class Operation
         return null;
     }
 
+    // Streams the file directly into a Columnar FileCache, without caching it in the wrapper first
+    protected @Nullable FileCache readFileColumnar(String file, boolean ignoreQuotes, boolean dump)
+    {
+        LOGGER.debug("readFileColumnar(): Reading file [{}] ...", file);
+
+        CSVWrapper wrapper = this.openFileReader(file, true, ignoreQuotes);
+
+        if (wrapper == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            FileCache cache = new FileCache(true);
+            CSVHeader header = wrapper.getHeader();
+            List<String> line;
+
+            cache.setFileName(file);
+
+            if (header == null)
+            {
+                LOGGER.warn("readFileColumnar(): File [{}] has no header!", file);
+                return cache;
+            }
+
+            cache.setHeader(header);
+
+            while ((line = wrapper.readNext()) != null)
+            {
+                if (dump)
+                {
+                    LOGGER.debug("readFileColumnar(): LINE[{}] --> {}", cache.getFile().size(), line);
+                }
+
+                cache.getFile().put(cache.getFile().size(), line);
+            }
+
+            LOGGER.info("readFileColumnar(): File read! [{} lines]", cache.getFile().size());
+
+            if (LOGGER.isDebug() && cache.getFile() instanceof ColumnarCache columns)
+            {
+                LOGGER.debug("readFileColumnar(): Column dictionary sizes {}", columns.getDictionarySizes());
+            }
+
+            return cache;
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("readFileColumnar(): Exception reading file! Error: {}", e.getMessage());
+        }
+        finally
+        {
+            this.closeQuietly(wrapper);
+        }
+
+        return null;
+    }
+
     protected @Nullable FileCache readFileNoHeaders(String file, boolean ignoreQuotes, boolean dump)
     {
         LOGGER.debug("readFileNoHeaders(): Reading file [{}] ...", file);
@@ -161,7 +255,7 @@ public abstract class Operation
             return;
         }
 
-        LOGGER.debug("dumpFile(): Header {} // Line Size: [{}]", header.toString(), wrapper.getSize());
+        LOGGER.debug("dumpFile(): Header {} // Line Size: [{}]", header, wrapper.getSize());
 
         if (wrapper.isEmpty())
         {
@@ -185,7 +279,7 @@ public abstract class Operation
                 continue;
             }
 
-            LOGGER.debug("dumpFile(): LINE[{}] --> {}", i, line.toString());
+            LOGGER.debug("dumpFile(): LINE[{}] --> {}", i, line);
         }
 
         LOGGER.debug("dumpFile(): EOF");
@@ -216,38 +310,35 @@ public abstract class Operation
     {
         LOGGER.debug("writeFile(): Write file [{}]:", FILE.getFileName());
 
-        try (CSVWrapper wrapper = new CSVWrapper(FILE.getFileName(), false))
+        if (!FILE.hasLine(0) || FILE.getLine(0).isEmpty())
         {
-            if (wrapper.putAllLines(FILE.getFile(), true))
-            {
-                if (APPEND != null)
-                {
-                    if (!this.appendFile(wrapper, APPEND))
-                    {
-                        LOGGER.error("writeFile(): Error appending file Cache.");
-                        wrapper.close();
-                        return false;
-                    }
-                }
-
-                if (wrapper.write(applyQuotes, append))
-                {
-                    LOGGER.info("writeFile(): File written!");
+            LOGGER.error("writeFile(): Error copying file Cache to new file.");
+            return false;
+        }
 
-                    if (dump)
-                    {
-                        dumpFile(wrapper);
-                    }
+        if (APPEND != null && APPEND.isEmpty())
+        {
+            LOGGER.error("writeFile(): Error appending file Cache.");
+            return false;
+        }
 
-                    wrapper.close();
-                    return true;
-                }
+        // Stream the lines directly from the Cache, instead of copying them into the CSVWrapper first.
+        try (CSVWrapper wrapper = this.openFileWriter(FILE.getFileName(), FILE.getLine(0), applyQuotes, append))
+        {
+            if (wrapper == null)
+            {
+                LOGGER.error("writeFile(): Error opening file [{}] for writing.", FILE.getFileName());
+                return false;
             }
-            else
+
+            if (!this.appendFile(wrapper, FILE, dump) || (APPEND != null && !this.appendFile(wrapper, APPEND, dump)))
             {
-                LOGGER.error("writeFile(): Error copying file Cache to new file.");
-                wrapper.close();
+                LOGGER.error("writeFile(): Error writing file [{}].", FILE.getFileName());
+                return false;
             }
+
+            LOGGER.info("writeFile(): File written!");
+            return true;
         }
         catch (Exception e)
         {
@@ -257,32 +348,127 @@ public abstract class Operation
         return false;
     }
 
-    protected boolean appendFile(CSVWrapper wrapper, FileCache FILE)
+    protected boolean appendFile(@Nonnull CSVWrapper wrapper, @Nonnull FileCache FILE, boolean dump)
     {
-        if (wrapper == null || wrapper.isEmpty())
+        LOGGER.debug("appendFile(): Appending file to wrapper...");
+
+        for (int i = 1; i < FILE.getFile().size(); i++)
         {
-            LOGGER.error("appendFile(): CSVWrapper is empty.");
-            return false;
+            List<String> entry = FILE.getFile().get(i);
+
+            if (entry != null && !entry.isEmpty())
+            {
+                if (dump)
+                {
+                    LOGGER.debug("dumpFile(): LINE[{}] --> {}", i, entry);
+                }
+
+                if (!wrapper.writeNext(entry))
+                {
+                    LOGGER.error("appendFile(): Writing line [{}] to File [{}] has failed!", i, wrapper.getFile());
+                    return false;
+                }
+            }
         }
-        else if (FILE == null || FILE.isEmpty())
+
+        return true;
+    }
+
+    protected @Nullable CSVWrapper openFileReader(String file, boolean withHeader, boolean ignoreQuotes)
+    {
+        LOGGER.debug("openFileReader(): Opening file [{}] for streaming ...", file);
+        CSVWrapper wrapper = new CSVWrapper(file);
+
+        if (wrapper.openReader(withHeader, ignoreQuotes))
         {
-            LOGGER.error("appendFile(): FILE is empty.");
-            return false;
+            return wrapper;
         }
 
-        LOGGER.debug("appendFile(): Appending file to wrapper...");
+        this.closeQuietly(wrapper);
+        return null;
+    }
 
-        for (int i = 1; i < FILE.getFile().size(); i++)
+    protected @Nullable CSVWrapper openFileWriter(String file, @Nonnull List<String> header, boolean applyQuotes, boolean append)
+    {
+        LOGGER.debug("openFileWriter(): Opening file [{}] for streaming ...", file);
+        CSVWrapper wrapper = new CSVWrapper(file, false).setBufferSize(this.writeBuffer);
+
+        if (wrapper.setHeader(header) != null && wrapper.openWriter(applyQuotes, append))
         {
-            List<String> entry = FILE.getFile().get(i);
+            return wrapper;
+        }
+
+        this.closeQuietly(wrapper);
+        return null;
+    }
+
+    protected @Nullable CSVWrapper reopenFileWriter(String file, @Nonnull List<String> header, boolean applyQuotes)
+    {
+        LOGGER.debug("reopenFileWriter(): Reopening file [{}] for streaming ...", file);
+        CSVWrapper wrapper = new CSVWrapper(file, false).setBufferSize(this.writeBuffer);
 
-            if (!entry.isEmpty())
+        if (wrapper.setHeader(header) != null && wrapper.reopenWriter(applyQuotes))
+        {
+            return wrapper;
+        }
+
+        this.closeQuietly(wrapper);
+        return null;
+    }
+
+    protected void closeQuietly(@Nullable CSVWrapper wrapper)
+    {
+        if (wrapper == null)
+        {
+            return;
+        }
+
+        try
+        {
+            wrapper.close();
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("closeQuietly(): Exception closing file [{}]! Error: {}", wrapper.getFile(), e.getMessage());
+        }
+    }
+
+    // Returns the --bloom false positive rate; 0 if it isn't set, or -1 if it is invalid.
+    protected double getBloomFpp(Context ctx)
+    {
+        if (!ctx.getOpt().hasBloom())
+        {
+            return 0;
+        }
+
+        try
+        {
+            double fpp = Double.parseDouble(ctx.getSettingValue(Settings.BLOOM));
+
+            if (BloomFilter.isValidFpp(fpp))
             {
-                wrapper.putLine(entry);
+                return fpp;
             }
+
+            LOGGER.error("getBloomFpp(): Bloom filter rate [{}] must be between 0 and 1.", fpp);
+        }
+        catch (NumberFormatException err)
+        {
+            LOGGER.error("getBloomFpp(): Exception reading Bloom filter rate; {}", err.getLocalizedMessage());
         }
 
-        return true;
+        return -1;
+    }
+
+    protected void reportBloomFilter(String name, @Nullable BloomFilter bloom)
+    {
+        if (bloom == null)
+        {
+            return;
+        }
+
+        LOGGER.info("reportBloomFilter(): [{}] Bloom filter; [{}] keys, [{}] bits ([{}] KB), [{}] hashes, rate [{}]; rejected [{}] of [{}] lookups.",
+                name, bloom.getCount(), bloom.getBits(), bloom.getMemoryBytes() / 1024, bloom.getHashes(), bloom.getFpp(), bloom.getRejected(), bloom.getProbes());
     }
 
     protected List<String> squashLines(List<String> line1, List<String> line2)
@@ -315,11 +501,12 @@ public abstract class Operation
         return result;
     }
 
-    protected Pair<Boolean, String> applyRemapEach(@Nonnull CSVRemap remap, String data, List<String> row)
+    protected Pair<Boolean, String> applyRemapEach(@Nonnull CSVRemapCompiled remap, String data, List<String> row)
     {
         List<String> params = remap.getParams();
         String result = null;
         boolean exclude = false;
+        boolean skipSub = false;
 
         if (data == null)
         {
@@ -339,7 +526,7 @@ public abstract class Operation
 
                 try
                 {
-                    int count = Integer.parseInt(params.getFirst());
+                    int count = remap.getInt(0);
 
                     if (params.size() > 1)
                     {
@@ -369,7 +556,7 @@ public abstract class Operation
 
                 try
                 {
-                    int length = Integer.parseInt(params.getFirst());
+                    int length = remap.getInt(0);
 
                     if (data.length() > length)
                     {
@@ -421,7 +608,7 @@ public abstract class Operation
                 // Basically the same as TRUNCATE
                 try
                 {
-                    final int length = Integer.parseInt(params.getFirst());
+                    final int length = remap.getInt(0);
 
                     if (data.length() > length)
                     {
@@ -447,7 +634,7 @@ public abstract class Operation
 
                 try
                 {
-                    final int length = Integer.parseInt(params.getFirst());
+                    final int length = remap.getInt(0);
 
                     if (data.length() > length)
                     {
@@ -515,7 +702,7 @@ public abstract class Operation
 
                 try
                 {
-                    int fieldId = Integer.parseInt(params.getFirst());
+                    int fieldId = remap.getInt(0);
 
                     if (fieldId < 0 || fieldId > row.size())
                     {
@@ -581,7 +768,7 @@ public abstract class Operation
 
                 try
                 {
-                    int param = Integer.parseInt(params.getFirst());
+                    int param = remap.getInt(0);
 
                     if (param > row.size())
                     {
@@ -607,11 +794,11 @@ public abstract class Operation
 
                 StringBuilder builder = new StringBuilder(data);
 
-                for (String param : params)
+                for (int i = 0; i < params.size(); i++)
                 {
                     try
                     {
-                        int obj = Integer.parseInt(param);
+                        int obj = remap.getInt(i);
 
                         if (obj >= 0 && obj < row.size())
                         {
@@ -648,24 +835,7 @@ public abstract class Operation
                     try
                     {
                         Phonenumber.PhoneNumber number = parser.parse(data, "US");
-                        PhoneNumberUtil.PhoneNumberFormat format;
-
-                        if (params != null && !params.isEmpty())
-                        {
-                            switch (params.getFirst().toUpperCase())
-                            {
-                                case "INTERNATIONAL", "INTL" -> format = PhoneNumberUtil.PhoneNumberFormat.INTERNATIONAL;
-                                case "NATIONAL", "NAT" -> format = PhoneNumberUtil.PhoneNumberFormat.NATIONAL;
-                                case "E164", "E.164" -> format = PhoneNumberUtil.PhoneNumberFormat.E164;
-                                default -> format = PhoneNumberUtil.PhoneNumberFormat.RFC3966;
-                            }
-                        }
-                        else
-                        {
-                            format = PhoneNumberUtil.PhoneNumberFormat.RFC3966;
-                        }
-
-                        result = parser.format(number, format);
+                        result = parser.format(number, remap.getPhoneFormat());
                     }
                     catch (NumberParseException err)
                     {
@@ -692,7 +862,7 @@ public abstract class Operation
                 }
                 else if (remap.getSubRemap() != null)
                 {
-                    remap = remap.setSubRemap(null);
+                    skipSub = true;
                     result = data;
                 }
                 else
@@ -712,7 +882,7 @@ public abstract class Operation
 
                 try
                 {
-                    fieldNum = Integer.parseInt(params.getFirst());
+                    fieldNum = remap.getInt(0);
 
                     if (fieldNum < 0 || fieldNum > row.size())
                     {
@@ -732,7 +902,7 @@ public abstract class Operation
                 }
                 else if (remap.getSubRemap() != null)
                 {
-                    remap = remap.setSubRemap(null);
+                    skipSub = true;
                     result = data;
                 }
                 else
@@ -754,7 +924,7 @@ public abstract class Operation
 
                     try
                     {
-                        fieldNum = Integer.parseInt(params.getFirst());
+                        fieldNum = remap.getInt(0);
 
                         if (fieldNum < 0 || fieldNum > row.size())
                         {
@@ -772,7 +942,7 @@ public abstract class Operation
                 }
                 else if (remap.getSubRemap() != null)
                 {
-                    remap = remap.setSubRemap(null);
+                    skipSub = true;
                     result = data;
                 }
                 else
@@ -792,7 +962,7 @@ public abstract class Operation
 
                 try
                 {
-                    fieldNum = Integer.parseInt(params.getFirst());
+                    fieldNum = remap.getInt(0);
 
                     if (fieldNum < 0 || fieldNum > row.size())
                     {
@@ -838,7 +1008,7 @@ public abstract class Operation
 
                 try
                 {
-                    fieldNum1 = Integer.parseInt(params.getFirst());
+                    fieldNum1 = remap.getInt(0);
 
                     if (fieldNum1 < 0 || fieldNum1 > row.size())
                     {
@@ -854,7 +1024,7 @@ public abstract class Operation
 
                 try
                 {
-                    fieldNum2 = Integer.parseInt(params.get(1));
+                    fieldNum2 = remap.getInt(1);
 
                     if (fieldNum2 < 0 || fieldNum2 > row.size())
                     {
@@ -874,7 +1044,7 @@ public abstract class Operation
                 }
                 else if (remap.getSubRemap() != null)
                 {
-                    remap = remap.setSubRemap(null);
+                    skipSub = true;
                     result = data;
                 }
                 else
@@ -894,7 +1064,7 @@ public abstract class Operation
 
                 try
                 {
-                    fieldNum = Integer.parseInt(params.getFirst());
+                    fieldNum = remap.getInt(0);
 
                     if (fieldNum < 0 || fieldNum > row.size())
                     {
@@ -936,7 +1106,7 @@ public abstract class Operation
 
                 try
                 {
-                    fieldNum = Integer.parseInt(params.getFirst());
+                    fieldNum = remap.getInt(0);
 
                     if (fieldNum < 0 || fieldNum > row.size())
                     {
@@ -979,7 +1149,7 @@ public abstract class Operation
 
                 try
                 {
-                    field1 = Integer.parseInt(params.getFirst());
+                    field1 = remap.getInt(0);
 
                     if (field1 < 0 || field1 > row.size())
                     {
@@ -995,7 +1165,7 @@ public abstract class Operation
 
                 try
                 {
-                    field2 = Integer.parseInt(params.get(1));
+                    field2 = remap.getInt(1);
 
                     if (field2 < 0 || field2 > row.size())
                     {
@@ -1046,7 +1216,10 @@ public abstract class Operation
 
                 for (int i = 0; i < params.size(); i++)
                 {
-                    LOGGER.debug("applyRemapEach(): IF_RANGE[{}]; min: [{}], max: [{}], match: [{}], else: [{}]", i, minRange, maxRange, matchValue, elseValue);
+                    if (LOGGER.isDebug())
+                    {
+                        LOGGER.debug("applyRemapEach(): IF_RANGE[{}]; min: [{}], max: [{}], match: [{}], else: [{}]", i, minRange, maxRange, matchValue, elseValue);
+                    }
 
                     if (swPos > 2)
                     {
@@ -1060,14 +1233,17 @@ public abstract class Operation
                                 continue;
                             }
 
-                            LOGGER.debug("applyRemapEach(): IF_RANGE; TEST --> min: [{}], max: [{}], data: [{}], match: [{}], else: [{}]", minRange, maxRange, dataTest, matchValue, elseValue);
+                            if (LOGGER.isDebug())
+                            {
+                                LOGGER.debug("applyRemapEach(): IF_RANGE; TEST --> min: [{}], max: [{}], data: [{}], match: [{}], else: [{}]", minRange, maxRange, dataTest, matchValue, elseValue);
+                            }
 
                             // Perform test
                             if (dataTest >= minRange && dataTest <= maxRange)
                             {
                                 return Pair.of(false, matchValue);
                             }
-                            else if (!elseValue.matches(data))
+                            else if (!elseValue.equals(data))
                             {
                                 return Pair.of(false, elseValue);
                             }
@@ -1084,8 +1260,8 @@ public abstract class Operation
                     {
                         switch (swPos)
                         {
-                            case 0 -> minRange = Integer.parseInt(params.get(i));
-                            case 1 -> maxRange = Integer.parseInt(params.get(i));
+                            case 0 -> minRange = remap.getInt(i);
+                            case 1 -> maxRange = remap.getInt(i);
                             case 2 -> matchValue = params.get(i);
                         }
 
@@ -1098,7 +1274,10 @@ public abstract class Operation
                     }
                 }
 
-                LOGGER.debug("applyRemapEach(): IF_RANGE; DEFAULT --> min: [{}], max: [{}], data: [{}], match: [{}], else: [{}]", minRange, maxRange, dataTest, matchValue, elseValue);
+                if (LOGGER.isDebug())
+                {
+                    LOGGER.debug("applyRemapEach(): IF_RANGE; DEFAULT --> min: [{}], max: [{}], data: [{}], match: [{}], else: [{}]", minRange, maxRange, dataTest, matchValue, elseValue);
+                }
 
                 if (!matchValue.isEmpty() && minRange > Integer.MIN_VALUE && maxRange < Integer.MAX_VALUE)
                 {
@@ -1110,7 +1289,7 @@ public abstract class Operation
                 }
 
                 // If we got here, return elseValue.
-                if (!elseValue.matches(data))
+                if (!elseValue.equals(data))
                 {
                     return Pair.of(false, elseValue);
                 }
@@ -1127,15 +1306,15 @@ public abstract class Operation
                     return Pair.of(false, data);
                 }
 
-                SimpleDateFormat fmtData = new SimpleDateFormat(params.getFirst());
-                SimpleDateFormat fmtMin = new SimpleDateFormat(params.get(2));
-                SimpleDateFormat fmtMax = new SimpleDateFormat(params.get(4));
+                SimpleDateFormat fmtData = remap.getDateFormat(0);
+                SimpleDateFormat fmtMin = remap.getDateFormat(2);
+                SimpleDateFormat fmtMax = remap.getDateFormat(4);
                 int minField;
                 int maxField;
 
                 try
                 {
-                    minField = Integer.parseInt(params.get(1));
+                    minField = remap.getInt(1);
                 }
                 catch (NumberFormatException err)
                 {
@@ -1145,7 +1324,7 @@ public abstract class Operation
 
                 try
                 {
-                    maxField = Integer.parseInt(params.get(3));
+                    maxField = remap.getInt(3);
                 }
                 catch (NumberFormatException err)
                 {
@@ -1233,7 +1412,7 @@ public abstract class Operation
                 {
                     if (remap.getSubRemap() != null)
                     {
-                        remap = remap.setSubRemap(null);
+                        skipSub = true;
                     }
 
                     result = "";
@@ -1262,7 +1441,7 @@ public abstract class Operation
 
                 try
                 {
-                    fieldNum = Integer.parseInt(params.getFirst());
+                    fieldNum = remap.getInt(0);
 
                     if (fieldNum < 0 || fieldNum > row.size())
                     {
@@ -1280,7 +1459,7 @@ public abstract class Operation
                 {
                     if (remap.getSubRemap() != null)
                     {
-                        remap = remap.setSubRemap(null);
+                        skipSub = true;
                     }
 
                     result = "";
@@ -1302,7 +1481,7 @@ public abstract class Operation
                 {
                     if (remap.getSubRemap() != null)
                     {
-                        remap = remap.setSubRemap(null);
+                        skipSub = true;
                     }
 
                     result = "";
@@ -1313,7 +1492,7 @@ public abstract class Operation
 
                     try
                     {
-                        fieldNum = Integer.parseInt(params.getFirst());
+                        fieldNum = remap.getInt(0);
 
                         if (fieldNum < 0 || fieldNum > row.size())
                         {
@@ -1356,7 +1535,7 @@ public abstract class Operation
                 {
                     if (remap.getSubRemap() != null)
                     {
-                        remap = remap.setSubRemap(null);
+                        skipSub = true;
                     }
 
                     result = "";
@@ -1367,7 +1546,7 @@ public abstract class Operation
 
                     try
                     {
-                        fieldNum = Integer.parseInt(params.getFirst());
+                        fieldNum = remap.getInt(0);
 
                         if (fieldNum < 0 || fieldNum > row.size())
                         {
@@ -1396,7 +1575,7 @@ public abstract class Operation
                 {
                     if (remap.getSubRemap() != null)
                     {
-                        remap = remap.setSubRemap(null);
+                        skipSub = true;
                     }
 
                     result = "";
@@ -1407,7 +1586,7 @@ public abstract class Operation
 
                     try
                     {
-                        fieldNum = Integer.parseInt(params.getFirst());
+                        fieldNum = remap.getInt(0);
 
                         if (fieldNum < 0 || fieldNum > row.size())
                         {
@@ -1450,7 +1629,7 @@ public abstract class Operation
                 {
                     if (remap.getSubRemap() != null)
                     {
-                        remap = remap.setSubRemap(null);
+                        skipSub = true;
                     }
 
                     result = "";
@@ -1572,8 +1751,7 @@ public abstract class Operation
                     return Pair.of(false, data);
                 }
 
-                Pattern pattern = Pattern.compile(params.getFirst());
-                Matcher matcher = pattern.matcher(data);
+                Matcher matcher = remap.getPattern().matcher(data);
 
                 if (!matcher.matches())
                 {
@@ -1588,8 +1766,7 @@ public abstract class Operation
                     return Pair.of(false, data);
                 }
 
-                Pattern pattern = Pattern.compile(params.getFirst());
-                Matcher matcher = pattern.matcher(data);
+                Matcher matcher = remap.getPattern().matcher(data);
 
                 if (matcher.matches())
                 {
@@ -1618,8 +1795,8 @@ public abstract class Operation
 
                 try
                 {
-                    SimpleDateFormat inFmt = new SimpleDateFormat(params.getFirst());
-                    SimpleDateFormat outFmt = new SimpleDateFormat(params.get(1));
+                    SimpleDateFormat inFmt = remap.getDateFormat(0);
+                    SimpleDateFormat outFmt = remap.getDateFormat(1);
                     Date date = inFmt.parse(data);
                     result = outFmt.format(date);
                 }
@@ -1645,7 +1822,7 @@ public abstract class Operation
                 try
                 {
                     Date now = new Date(System.currentTimeMillis());
-                    SimpleDateFormat outFmt = new SimpleDateFormat(params.getFirst());
+                    SimpleDateFormat outFmt = remap.getDateFormat(0);
                     result = outFmt.format(now);
                 }
                 catch (Exception err)
@@ -1669,7 +1846,7 @@ public abstract class Operation
 
                 try
                 {
-                    SimpleDateFormat fmt = new SimpleDateFormat(params.getFirst());
+                    SimpleDateFormat fmt = remap.getDateFormat(0);
                     Period duration = Period.between(fmt.parse(data)
                                     .toInstant()
                                     .atZone(ZoneId.systemDefault())
@@ -1700,7 +1877,7 @@ public abstract class Operation
 
                 try
                 {
-                    SimpleDateFormat fmt = new SimpleDateFormat(params.getFirst());
+                    SimpleDateFormat fmt = remap.getDateFormat(0);
                     Period duration = Period.between(fmt.parse(data)
                                     .toInstant()
                                     .atZone(ZoneId.systemDefault())
@@ -1731,7 +1908,7 @@ public abstract class Operation
 
                 try
                 {
-                    SimpleDateFormat fmt = new SimpleDateFormat(params.getFirst());
+                    SimpleDateFormat fmt = remap.getDateFormat(0);
                     Period duration = Period.between(fmt.parse(data)
                                     .toInstant()
                                     .atZone(ZoneId.systemDefault())
@@ -1768,7 +1945,7 @@ public abstract class Operation
                     {
                         try
                         {
-                            multiplier = Integer.parseInt(params.get(1));
+                            multiplier = remap.getInt(1);
                         }
                         catch (NumberFormatException err)
                         {
@@ -1777,7 +1954,7 @@ public abstract class Operation
                     }
 
                     final long epoch = Long.parseLong(data) * multiplier;
-                    DateTimeFormatter fmt = DateTimeFormatter.ofPattern(params.getFirst(), Locale.ROOT);
+                    DateTimeFormatter fmt = remap.getDateTimeFormat();
                     ZonedDateTime date = ZonedDateTime.ofInstant(Instant.ofEpochMilli(epoch), ZoneId.of("UTC"));
 
                     result = fmt.format(date);
@@ -1789,7 +1966,7 @@ public abstract class Operation
             }
         }
 
-        if (remap.getSubRemap() != null)
+        if (remap.getSubRemap() != null && !skipSub)
         {
             Pair<Boolean, String> subPair = this.applySubRemapNested(remap, result, row);
 
@@ -1809,7 +1986,7 @@ public abstract class Operation
         return Pair.of(exclude, result != null ? result : data);
     }
 
-    private Pair<Boolean, String> applySubRemapNested(@Nonnull CSVRemap remap, String data, List<String> row)
+    private Pair<Boolean, String> applySubRemapNested(@Nonnull CSVRemapCompiled remap, String data, List<String> row)
     {
         if (remap.getSubRemap() != null)
         {
@@ -1827,7 +2004,11 @@ public abstract class Operation
                 exclude = true;
             }
 
-            LOGGER.debug("applySubRemapNested(): Result: [{}]", resultEach.getRight());
+            if (LOGGER.isDebug())
+            {
+                LOGGER.debug("applySubRemapNested(): Result: [{}]", resultEach.getRight());
+            }
+
             return Pair.of(exclude, resultEach.getRight());
         }
 
@@ -1851,13 +2032,21 @@ public abstract class Operation
 
                 if (target.equalsIgnoreCase(condition))
                 {
-                    LOGGER.debug("applyIfStaticEach(): RETURN-MATCH [{}]", value);
+                    if (LOGGER.isDebug())
+                    {
+                        LOGGER.debug("applyIfStaticEach(): RETURN-MATCH [{}]", value);
+                    }
+
                     return value;
                 }
             }
         }
 
-        LOGGER.debug("applyIfStaticEach(): RETURN-ORIG [{}]", orig);
+        if (LOGGER.isDebug())
+        {
+            LOGGER.debug("applyIfStaticEach(): RETURN-ORIG [{}]", orig);
+        }
+
         return orig;
     }
 
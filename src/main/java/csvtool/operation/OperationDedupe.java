@@ -2,13 +2,19 @@ package csvtool.operation;
 
 import csvtool.data.Context;
 import csvtool.data.FileCache;
+import csvtool.data.KeyIndex;
 import csvtool.enums.Operations;
 import csvtool.enums.Settings;
+import csvtool.header.CSVHeader;
+import csvtool.utils.CSVWrapper;
+import csvtool.utils.ExternalSorter;
 import csvtool.utils.LogWrapper;
 import csvtool.utils.StringUtils;
 
-import java.util.HashMap;
+import javax.annotation.Nullable;
+import java.util.Comparator;
 import java.util.List;
+import java.util.stream.IntStream;
 
 public class OperationDedupe extends Operation implements AutoCloseable
 {
@@ -23,11 +29,7 @@ public class OperationDedupe extends Operation implements AutoCloseable
     private int keyId4;
     private int keyId5;
 
-    private final HashMap<String, Integer> key1Map;
-    private final HashMap<String, Integer> key2Map;
-    private final HashMap<String, Integer> key3Map;
-    private final HashMap<String, Integer> key4Map;
-    private final HashMap<String, Integer> key5Map;
+    private @Nullable KeyIndex KEYS;
 
     public OperationDedupe(Operations op)
     {
@@ -40,11 +42,7 @@ public class OperationDedupe extends Operation implements AutoCloseable
         this.keyId3 = -1;
         this.keyId4 = -1;
         this.keyId5 = -1;
-        this.key1Map = new HashMap<>();
-        this.key2Map = new HashMap<>();
-        this.key3Map = new HashMap<>();
-        this.key4Map = new HashMap<>();
-        this.key5Map = new HashMap<>();
+        this.KEYS = null;
     }
 
     @Override
@@ -68,6 +66,16 @@ public class OperationDedupe extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().isColumnar())
+        {
+            super.toggleColumnar(true);
+        }
+
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         if (!ctx.getOpt().hasOutput())
         {
             LOGGER.error("runOperation(): Dedupe FAILED, an output is required.");
@@ -83,6 +91,11 @@ public class OperationDedupe extends Operation implements AutoCloseable
 
         LOGGER.debug("runOperation(): --> DEDUPE [{}] using key [{}].", ctx.getInputFile(), ctx.getSettingValue(Settings.OUTPUT), ctx.getSettingValue(Settings.KEY));
 
+        if (ctx.getOpt().hasSpill())
+        {
+            return this.runSpill(ctx);
+        }
+
         if (this.readFiles(ctx.getInputFile(), false, ctx.getOpt().isDebug()))
         {
             LOGGER.debug("runOperation(): --> File [{}] read successfully.", ctx.getInputFile());
@@ -103,63 +116,13 @@ public class OperationDedupe extends Operation implements AutoCloseable
 
             this.OUT.setHeader(this.FILE.getHeader());
             this.OUT.setFileName(ctx.getOpt().getOutput());
-            this.keyId1 = this.FILE.getHeader().getId(ctx.getSettingValue(Settings.KEY));
 
-            if (this.keyId1 < 0)
+            if (!this.resolveKeys(ctx, this.FILE.getHeader()))
             {
-                LOGGER.error("runOperation(): Dedupe FAILED, key was NOT found in the Headers.");
                 this.clear();
                 return false;
             }
 
-            if (ctx.getOpt().hasKey2())
-            {
-                this.keyId2 = this.FILE.getHeader().getId(ctx.getSettingValue(Settings.KEY2));
-
-                if (this.keyId2 < 0)
-                {
-                    LOGGER.error("runOperation(): Dedupe FAILED, key2 was NOT found in the Headers.");
-                    this.clear();
-                    return false;
-                }
-            }
-
-            if (ctx.getOpt().hasKey3())
-            {
-                this.keyId3 = this.FILE.getHeader().getId(ctx.getSettingValue(Settings.KEY3));
-
-                if (this.keyId3 < 0)
-                {
-                    LOGGER.error("runOperation(): Dedupe FAILED, key3 was NOT found in the Headers.");
-                    this.clear();
-                    return false;
-                }
-            }
-
-            if (ctx.getOpt().hasKey4())
-            {
-                this.keyId4 = this.FILE.getHeader().getId(ctx.getSettingValue(Settings.KEY4));
-
-                if (this.keyId4 < 0)
-                {
-                    LOGGER.error("runOperation(): Dedupe FAILED, key4 was NOT found in the Headers.");
-                    this.clear();
-                    return false;
-                }
-            }
-
-            if (ctx.getOpt().hasKey5())
-            {
-                this.keyId5 = this.FILE.getHeader().getId(ctx.getSettingValue(Settings.KEY5));
-
-                if (this.keyId5 < 0)
-                {
-                    LOGGER.error("runOperation(): Dedupe FAILED, key5 was NOT found in the Headers.");
-                    this.clear();
-                    return false;
-                }
-            }
-
             if (!this.deDupeFiles(true, ctx.getOpt().isSquashDupe()))
             {
                 LOGGER.error("runOperation(): Dedupe FAILED, DeDuplication attempt has failed.");
@@ -209,6 +172,7 @@ public class OperationDedupe extends Operation implements AutoCloseable
         System.out.print("It accepts one input file, and an output (--output).\n");
         System.out.print("You can use multiple key fields (--key, --key2, --key3, --key4, or --key5) which can be set.\n");
         System.out.print("Optionally, you can enable (--squash-dupe) which combines de-duplicated data values.\n");
+        System.out.print("For files larger than memory, (--spill) sets how many rows are sorted into each temporary file, which are then merged.\n");
         System.out.print("De-Dupe compares the files, and removes duplicate rows based on the key field(s) given.\n");
         System.out.print("\n");
     }
@@ -228,6 +192,276 @@ public class OperationDedupe extends Operation implements AutoCloseable
         return true;
     }
 
+    private boolean resolveKeys(Context ctx, CSVHeader header)
+    {
+        this.keyId1 = header.getId(ctx.getSettingValue(Settings.KEY));
+
+        if (this.keyId1 < 0)
+        {
+            LOGGER.error("resolveKeys(): Dedupe FAILED, key was NOT found in the Headers.");
+            return false;
+        }
+
+        if (ctx.getOpt().hasKey2())
+        {
+            this.keyId2 = header.getId(ctx.getSettingValue(Settings.KEY2));
+
+            if (this.keyId2 < 0)
+            {
+                LOGGER.error("resolveKeys(): Dedupe FAILED, key2 was NOT found in the Headers.");
+                return false;
+            }
+        }
+
+        if (ctx.getOpt().hasKey3())
+        {
+            this.keyId3 = header.getId(ctx.getSettingValue(Settings.KEY3));
+
+            if (this.keyId3 < 0)
+            {
+                LOGGER.error("resolveKeys(): Dedupe FAILED, key3 was NOT found in the Headers.");
+                return false;
+            }
+        }
+
+        if (ctx.getOpt().hasKey4())
+        {
+            this.keyId4 = header.getId(ctx.getSettingValue(Settings.KEY4));
+
+            if (this.keyId4 < 0)
+            {
+                LOGGER.error("resolveKeys(): Dedupe FAILED, key4 was NOT found in the Headers.");
+                return false;
+            }
+        }
+
+        if (ctx.getOpt().hasKey5())
+        {
+            this.keyId5 = header.getId(ctx.getSettingValue(Settings.KEY5));
+
+            if (this.keyId5 < 0)
+            {
+                LOGGER.error("resolveKeys(): Dedupe FAILED, key5 was NOT found in the Headers.");
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Spill mode; the input is streamed, and never held in memory as a whole.
+    private boolean runSpill(Context ctx)
+    {
+        int runSize;
+
+        try
+        {
+            runSize = Integer.parseInt(ctx.getSettingValue(Settings.SPILL));
+        }
+        catch (NumberFormatException err)
+        {
+            LOGGER.error("runSpill(): Dedupe FAILED, Exception reading Spill value; {}", err.getLocalizedMessage());
+            return false;
+        }
+
+        if (runSize < 1)
+        {
+            LOGGER.error("runSpill(): Dedupe FAILED, Spill value must be at least 1.");
+            return false;
+        }
+
+        if (this.deDupeSpill(ctx.getInputFile(), ctx, runSize))
+        {
+            LOGGER.debug("runSpill(): --> File [{}] written successfully.", ctx.getSettingValue(Settings.OUTPUT));
+            this.clear();
+            return true;
+        }
+
+        LOGGER.error("runSpill(): Dedupe FAILED, DeDuplication attempt has failed.");
+        this.clear();
+        return false;
+    }
+
+    // External merge sort; rows are sorted by (keys, line) into runs on disk, and merged so that each key's rows
+    // arrive together, with the first occurrence leading.  The kept rows and the dupes are then each sorted
+    // back by their line number, so that both outputs keep the input order, the same as deDupeFiles().
+    private boolean deDupeSpill(String input, Context ctx, int runSize)
+    {
+        final String output = ctx.getOpt().getOutput();
+        final boolean squash = ctx.getOpt().isSquashDupe();
+        final boolean applyQuotes = ctx.getOpt().isApplyQuotes();
+        final Comparator<ExternalSorter.Row> byLine = Comparator.comparingLong(ExternalSorter.Row::getLine);
+
+        try (CSVWrapper reader = this.openFileReader(input, true, false))
+        {
+            if (reader == null || reader.getHeader() == null)
+            {
+                LOGGER.error("deDupeSpill(): Input File [{}] could not be read!", input);
+                return false;
+            }
+
+            if (!this.resolveKeys(ctx, reader.getHeader()))
+            {
+                return false;
+            }
+
+            final List<String> header = reader.getHeader().stream().toList();
+            final int[] keyIds = this.getKeyIds();
+
+            try (ExternalSorter byKey = new ExternalSorter("dedupe-keys", this.keyComparator(keyIds).thenComparing(byLine), runSize);
+                 ExternalSorter kept = new ExternalSorter("dedupe-out", byLine, runSize);
+                 ExternalSorter dupes = new ExternalSorter("dedupe-dupes", byLine, runSize))
+            {
+                List<String> entry;
+                long line = 1;
+
+                while ((entry = reader.readNext()) != null)
+                {
+                    byKey.add(line++, entry);
+                }
+
+                LOGGER.debug("deDupeSpill(): [{}] rows sorted by key into [{}] runs.", byKey.getSize(), byKey.getRuns());
+
+                ExternalSorter.Row first = null;
+                ExternalSorter.Row row;
+
+                while ((row = byKey.next()) != null)
+                {
+                    if (first != null && this.sameKeys(keyIds, first.getData(), row.getData()))
+                    {
+                        if (squash)
+                        {
+                            List<String> newLine = this.squashLines(first.getData(), row.getData());
+
+                            if (!newLine.equals(first.getData()))
+                            {
+                                if (LOGGER.isDebug())
+                                {
+                                    LOGGER.debug("FILE [{}]: SQUASHED LINE: [{}//{}] --> [{}]", first.getLine(), first.getData(), row.getData(), newLine);
+                                }
+
+                                first.setData(newLine);
+                            }
+                        }
+
+                        if (LOGGER.isDebug())
+                        {
+                            LOGGER.debug("FILE [{}]: LINE: [{}] --> DUPE FOUND", row.getLine(), row.getData());
+                        }
+
+                        dupes.add(row.getLine(), row.getData());
+                        continue;
+                    }
+
+                    if (first != null)
+                    {
+                        kept.add(first.getLine(), first.getData());
+                    }
+
+                    first = row;
+                }
+
+                if (first != null)
+                {
+                    kept.add(first.getLine(), first.getData());
+                }
+
+                LOGGER.debug("deDupeSpill(): {} dupes found (IN: {}, OUT: {})", dupes.getSize(), byKey.getSize(), kept.getSize());
+
+                // Write DUPES file, if anything was found
+                if (dupes.getSize() > 0)
+                {
+                    String dupesFile = StringUtils.addFileSuffix(output, "-dupes");
+
+                    if (this.writeSorted(dupes, dupesFile, header, applyQuotes))
+                    {
+                        LOGGER.debug("deDupeSpill(): --> Dupes File [{}] written successfully.", dupesFile);
+                    }
+                    else
+                    {
+                        LOGGER.error("deDupeSpill(): Write dupes file FAILED.");
+                    }
+                }
+
+                return this.writeSorted(kept, output, header, applyQuotes);
+            }
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("deDupeSpill(): Exception de-duplicating file! Error: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean writeSorted(ExternalSorter sorter, String file, List<String> header, boolean applyQuotes)
+    {
+        try (CSVWrapper writer = this.openFileWriter(file, header, applyQuotes, false))
+        {
+            if (writer == null)
+            {
+                LOGGER.error("writeSorted(): File output [{}] has failed!", file);
+                return false;
+            }
+
+            ExternalSorter.Row row;
+
+            while ((row = sorter.next()) != null)
+            {
+                if (!writer.writeNext(row.getData()))
+                {
+                    LOGGER.error("writeSorted(): Writing File [{}] has failed!", file);
+                    return false;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("writeSorted(): Exception writing file [{}]! Error: {}", file, e.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    private int[] getKeyIds()
+    {
+        return IntStream.of(this.keyId1, this.keyId2, this.keyId3, this.keyId4, this.keyId5)
+                .filter(id -> id > -1)
+                .toArray();
+    }
+
+    // Orders by the composite key only; callers break ties by line, so the first occurrence of each key sorts first.
+    private Comparator<ExternalSorter.Row> keyComparator(int[] keyIds)
+    {
+        return (a, b) ->
+        {
+            for (int id : keyIds)
+            {
+                int result = a.getData().get(id).compareTo(b.getData().get(id));
+
+                if (result != 0)
+                {
+                    return result;
+                }
+            }
+
+            return 0;
+        };
+    }
+
+    private boolean sameKeys(int[] keyIds, List<String> line1, List<String> line2)
+    {
+        for (int id : keyIds)
+        {
+            if (!line1.get(id).equals(line2.get(id)))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
     private boolean deDupeFiles(boolean skipHeader, boolean squash)
     {
         if (this.FILE.isEmpty() || this.keyId1 < 0)
@@ -243,35 +477,41 @@ public class OperationDedupe extends Operation implements AutoCloseable
         this.OUT.setHeader(this.FILE.getHeader());
         this.FILE_DUPES.setHeader(this.FILE.getHeader());
 
+        // Indexes the OUT line of each key's first occurrence, which is also the line that dupes are squashed into
+        this.KEYS = new KeyIndex(this.getKeyIds(), line -> this.OUT.getFile().get(line), this.FILE.getFile().size());
+
         for (int i = 0; i < this.FILE.getFile().size(); i++)
         {
             List<String> entry = this.FILE.getFile().get(i);
 
             if (!entry.isEmpty() && (!skipHeader || i > 0))
             {
-                if (this.checkKeyMaps(entry, i))
+                int existing = this.KEYS.putIfAbsent(entry, this.OUT.getFile().size());
+
+                if (existing > -1)
                 {
                     // Attempt to squash values
                     if (squash)
                     {
-                        String key1 = entry.get(this.keyId1);
-                        int existing = this.key1Map.get(key1);
                         List<String> currentLine = this.OUT.getFile().get(existing);
+                        List<String> newLine = this.squashLines(currentLine, entry);
 
-                        if (currentLine.get(this.keyId1).equals(key1))
+                        if (!newLine.equals(currentLine))
                         {
-                            // Squash
-                            List<String> newLine = this.squashLines(currentLine, entry);
-
-                            if (!newLine.equals(currentLine))
+                            if (LOGGER.isDebug())
                             {
                                 LOGGER.debug("FILE [{}]: SQUASHED LINE: [{}//{}] --> [{}]", existing, currentLine, newLine);
-                                this.OUT.getFile().put(existing, newLine);
                             }
+
+                            this.OUT.getFile().put(existing, newLine);
                         }
                     }
 
-                    LOGGER.debug("FILE [{}]: LINE: [{}] --> DUPE FOUND", i, entry.toString());
+                    if (LOGGER.isDebug())
+                    {
+                        LOGGER.debug("FILE [{}]: LINE: [{}] --> DUPE FOUND", i, entry);
+                    }
+
                     this.FILE_DUPES.addLine(entry);
                     dupes++;
                 }
@@ -325,130 +565,6 @@ public class OperationDedupe extends Operation implements AutoCloseable
         return true;
     }
 
-    // Returns true if it's a duplicate match
-    private boolean checkKeyMaps(List<String> data, int line)
-    {
-        if (this.keyId5 > -1)
-        {
-            final int key5match = this.calcKey5Map(data.get(this.keyId1), data.get(this.keyId2), data.get(this.keyId3), data.get(this.keyId4), data.get(this.keyId5), line);
-            LOGGER.debug("checkKeyMaps(): LINE[{}]: key5match: [{}]", line, key5match);
-            return key5match > -1;
-        }
-
-        if (this.keyId4 > -1)
-        {
-            final int key4match = this.calcKey4Map(data.get(this.keyId1), data.get(this.keyId2), data.get(this.keyId3), data.get(this.keyId4), line);
-            LOGGER.debug("checkKeyMaps(): LINE[{}]: key4match: [{}]", line, key4match);
-            return key4match > -1;
-        }
-
-        if (this.keyId3 > -1)
-        {
-            final int key3match = this.calcKey3Map(data.get(this.keyId1), data.get(this.keyId2), data.get(this.keyId3), line);
-            LOGGER.debug("checkKeyMaps(): LINE[{}]: key3match: [{}]", line, key3match);
-            return key3match > -1;
-        }
-
-        if (this.keyId2 > -1)
-        {
-            final int key2match = this.calcKey2Map(data.get(this.keyId1), data.get(this.keyId2), line);
-            LOGGER.debug("checkKeyMaps(): LINE[{}]: key2match: [{}]", line, key2match);
-            return key2match > -1;
-        }
-
-        final int key1match = this.calcKey1Map(data.get(this.keyId1), line);
-        LOGGER.debug("checkKeyMaps(): LINE[{}]: key1match: [{}]", line, key1match);
-        return key1match > -1;
-    }
-
-    // -1 means it was just added
-    private int calcKey1Map(String key, int line)
-    {
-        if (this.key1Map.containsKey(key))
-        {
-            return this.key1Map.get(key);
-        }
-
-        this.key1Map.put(key, line);
-        return -1;
-    }
-
-    // -1 means it was just added
-    private int calcKey2Map(String key1, String key2, int line)
-    {
-        int key1line = this.calcKey1Map(key1, line);
-
-        if (key1line < 0)
-        {
-            this.key2Map.remove(key2);
-        }
-
-        if (this.key2Map.containsKey(key2))
-        {
-            return this.key2Map.get(key2);
-        }
-
-        this.key2Map.put(key2, line);
-        return -1;
-    }
-
-    // -1 means it was just added
-    private int calcKey3Map(String key1, String key2, String key3, int line)
-    {
-        int key2line = this.calcKey2Map(key1, key2, line);
-
-        if (key2line < 0)
-        {
-            this.key3Map.remove(key3);
-        }
-
-        if (this.key3Map.containsKey(key3))
-        {
-            return this.key3Map.get(key3);
-        }
-
-        this.key3Map.put(key3, line);
-        return -1;
-    }
-
-    // -1 means it was just added
-    private int calcKey4Map(String key1, String key2, String key3, String key4, int line)
-    {
-        int key3line = this.calcKey3Map(key1, key2, key3, line);
-
-        if (key3line < 0)
-        {
-            this.key4Map.remove(key4);
-        }
-
-        if (this.key4Map.containsKey(key4))
-        {
-            return this.key4Map.get(key4);
-        }
-
-        this.key4Map.put(key4, line);
-        return -1;
-    }
-
-    // -1 means it was just added
-    private int calcKey5Map(String key1, String key2, String key3, String key4, String key5, int line)
-    {
-        int key4line = this.calcKey4Map(key1, key2, key3, key4, line);
-
-        if (key4line < 0)
-        {
-            this.key5Map.remove(key5);
-        }
-
-        if (this.key5Map.containsKey(key5))
-        {
-            return this.key5Map.get(key5);
-        }
-
-        this.key5Map.put(key5, line);
-        return -1;
-    }
-
     @Override
     public void clear()
     {
@@ -467,11 +583,11 @@ public class OperationDedupe extends Operation implements AutoCloseable
             this.FILE_DUPES.clear();
         }
 
-        this.key1Map.clear();
-        this.key2Map.clear();
-        this.key3Map.clear();
-        this.key4Map.clear();
-        this.key5Map.clear();
+        if (this.KEYS != null)
+        {
+            this.KEYS.clear();
+            this.KEYS = null;
+        }
     }
 
     @Override
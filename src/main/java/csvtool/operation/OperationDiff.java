@@ -1,5 +1,6 @@
 package csvtool.operation;
 
+import csvtool.data.BloomFilter;
 import csvtool.data.Context;
 import csvtool.data.FileCache;
 import csvtool.enums.Operations;
@@ -7,7 +8,9 @@ import csvtool.enums.Settings;
 import csvtool.utils.LogWrapper;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 
 public class OperationDiff extends Operation implements AutoCloseable
@@ -20,6 +23,8 @@ public class OperationDiff extends Operation implements AutoCloseable
     private String side;
     private int keyId;
     private int key2Id;
+    private boolean regex;
+    private double bloomFpp;
 
     public OperationDiff(Operations op)
     {
@@ -30,6 +35,8 @@ public class OperationDiff extends Operation implements AutoCloseable
         this.side = "";
         this.keyId = -1;
         this.key2Id = -1;
+        this.regex = false;
+        this.bloomFpp = 0;
     }
 
     @Override
@@ -53,12 +60,30 @@ public class OperationDiff extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().isColumnar())
+        {
+            super.toggleColumnar(true);
+        }
+
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         if (!ctx.getOpt().hasInput2() || !ctx.getOpt().hasOutput())
         {
             LOGGER.error("runOperation(): Diff FAILED, Second input file and an output is required.");
             return false;
         }
 
+        this.bloomFpp = this.getBloomFpp(ctx);
+
+        if (this.bloomFpp < 0)
+        {
+            LOGGER.error("runOperation(): Diff FAILED, Bloom filter rate is invalid.");
+            return false;
+        }
+
         LOGGER.debug("runOperation(): --> DIFF [{}] of [{}] into [{}].", ctx.getInputFile(), ctx.getSettingValue(Settings.INPUT2), ctx.getSettingValue(Settings.OUTPUT));
 
         if (readFiles(ctx.getInputFile(), ctx.getSettingValue(Settings.INPUT2), false, ctx.getOpt().isDebug()))
@@ -81,6 +106,9 @@ public class OperationDiff extends Operation implements AutoCloseable
                 this.key2Id = this.FILE_1.getHeader().getId(ctx.getSettingValue(Settings.KEY2));
             }
 
+            // Use the legacy Regex key matching
+            this.regex = ctx.getOpt().isDiffRegex();
+
             // Get Side Column Param
             if (ctx.getOpt().hasSide())
             {
@@ -142,6 +170,8 @@ public class OperationDiff extends Operation implements AutoCloseable
         System.out.print("It accepts two input files (--input), and an output (--output); and also requires a key field (--key) to be set.\n");
         System.out.print("You can also pass the second key field (--key2) and the side key field (--side) as options.\n");
         System.out.print("The key field #2 adds a secondary comparison point for more-specific comparisons,\nor an optional side field for adding a column displaying which file the difference came from.\n");
+        System.out.print("Keys are matched exactly; use the (--diff-regex) option to match them using the legacy Regular Expression comparison.\n");
+        System.out.print("Optionally, (--bloom) sets a Bloom filter over the keys, with the given false positive rate, which skips most lookups of unmatched keys.\n");
         System.out.print("\n");
     }
 
@@ -181,6 +211,89 @@ public class OperationDiff extends Operation implements AutoCloseable
         }
 
         LOGGER.debug("runDiff(): Attempting to compare files ...");
+
+        if (this.regex)
+        {
+            return this.runDiffRegex(skipHeaders, side, file1, file2);
+        }
+
+        HashSet<List<String>> keys = this.buildKeySet(skipHeaders, file2);
+        BloomFilter bloom = this.buildBloomFilter(keys);
+
+        // Run DIFF from FILE_1 -> FILE_2
+        for (int i = 0; i < file1.getFile().size(); i++)
+        {
+            List<String> entry = file1.getFile().get(i);
+
+            if (!entry.isEmpty() && (!skipHeaders || i > 0))
+            {
+                List<String> key = this.getKeyPair(entry);
+                boolean matched = (bloom == null || bloom.mightContain(key)) && keys.contains(key);
+
+                if (LOGGER.isDebug())
+                {
+                    LOGGER.debug("FILE1[{}]: key [{}] (key2 {}) matched [{}]", i, key.get(0), key.get(1).isEmpty() ? "<empty>" : key.get(1), matched);
+                }
+
+                if (!matched)
+                {
+                    this.addDiffLine(side, entry);
+                }
+            }
+        }
+
+        this.reportBloomFilter(side, bloom);
+        return true;
+    }
+
+    private HashSet<List<String>> buildKeySet(boolean skipHeaders, @Nonnull FileCache file)
+    {
+        HashSet<List<String>> keys = new HashSet<>();
+
+        file.getFile().forEach((i, entry) ->
+        {
+            if (!entry.isEmpty() && (!skipHeaders || i > 0))
+            {
+                keys.add(this.getKeyPair(entry));
+            }
+        });
+
+        LOGGER.debug("buildKeySet(): [{}] unique keys", keys.size());
+
+        return keys;
+    }
+
+    private @Nullable BloomFilter buildBloomFilter(HashSet<List<String>> keys)
+    {
+        if (this.bloomFpp <= 0)
+        {
+            return null;
+        }
+
+        BloomFilter bloom = new BloomFilter(keys.size(), this.bloomFpp);
+
+        keys.forEach(bloom::put);
+        return bloom;
+    }
+
+    private List<String> getKeyPair(List<String> entry)
+    {
+        return List.of(entry.get(this.keyId), this.key2Id > -1 ? entry.get(this.key2Id) : "");
+    }
+
+    private void addDiffLine(String side, List<String> entry)
+    {
+        if (!this.side.isEmpty())
+        {
+            entry.add(side);
+        }
+
+        this.DIFF.addLine(entry);
+    }
+
+    // Legacy matching, the keys from file1 are used as a Regex against file2
+    private boolean runDiffRegex(boolean skipHeaders, String side, @Nonnull FileCache file1, @Nonnull FileCache file2)
+    {
         List<List<String>> temp = new ArrayList<>();
 
         file2.getFile().forEach((i, list) -> temp.add(list));
@@ -196,7 +309,10 @@ public class OperationDiff extends Operation implements AutoCloseable
                 String key2 = this.key2Id > -1 ? entry.get(this.key2Id) : "";
                 boolean matched = false;
 
-                LOGGER.debug("FILE1[{}]: key [{}] (key2 {}) checking FILE2 ...", i, key1, key2.isEmpty() ? "<empty>" : key2);
+                if (LOGGER.isDebug())
+                {
+                    LOGGER.debug("FILE1[{}]: key [{}] (key2 {}) checking FILE2 ...", i, key1, key2.isEmpty() ? "<empty>" : key2);
+                }
 
                 for (int j = 0; j < temp.size(); j++)
                 {
@@ -207,11 +323,18 @@ public class OperationDiff extends Operation implements AutoCloseable
                         String key1x = entry2.get(this.keyId);
                         String key2x = this.key2Id > -1 ? entry2.get(this.key2Id) : "";
 
-                        LOGGER.debug("FILE [{}/{}]:A: key1 [{}] vs [{}] // key2 [{}] vs [{}]", i, j, key1, key1x, key2, key2x);
+                        if (LOGGER.isDebug())
+                        {
+                            LOGGER.debug("FILE [{}/{}]:A: key1 [{}] vs [{}] // key2 [{}] vs [{}]", i, j, key1, key1x, key2, key2x);
+                        }
 
                         if (key1x.matches(key1) && key2x.matches(key2))
                         {
-                            LOGGER.debug("FILE [{}/{}]: key1 & key2 MATCHED!", i, j);
+                            if (LOGGER.isDebug())
+                            {
+                                LOGGER.debug("FILE [{}/{}]: key1 & key2 MATCHED!", i, j);
+                            }
+
                             matched = true;
                             break;
                         }
@@ -220,21 +343,19 @@ public class OperationDiff extends Operation implements AutoCloseable
 
                 if (matched)
                 {
-                    LOGGER.debug("FILE1[{}]: matched [{}] -- OK", i, matched);
+                    if (LOGGER.isDebug())
+                    {
+                        LOGGER.debug("FILE1[{}]: matched [{}] -- OK", i, matched);
+                    }
                 }
                 else
                 {
-                    LOGGER.debug("FILE1[{}]: matched [{}] -- ADD LINE!", i, matched);
-
-                    if (this.side.isEmpty())
-                    {
-                        this.DIFF.addLine(entry);
-                    }
-                    else
+                    if (LOGGER.isDebug())
                     {
-                        entry.add(side);
-                        this.DIFF.addLine(entry);
+                        LOGGER.debug("FILE1[{}]: matched [{}] -- ADD LINE!", i, matched);
                     }
+
+                    this.addDiffLine(side, entry);
                 }
             }
         }
@@ -7,34 +7,46 @@ import csvtool.enums.Settings;
 import csvtool.pivot.FilePivotDirectoryBuilder;
 import csvtool.pivot.FilePivotParser;
 import csvtool.pivot.FilePivotTransform;
+import csvtool.transform.TransformTemplate;
 import csvtool.utils.FileUtils;
 import csvtool.utils.LogWrapper;
 
+import java.io.IOException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OperationFilePivot extends Operation implements AutoCloseable
 {
     private final LogWrapper LOGGER = new LogWrapper(this.getClass());
+    private static final int DEFAULT_WORKERS = 16;
     private FileCache FILE;
     private final FilePivotParser PARSER;
     private FilePivotDirectoryBuilder builder;
     private Path input;
     private Path output;
-    private final Set<Path> inputDirSet;
-    private int totalCount;
+    private final Map<String, Deque<Path>> inputDirIndex;
+    private final StringBuilder fileName;
+    private TransformTemplate fromTemplate;
+    private TransformTemplate toTemplate;
+    private final AtomicInteger totalCount;
+    private int workers;
 
     public OperationFilePivot(Operations op)
     {
         super(op);
         this.FILE = new FileCache();
         this.PARSER = new FilePivotParser();
-        this.inputDirSet = new HashSet<>();
-        this.totalCount = 0;
+        this.inputDirIndex = new HashMap<>();
+        this.fileName = new StringBuilder();
+        this.totalCount = new AtomicInteger(0);
+        this.workers = DEFAULT_WORKERS;
     }
 
     public boolean runOperation(Context ctx)
@@ -57,6 +69,11 @@ public class OperationFilePivot extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().isColumnar())
+        {
+            super.toggleColumnar(true);
+        }
+
         if (!ctx.getOpt().hasInput2())
         {
             LOGGER.error("runOperation(): File Pivot FAILED, an input 2 is required.");
@@ -69,6 +86,25 @@ public class OperationFilePivot extends Operation implements AutoCloseable
             return false;
         }
 
+        if (ctx.getOpt().hasThreads())
+        {
+            try
+            {
+                this.workers = Integer.parseInt(ctx.getSettingValue(Settings.THREADS));
+            }
+            catch (NumberFormatException err)
+            {
+                LOGGER.error("runOperation(): File Pivot FAILED, Exception reading Threads value; {}", err.getLocalizedMessage());
+                return false;
+            }
+
+            if (this.workers < 1)
+            {
+                LOGGER.error("runOperation(): File Pivot FAILED, Threads value must be at least 1.");
+                return false;
+            }
+        }
+
         LOGGER.debug("runOperation(): --> FILE_PIVOT [{}], to output [{}], using header file [{}]", ctx.getInputFile(),
                      ctx.getSettingValue(Settings.OUTPUT), ctx.getSettingValue(Settings.HEADERS));
         if (this.readFiles(ctx.getInputFile(), false, ctx.getOpt().isDebug()))
@@ -116,7 +152,7 @@ public class OperationFilePivot extends Operation implements AutoCloseable
                     if (this.runFilePivotOperation())
                     {
                         LOGGER.info("runOperation(): --> File Pivot complete, total files moved: [{}]",
-                                    this.totalCount);
+                                    this.totalCount.get());
                         return true;
                     }
                     else
@@ -190,6 +226,22 @@ public class OperationFilePivot extends Operation implements AutoCloseable
                 return false;
             }
 
+            try
+            {
+                this.fromTemplate = fromTransform.compile();
+                this.toTemplate = toTransform.compile();
+            }
+            catch (NumberFormatException err)
+            {
+                LOGGER.error("runFilePivotOperation(): Exception compiling file transforms; {}", err.getLocalizedMessage());
+                return false;
+            }
+
+            // Files are matched on this thread, then moved on the workers; grouped by their destination,
+            // so that rows which pivot to the same file are still moved in order (the last one wins).
+            Map<Path, List<Move>> moves = new LinkedHashMap<>();
+            int failed = 0;
+
             for (int i = 0; i < this.FILE.getFile().size(); i++)
             {
                 List<String> entry = this.FILE.getFile().get(i);
@@ -197,13 +249,20 @@ public class OperationFilePivot extends Operation implements AutoCloseable
                 // Ignore header
                 if (i != 0 && !entry.isEmpty())
                 {
-                    if (!this.runTransformEachLine(i, fromTransform, toTransform, entries, entry))
+                    if (!this.runTransformEachLine(i, fromTransform, toTransform, entries, entry, moves))
                     {
                         LOGGER.error("runFilePivotOperation(): File Pivot failure on line [{}]", i);
-                        return false;
+                        failed++;
                     }
                 }
+            }
+
+            failed += this.runMoves(moves.values());
 
+            if (failed > 0)
+            {
+                LOGGER.error("runFilePivotOperation(): File Pivot failed on [{}] lines.", failed);
+                return false;
             }
 
             return true;
@@ -213,9 +272,18 @@ public class OperationFilePivot extends Operation implements AutoCloseable
         return false;
     }
 
+    // Indexed by the case-folded file name; same as equalsIgnoreCase()
+    private static String foldCase(String name)
+    {
+        StringBuilder result = new StringBuilder(name.length());
+
+        name.codePoints().forEach(cp -> result.appendCodePoint(Character.toLowerCase(Character.toUpperCase(cp))));
+        return result.toString();
+    }
+
     private boolean cacheInputDirectory()
     {
-        this.inputDirSet.clear();
+        this.inputDirIndex.clear();
 
         try (DirectoryStream<Path> stream = Files.newDirectoryStream(this.input))
         {
@@ -223,23 +291,25 @@ public class OperationFilePivot extends Operation implements AutoCloseable
             {
                 if (Files.isRegularFile(file) && Files.isReadable(file))
                 {
-                    this.inputDirSet.add(file);
+                    this.inputDirIndex.computeIfAbsent(foldCase(file.getFileName().toString()), k -> new ArrayDeque<>()).add(file);
                 }
             }
         }
         catch (Exception err)
         {
-            LOGGER.error("runTransformEachLine(): Directory Builder has failed to construct a new sub dir!");
+            LOGGER.error("cacheInputDirectory(): Exception reading input directory; {}", err.getLocalizedMessage());
             return false;
         }
 
+        LOGGER.debug("cacheInputDirectory(): Indexed [{}] file names.", this.inputDirIndex.size());
         return true;
     }
 
     private boolean runTransformEachLine(int index, FilePivotTransform fromTransform, FilePivotTransform toTransform,
-                                         List<FilePivotDirectoryBuilder.Entry> entries, List<String> row)
+                                         List<FilePivotDirectoryBuilder.Entry> entries, List<String> row,
+                                         Map<Path, List<Move>> moves)
     {
-        String nameIn = fromTransform.transformFileName("", index, row);
+        String nameIn = fromTransform.transformFileName(this.fromTemplate, this.fileName, "", index, row);
 
         if (nameIn.isEmpty())
         {
@@ -247,40 +317,22 @@ public class OperationFilePivot extends Operation implements AutoCloseable
             return false;
         }
 
-        for (Path file : this.inputDirSet)
+        Deque<Path> matches = this.inputDirIndex.get(foldCase(nameIn));
+
+        if (matches == null || matches.isEmpty())
         {
-            if (file.getFileName().toString().equalsIgnoreCase(nameIn))
-            {
-                if (this.transformAndPivotFile(file, toTransform, index, entries, row))
-                {
-                    this.inputDirSet.remove(file);
-                    LOGGER.debug("runTransformEachLine(): File pivot successful for file '{}'",
-                                 file.getFileName().toString());
-                    break;
-                }
-                else
-                {
-                    LOGGER.error("runTransformEachLine(): Exception pivoting file '{}'", file.getFileName().toString());
-                    return false;
-                }
-            }
+            return true;
         }
 
-        return true;
-    }
-
-    private boolean transformAndPivotFile(Path file, FilePivotTransform toTransform, int index,
-                                          List<FilePivotDirectoryBuilder.Entry> entries, List<String> row)
-    {
-        String toFile = toTransform.transformFileName("", index, row);
+        String toFile = toTransform.transformFileName(this.toTemplate, this.fileName, "", index, row);
 
         if (toFile.isEmpty())
         {
-            LOGGER.error("transformAndPivotFile(): Failed to transform toFile!");
+            LOGGER.error("runTransformEachLine(): Failed to transform toFile!");
             return false;
         }
 
-        Path currentDir = this.builder.build(entries, row);
+        Path currentDir = this.builder.resolve(entries, row);
 
         if (currentDir == null)
         {
@@ -292,21 +344,89 @@ public class OperationFilePivot extends Operation implements AutoCloseable
         {
             Path destFile = currentDir.resolve(FileUtils.sanitizeFileName(toFile));
 
-            if (Files.exists(destFile))
+            moves.computeIfAbsent(destFile, k -> new ArrayList<>()).add(new Move(index, matches.poll(), currentDir, destFile));
+        }
+        catch (Exception err)
+        {
+            LOGGER.error("runTransformEachLine(): Exception resolving toFile '{}'; {}", toFile, err.getLocalizedMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    // Each group runs on its own virtual thread; at most workers of them at once.  Returns the failure count.
+    private int runMoves(Collection<List<Move>> groups)
+    {
+        AtomicInteger failed = new AtomicInteger(0);
+        Semaphore permits = new Semaphore(this.workers);
+
+        LOGGER.debug("runMoves(): Moving files to [{}] destinations with [{}] workers ...", groups.size(), this.workers);
+
+        try (ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (List<Move> group : groups)
+            {
+                permits.acquireUninterruptibly();
+                pool.submit(() ->
+                {
+                    try
+                    {
+                        for (Move move : group)
+                        {
+                            if (!this.transformAndPivotFile(move))
+                            {
+                                LOGGER.error("runMoves(): File Pivot failure on line [{}]", move.line());
+                                failed.incrementAndGet();
+                            }
+                        }
+                    }
+                    finally
+                    {
+                        permits.release();
+                    }
+                });
+            }
+        }
+
+        return failed.get();
+    }
+
+    private boolean transformAndPivotFile(Move move)
+    {
+        if (!this.builder.ensureDir(move.dir()))
+        {
+            LOGGER.error("transformAndPivotFile(): Directory Builder has failed to construct a new sub dir!");
+            return false;
+        }
+
+        try
+        {
+            try
             {
-                Files.delete(destFile);
-                LOGGER.warn("transformAndPivotFile(): Deleted existing file '{}'",
-                            destFile.toAbsolutePath().toString());
+                this.moveFile(move);
             }
+            catch (NoSuchFileException err)
+            {
+                // The directory may have been removed since it was cached; so check it again, and retry once
+                LOGGER.warn("transformAndPivotFile(): Retrying move of file '{}'; {}", move.source().getFileName().toString(),
+                            err.getLocalizedMessage());
+                this.builder.invalidate(move.dir());
 
-            Files.move(file, destFile);
-            LOGGER.debug("transformAndPivotFile(): File pivot: '{}' -> '{}'", file.getFileName().toString(),
-                         destFile.toAbsolutePath().toString());
-            this.totalCount++;
+                if (!this.builder.ensureDir(move.dir()))
+                {
+                    LOGGER.error("transformAndPivotFile(): Directory Builder has failed to construct a new sub dir!");
+                    return false;
+                }
+
+                this.moveFile(move);
+            }
+
+            this.totalCount.incrementAndGet();
         }
         catch (Exception err)
         {
-            LOGGER.error("transformAndPivotFile(): Exception moving file '{}'; {}", file.getFileName().toString(),
+            LOGGER.error("transformAndPivotFile(): Exception moving file '{}'; {}", move.source().getFileName().toString(),
                          err.getLocalizedMessage());
             return false;
         }
@@ -314,6 +434,22 @@ public class OperationFilePivot extends Operation implements AutoCloseable
         return true;
     }
 
+    private void moveFile(Move move) throws IOException
+    {
+        if (Files.exists(move.dest()))
+        {
+            Files.delete(move.dest());
+            LOGGER.warn("transformAndPivotFile(): Deleted existing file '{}'",
+                        move.dest().toAbsolutePath().toString());
+        }
+
+        Files.move(move.source(), move.dest());
+        LOGGER.debug("transformAndPivotFile(): File pivot: '{}' -> '{}'", move.source().getFileName().toString(),
+                     move.dest().toAbsolutePath().toString());
+    }
+
+    private record Move(int line, Path source, Path dir, Path dest) {}
+
     @Override
     public void clear()
     {
@@ -327,7 +463,12 @@ public class OperationFilePivot extends Operation implements AutoCloseable
             this.PARSER.clear();
         }
 
-        this.inputDirSet.clear();
+        this.inputDirIndex.clear();
+
+        if (this.builder != null)
+        {
+            this.builder.clearCache();
+        }
     }
 
     @Override
@@ -342,6 +483,11 @@ public class OperationFilePivot extends Operation implements AutoCloseable
             this.PARSER.close();
         }
 
-        this.inputDirSet.clear();
+        this.inputDirIndex.clear();
+
+        if (this.builder != null)
+        {
+            this.builder.clearCache();
+        }
     }
 }
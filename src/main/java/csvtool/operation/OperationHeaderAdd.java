@@ -1,10 +1,10 @@
 package csvtool.operation;
 
 import csvtool.data.Context;
-import csvtool.data.FileCache;
 import csvtool.enums.Operations;
 import csvtool.enums.Settings;
 import csvtool.header.HeaderParser;
+import csvtool.utils.CSVWrapper;
 import csvtool.utils.LogWrapper;
 
 import java.util.List;
@@ -13,15 +13,11 @@ public class OperationHeaderAdd extends Operation implements AutoCloseable
 {
     private final LogWrapper LOGGER = new LogWrapper(this.getClass());
     private final HeaderParser PARSER;
-    private FileCache FILE;
-    private FileCache OUT;
 
     public OperationHeaderAdd(Operations op)
     {
         super(op);
         this.PARSER = new HeaderParser();
-        this.FILE = new FileCache();
-        this.OUT = new FileCache();
     }
 
     @Override
@@ -45,6 +41,11 @@ public class OperationHeaderAdd extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         if (!ctx.getOpt().hasHeaders())
         {
             LOGGER.error("runOperation(): AddHeaders FAILED, a Headers Config file is required.");
@@ -59,52 +60,36 @@ public class OperationHeaderAdd extends Operation implements AutoCloseable
 
         LOGGER.debug("runOperation(): --> Input [{}], Headers Config [{}], Output [{}]", ctx.getInputFile(), ctx.getSettingValue(Settings.HEADERS), ctx.getOpt().hasOutput() ? ctx.getSettingValue(Settings.OUTPUT) : "<not_used>");
 
-        if (this.readFiles(ctx.getInputFile(), false, ctx.getOpt().isDebug()))
+        if (this.PARSER.init(ctx, false))
         {
-            LOGGER.debug("runOperation(): --> Input [{}] read successfully.", ctx.getInputFile());
+            LOGGER.debug("runOperation(): --> Config Parser initialized.");
 
-            if (this.PARSER.init(ctx, false))
+            if (this.PARSER.loadConfig())
             {
-                LOGGER.debug("runOperation(): --> Config Parser initialized.");
-
-                if (this.PARSER.loadConfig())
+                if (this.PARSER.getOutputHeader() != null)
                 {
-                    if (this.PARSER.getOutputHeader() != null)
+                    if (this.copyDataStreaming(ctx.getInputFile(), ctx.getSettingValue(Settings.OUTPUT), false, ctx.getOpt().isApplyQuotes()))
                     {
-                        this.OUT.setFileName(ctx.getSettingValue(Settings.OUTPUT));
-                        this.OUT.setHeader(this.PARSER.getOutputHeader());
-
-                        if (this.copyDataNoHeaders())
-                        {
-                            if (this.writeFile(this.OUT, ctx.getOpt().isApplyQuotes(), false, ctx.getOpt().isDebug(), null))
-                            {
-                                LOGGER.info("runOperation(): --> File Output saved as [{}].", ctx.getSettingValue(Settings.OUTPUT));
-                                return true;
-                            }
-                            else
-                            {
-                                LOGGER.error("runOperation(): --> File output [{}] has failed!", ctx.getSettingValue(Settings.OUTPUT));
-                                return false;
-                            }
-                        }
-                        else
-                        {
-                            LOGGER.error("runOperation(): --> File copyData() -> output [{}] has failed!", ctx.getSettingValue(Settings.OUTPUT));
-                            return false;
-                        }
+                        LOGGER.info("runOperation(): --> File Output saved as [{}].", ctx.getSettingValue(Settings.OUTPUT));
+                        return true;
                     }
                     else
                     {
-                        LOGGER.error("runOperation(): --> Failed to load output headers from config [{}]!", this.PARSER.getHeaderConfigFile());
+                        LOGGER.error("runOperation(): --> File copyData() -> output [{}] has failed!", ctx.getSettingValue(Settings.OUTPUT));
                         return false;
                     }
                 }
                 else
                 {
-                    LOGGER.error("runOperation(): --> Failed to load headers config [{}]!", this.PARSER.getHeaderConfigFile());
+                    LOGGER.error("runOperation(): --> Failed to load output headers from config [{}]!", this.PARSER.getHeaderConfigFile());
                     return false;
                 }
             }
+            else
+            {
+                LOGGER.error("runOperation(): --> Failed to load headers config [{}]!", this.PARSER.getHeaderConfigFile());
+                return false;
+            }
         }
 
         LOGGER.error("runOperation(): General Operation failure.");
@@ -123,47 +108,50 @@ public class OperationHeaderAdd extends Operation implements AutoCloseable
         System.out.print("\n");
     }
 
-    private boolean readFiles(String input, boolean ignoreQuotes, boolean debug)
+    // Copies each line as it is read, so that the file is never held in memory.
+    private boolean copyDataStreaming(String input, String output, boolean ignoreQuotes, boolean applyQuotes)
     {
-        LOGGER.debug("readFiles(): Reading files ...");
-
-        this.FILE = this.readFileNoHeaders(input, ignoreQuotes, debug);
-
-        if (this.FILE == null)
+        try (CSVWrapper reader = this.openFileReader(input, false, ignoreQuotes))
         {
-            LOGGER.error("readFiles(): Input File Cache is Empty!");
-            return false;
-        }
+            if (reader == null)
+            {
+                LOGGER.error("copyDataStreaming(): Input File [{}] could not be read!", input);
+                return false;
+            }
 
-        return true;
-    }
+            try (CSVWrapper writer = this.openFileWriter(output, this.PARSER.getOutputHeader().stream().toList(), applyQuotes, false))
+            {
+                if (writer == null)
+                {
+                    LOGGER.error("copyDataStreaming(): Output File [{}] could not be opened!", output);
+                    return false;
+                }
 
-    private boolean copyDataNoHeaders()
-    {
-        for (int i = 0; i < this.FILE.getFile().size(); i++)
-        {
-            List<String> entry = this.FILE.getFile().get(i);
+                List<String> entry;
 
-            if (!entry.isEmpty())
-            {
-                this.OUT.addLine(entry);
+                while ((entry = reader.readNext()) != null)
+                {
+                    if (!entry.isEmpty() && !writer.writeNext(entry))
+                    {
+                        LOGGER.error("copyDataStreaming(): Writing File [{}] has failed!", output);
+                        return false;
+                    }
+                }
+
+                return true;
             }
         }
+        catch (Exception e)
+        {
+            LOGGER.error("copyDataStreaming(): Exception copying file! Error: {}", e.getMessage());
+        }
 
-        return true;
+        return false;
     }
 
     @Override
     public void clear()
     {
-        if (this.FILE != null && !this.FILE.isEmpty())
-        {
-            this.FILE.clear();
-        }
-        if (this.OUT != null && !this.OUT.isEmpty())
-        {
-            this.OUT.clear();
-        }
         if (this.PARSER != null && !this.PARSER.isEmpty())
         {
             this.PARSER.clear();
@@ -173,14 +161,6 @@ public class OperationHeaderAdd extends Operation implements AutoCloseable
     @Override
     public void close() throws Exception
     {
-        if (this.FILE != null)
-        {
-            this.FILE.close();
-        }
-        if (this.OUT != null)
-        {
-            this.OUT.close();
-        }
         if (this.PARSER != null)
         {
             this.PARSER.close();
@@ -99,14 +99,16 @@ public class OperationHelp extends Operation
         System.out.print("\t--test:\n\t\tTest Routines [params: (input file)]\n");
         System.out.print("\t--merge:\n\t\tMerge Two CSV Files [requires: (input) (output) (key_field)]\n");
         System.out.print("\t--dedupe:\n\t\tDeDupe Two CSV Files  [requires: (input) (output) (key_field)]\n");
+        System.out.print("\t--split:\n\t\tSplit A CSV File into several files by row count, size, and/or key [requires: (input) (output) and (key_field), (split-rows), or (split-size)]\n");
         System.out.print("\t--diff:\n\t\tDiff Two CSV Files  [requires: (input) (output) (key_field)]\n");
         System.out.print("\t--header-add:\n\t\tAppend the output headers from a headers.json from the input file to a new output [requires: (input) (output) (headers.json)]\n");
         System.out.print("\t--header-save:\n\t\tGenerate a headers.json from an input [requires: (input) (headers.json)]\n");
         System.out.print("\t--join:\n\t\tJoin two CSV files into one matching key with key2 [requires: (input) (input2) (output) (key_field) (join_key_field2) [...]]\n");
         System.out.print("\t--reformat:\n\t\tReformat A CSV File [requires: (input) (output) (headers.json)]\n");
-        System.out.print("\t--serialize:\n\t\tSerialize a CSV File with the --serial-key field, utilizing --key [through --key5] to build the Serialized Entry.  Then serialize the field starting with --serial-start [number] and optionally paired with --serial-end [number] [requires: (input) (output) (key) (serial-key) (serial-start)]\n");
+        System.out.print("\t--serialize:\n\t\tSerialize a CSV File with the --serial-key field, utilizing --key [through --key5] to build the Serialized Entry.  Then serialize the field starting with --serial-start [number] and optionally paired with --serial-end [number], and --serial-registry [file] to continue the numbering from previous runs [requires: (input) (output) (key) (serial-key) (serial-start)]\n");
         System.out.print("\t--transform-save:\n\t\tGenerate a transform.json from an input [requires: (input) (output) (transform.json)]\n");
         System.out.print("\t--transform-expand:\n\t\tExpand A CSV File's Columns using a transform.json using a key [requires: (input) (output) (transform.json) (key_field)]\n");
+        System.out.print("\t--transform-squash:\n\t\tSquash A CSV File's expanded Columns back into rows using a transform.json using a key [requires: (input) (output) (transform.json) (key_field)]\n");
         System.out.print("\n");
         System.out.print("Settings (Cannot be listed before the operation, but it is accepted anywhere afterwards):\n");
         System.out.print("\t--input (file):\n\t\tSets the CSV Input File #2\n");
@@ -129,12 +131,22 @@ public class OperationHelp extends Operation
         System.out.print("\t--include-val2 (value):\n\t\tSets the CSV Include-Val2 value for the JOIN Operation.  This is used so that it can compare the data with the provided Include-Key2 field.\n");
         System.out.print("\t--include-val3 (value):\n\t\tSets the CSV Include-Val3 value for the JOIN Operation.  This is used so that it can compare the data with the provided Include-Key3 field.\n");
         System.out.print("\t--side (key):\n\t\tSets the CSV Side field for the DIFF Operation.  This informs of which \"Side\" the DIFF output came from.\n");
+        System.out.print("\t--serial-registry (file):\n\t\tSets the Serial Registry file for the SERIALIZE Operation.  This is an append-only log of the serials handed out by every run, so that numbering can continue across runs without rereading the older files.  It is looked up through a hashed index (file.idx), which is rebuilt from the log if it is missing.\n");
+        System.out.print("\t--threads (count):\n\t\tSets the number of worker threads for the REFORMAT Operation (this splits the input into chunks of rows, and remaps them in parallel); and the number of concurrent file moves for the FILE_PIVOT Operation (Default: 16).\n");
+        System.out.print("\t--spill (rows):\n\t\tSets the DEDUPE Operation in \"Spill\" mode, which sorts the input in runs of this many rows into temporary files, and merges them; for files that are larger than memory.  For the TRANSFORM_SQUASH Operation, this is the run size used to sort the input by key, when it is not already sorted (Default: 65536).\n");
+        System.out.print("\t--bloom (rate):\n\t\tSets a Bloom filter over the keys of the second file for the DIFF, JOIN, and MERGE (--de-dupe) Operations, with this false positive rate (ie. 0.01).  Keys that miss the filter are skipped without a lookup.\n");
+        System.out.print("\t--write-buffer (KB):\n\t\tSets the size of the output buffer for all Operations; output files are written in blocks of this size (Default: 256 KB).\n");
+        System.out.print("\t--split-rows (rows):\n\t\tSets the SPLIT Operation to start a new output file after this many rows.\n");
+        System.out.print("\t--split-size (MB):\n\t\tSets the SPLIT Operation to start a new output file once it reaches this size (before any compression).\n");
+        System.out.print("\t--max-writers (count):\n\t\tSets the number of output files that the SPLIT Operation keeps open at once, when splitting by key; each one has its own write buffer (Default: 32).\n");
         System.out.print("\t--de-dupe:\n\t\tSets the MERGE Operation in \"De-Duplication\" mode, which removes rows that already exists, and outputs this data to a separate file.\n");
         System.out.print("\t--squash-dupe:\n\t\tSets the MERGE/DEDUPE Operation in \"Squash\" mode, which combines rows that already exist with it's duplicates, and outputs the combined data.\n");
         System.out.print("\t--quotes:\n\t\tSets the CSV Output in \"Apply Quotes\" mode, which adds Quotes to all data, and not only when it is required.\n");
         System.out.print("\t--append:\n\t\tSets the CSV Output in \"Append\" mode, which causes the Output to not be Overwritten, but appended to.\n");
         System.out.print("\t--multi-join:\n\t\tSets the CSV Output for the Join Operation to \"Multi-Join\" mode, which causes the Output to include multiple lines that were matched.\n");
         System.out.print("\t--outer-join:\n\t\tSets the CSV Output for the Join Operation to \"Outer-Join\" mode, which causes the Output to include lines that were not matched.\n");
+        System.out.print("\t--diff-regex:\n\t\tSets the DIFF Operation in \"Regex\" mode, which compares the key fields using the legacy Regular Expression matching instead of exact matching.\n");
+        System.out.print("\t--columnar:\n\t\tSets the input file caches in \"Columnar\" mode, which stores each column with a dictionary of its values, to reduce memory usage for repetitive data.\n");
         System.out.print("\t--quiet:\n\t\tSets the Operation in \"Quiet\" mode, which causes the Logger messages to be suppressed.\n");
         System.out.print("\t--debug:\n\t\tSets the Operation in \"Debug\" mode, which causes the Logger to output Debug Level messages.\n");
         System.out.print("\t--ansi-colors:\n\t\tSets the Operation in \"Ansi-Color\" mode, which causes the Logger to output messages with ANSI-style color codes.\n");
@@ -165,12 +177,22 @@ public class OperationHelp extends Operation
             case INCLUDE_VAL2 -> this.displayHelpForIncludeVal2();
             case INCLUDE_VAL3 -> this.displayHelpForIncludeVal3();
             case SIDE -> this.displayHelpForSide();
+            case SERIAL_REGISTRY -> this.displayHelpForSerialRegistry();
+            case THREADS -> this.displayHelpForThreads();
+            case SPILL -> this.displayHelpForSpill();
+            case BLOOM -> this.displayHelpForBloom();
+            case WRITE_BUFFER -> this.displayHelpForWriteBuffer();
+            case SPLIT_ROWS -> this.displayHelpForSplitRows();
+            case SPLIT_SIZE -> this.displayHelpForSplitSize();
+            case MAX_WRITERS -> this.displayHelpForMaxWriters();
             case DE_DUPE -> this.displayHelpForDeDupe();
             case SQUASH_DUPE -> this.displayHelpForSquashDupe();
             case QUOTES -> this.displayHelpForQuotes();
             case APPEND -> this.displayHelpForAppend();
             case MULTI -> this.displayHelpForMultiJoin();
             case OUTER -> this.displayHelpForOuterJoin();
+            case DIFF_REGEX -> this.displayHelpForDiffRegex();
+            case COLUMNAR -> this.displayHelpForColumnar();
             case QUIET -> this.displayHelpForQuiet();
             case DEBUG -> this.displayHelpForDebug();
             case ANSI_COLORS -> this.displayHelpForAnsiColors();
@@ -304,6 +326,54 @@ public class OperationHelp extends Operation
             this.displayHelpForSide();
             hasOpt = true;
         }
+        else if (opt.hasSerialRegistry())
+        {
+            this.displayVersion();
+            this.displayHelpForSerialRegistry();
+            hasOpt = true;
+        }
+        else if (opt.hasThreads())
+        {
+            this.displayVersion();
+            this.displayHelpForThreads();
+            hasOpt = true;
+        }
+        else if (opt.hasSpill())
+        {
+            this.displayVersion();
+            this.displayHelpForSpill();
+            hasOpt = true;
+        }
+        else if (opt.hasBloom())
+        {
+            this.displayVersion();
+            this.displayHelpForBloom();
+            hasOpt = true;
+        }
+        else if (opt.hasWriteBuffer())
+        {
+            this.displayVersion();
+            this.displayHelpForWriteBuffer();
+            hasOpt = true;
+        }
+        else if (opt.hasSplitRows())
+        {
+            this.displayVersion();
+            this.displayHelpForSplitRows();
+            hasOpt = true;
+        }
+        else if (opt.hasSplitSize())
+        {
+            this.displayVersion();
+            this.displayHelpForSplitSize();
+            hasOpt = true;
+        }
+        else if (opt.hasMaxWriters())
+        {
+            this.displayVersion();
+            this.displayHelpForMaxWriters();
+            hasOpt = true;
+        }
         else if (opt.isDeDupe())
         {
             this.displayVersion();
@@ -340,6 +410,18 @@ public class OperationHelp extends Operation
             this.displayHelpForOuterJoin();
             hasOpt = true;
         }
+        else if (opt.isDiffRegex())
+        {
+            this.displayVersion();
+            this.displayHelpForDiffRegex();
+            hasOpt = true;
+        }
+        else if (opt.isColumnar())
+        {
+            this.displayVersion();
+            this.displayHelpForColumnar();
+            hasOpt = true;
+        }
         else if (opt.isDebug() && !Const.DEBUG)
         {
             this.displayVersion();
@@ -484,6 +566,54 @@ public class OperationHelp extends Operation
         System.out.printf("Aliases: %s\n", Settings.SIDE.getAlias().toString());
     }
 
+    private void displayHelpForSerialRegistry()
+    {
+        System.out.print("--serial-registry (file):\n");
+        System.out.printf("Aliases: %s\n", Settings.SERIAL_REGISTRY.getAlias().toString());
+    }
+
+    private void displayHelpForThreads()
+    {
+        System.out.print("--threads (count):\n");
+        System.out.printf("Aliases: %s\n", Settings.THREADS.getAlias().toString());
+    }
+
+    private void displayHelpForSpill()
+    {
+        System.out.print("--spill (rows):\n");
+        System.out.printf("Aliases: %s\n", Settings.SPILL.getAlias().toString());
+    }
+
+    private void displayHelpForBloom()
+    {
+        System.out.print("--bloom (rate):\n");
+        System.out.printf("Aliases: %s\n", Settings.BLOOM.getAlias().toString());
+    }
+
+    private void displayHelpForWriteBuffer()
+    {
+        System.out.print("--write-buffer (KB):\n");
+        System.out.printf("Aliases: %s\n", Settings.WRITE_BUFFER.getAlias().toString());
+    }
+
+    private void displayHelpForSplitRows()
+    {
+        System.out.print("--split-rows (rows):\n");
+        System.out.printf("Aliases: %s\n", Settings.SPLIT_ROWS.getAlias().toString());
+    }
+
+    private void displayHelpForSplitSize()
+    {
+        System.out.print("--split-size (MB):\n");
+        System.out.printf("Aliases: %s\n", Settings.SPLIT_SIZE.getAlias().toString());
+    }
+
+    private void displayHelpForMaxWriters()
+    {
+        System.out.print("--max-writers (count):\n");
+        System.out.printf("Aliases: %s\n", Settings.MAX_WRITERS.getAlias().toString());
+    }
+
     private void displayHelpForDeDupe()
     {
         System.out.print("--squash-dupe:\n");
@@ -520,6 +650,18 @@ public class OperationHelp extends Operation
         System.out.printf("Aliases: %s\n", Settings.OUTER.getAlias().toString());
     }
 
+    private void displayHelpForDiffRegex()
+    {
+        System.out.print("--diff-regex:\n");
+        System.out.printf("Aliases: %s\n", Settings.DIFF_REGEX.getAlias().toString());
+    }
+
+    private void displayHelpForColumnar()
+    {
+        System.out.print("--columnar:\n");
+        System.out.printf("Aliases: %s\n", Settings.COLUMNAR.getAlias().toString());
+    }
+
     private void displayHelpForQuiet()
     {
         System.out.print("--quiet:\n");
@@ -1,5 +1,6 @@
 package csvtool.operation;
 
+import csvtool.data.BloomFilter;
 import csvtool.data.Context;
 import csvtool.data.FileCache;
 import csvtool.enums.Operations;
@@ -8,6 +9,7 @@ import csvtool.header.CSVHeader;
 import csvtool.utils.LogWrapper;
 import csvtool.utils.StringUtils;
 
+import javax.annotation.Nullable;
 import java.util.*;
 
 public class OperationJoin extends Operation implements AutoCloseable
@@ -18,7 +20,10 @@ public class OperationJoin extends Operation implements AutoCloseable
     private FileCache FILE_2;
     private final FileCache OUT;
     private final FileCache EXCEPTIONS;
-    private final List<Integer> matched;
+    private final HashMap<List<String>, ArrayDeque<Integer>> joinIndex;
+    private final BitSet matched;
+    private @Nullable BloomFilter BLOOM;
+    private double bloomFpp;
     private int keyId1;
     private int keyId2;
     private int keyId3;
@@ -43,7 +48,10 @@ public class OperationJoin extends Operation implements AutoCloseable
         this.FILE_2 = new FileCache();
         this.OUT = new FileCache();
         this.EXCEPTIONS = new FileCache();
-        this.matched = new ArrayList<>();
+        this.joinIndex = new HashMap<>();
+        this.matched = new BitSet();
+        this.BLOOM = null;
+        this.bloomFpp = 0;
         this.keyId1 = -1;
         this.keyId2 = -1;
         this.keyId3 = -1;
@@ -83,6 +91,16 @@ public class OperationJoin extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().isColumnar())
+        {
+            super.toggleColumnar(true);
+        }
+
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         if (!ctx.getOpt().hasInput2() || !ctx.getOpt().hasOutput())
         {
             LOGGER.error("runOperation(): Join FAILED, Second input file and an output is required.");
@@ -103,6 +121,15 @@ public class OperationJoin extends Operation implements AutoCloseable
             return false;
         }
 
+        this.bloomFpp = this.getBloomFpp(ctx);
+
+        if (this.bloomFpp < 0)
+        {
+            LOGGER.error("runOperation(): Join FAILED, Bloom filter rate is invalid.");
+            this.clear();
+            return false;
+        }
+
         LOGGER.debug("runOperation(): --> JOIN [{}] + [{}] into [{}].", ctx.getInputFile(), ctx.getSettingValue(Settings.INPUT2), ctx.getSettingValue(Settings.OUTPUT));
         this.OUT.setFileName(ctx.getSettingValue(Settings.OUTPUT));
         String exceptionsFileName = StringUtils.addFileSuffix(this.OUT.getFileName(), "-exceptions");
@@ -367,6 +394,8 @@ public class OperationJoin extends Operation implements AutoCloseable
         System.out.print("  - ... and so on.\n");
         System.out.print("The default join type is of the INNER type, but you can specify\n");
         System.out.print("this operation to be in OUTER mode by using the --outer setting.\n");
+        System.out.print("Optionally, --bloom sets a Bloom filter over the join keys, with the given false positive rate,\n");
+        System.out.print("which skips most lookups of the keys that have no match.\n");
         System.out.print("\n");
     }
 
@@ -419,6 +448,8 @@ public class OperationJoin extends Operation implements AutoCloseable
         final int header1Size = this.FILE_1.getHeader().size();
         final int header2Size = this.FILE_2.getHeader().size();
 
+        this.buildJoinIndex(outer);
+
         for (int i = 1; i < this.FILE_1.getFile().size(); i++)
         {
             List<String> entry = this.FILE_1.getFile().get(i);
@@ -430,18 +461,17 @@ public class OperationJoin extends Operation implements AutoCloseable
 
                 if (multi)
                 {
-                    HashMap<Integer, List<String>> matches = this.getAllMatchingKeys(lKeys, outer);
+                    List<List<String>> matches = this.getAllMatchingKeys(lKeys, outer);
 
                     if (!matches.isEmpty())
                     {
-                        matches.forEach(
-                                (k, list) ->
-                                {
-                                    List<String> multiResult = new ArrayList<>(result);
-
-                                    multiResult.addAll(list);
-                                    this.OUT.addLine(multiResult);
-                                });
+                        for (List<String> list : matches)
+                        {
+                            List<String> multiResult = new ArrayList<>(result);
+
+                            multiResult.addAll(list);
+                            this.OUT.addLine(multiResult);
+                        }
                     }
                     else if (outer)
                     {
@@ -485,12 +515,14 @@ public class OperationJoin extends Operation implements AutoCloseable
             }
         }
 
+        this.reportBloomFilter("join", this.BLOOM);
+
         // Write All unmatched-outer Exceptions
         if (outer)
         {
             for (int i = 1; i < this.FILE_2.getFile().size(); i++)
             {
-                if (!this.matched.contains(i))
+                if (!this.matched.get(i))
                 {
                     List<String> entry = this.FILE_2.getFile().get(i);
 
@@ -505,6 +537,35 @@ public class OperationJoin extends Operation implements AutoCloseable
         return true;
     }
 
+    // Build side; index every FILE_2 line by its join keys, keeping the file order within each key.
+    private void buildJoinIndex(boolean outer)
+    {
+        this.joinIndex.clear();
+
+        for (int i = 1; i < this.FILE_2.getFile().size(); i++)
+        {
+            List<String> entry = this.FILE_2.getFile().get(i);
+
+            if (!entry.isEmpty() && this.matchIncludes(entry, outer))
+            {
+                List<String> rKeys = this.getJoinKeys(entry);
+
+                if (!rKeys.isEmpty())
+                {
+                    this.joinIndex.computeIfAbsent(rKeys, k -> new ArrayDeque<>()).add(i);
+                }
+            }
+        }
+
+        LOGGER.debug("buildJoinIndex(): [{}] unique join keys indexed from [{}] lines", this.joinIndex.size(), this.FILE_2.getFile().size() - 1);
+
+        if (this.bloomFpp > 0)
+        {
+            this.BLOOM = new BloomFilter(this.joinIndex.size(), this.bloomFpp);
+            this.joinIndex.keySet().forEach(this.BLOOM::put);
+        }
+    }
+
     private List<String> getKeys(List<String> list)
     {
         List<String> result = new ArrayList<>();
@@ -609,30 +670,6 @@ public class OperationJoin extends Operation implements AutoCloseable
         return result;
     }
 
-    private boolean matchKeys(List<String> left, List<String> right)
-    {
-        if (left.size() != right.size() ||
-            left.isEmpty())
-        {
-            return false;
-        }
-
-        for (int i = 0; i < left.size(); i++)
-        {
-            String lEntry = left.get(i);
-            String rEntry = right.get(i);
-
-            LOGGER.debug("matchKeys(): left: [{}], vs right: [{}]", lEntry, rEntry);
-
-            if (!lEntry.equals(rEntry))
-            {
-                return false;
-            }
-        }
-
-        return true;
-    }
-
     private boolean matchIncludes(List<String> data, boolean outer)
     {
         if (outer) return true;
@@ -667,66 +704,62 @@ public class OperationJoin extends Operation implements AutoCloseable
         return true;
     }
 
+    // False only when the Bloom filter rules out the keys
+    private boolean mightMatch(List<String> lKeys)
+    {
+        return this.BLOOM == null || this.BLOOM.mightContain(lKeys);
+    }
+
+    // Probe side; in Outer mode, each FILE_2 line can only be matched once, so they are consumed.
     private List<String> getFirstMatchingKey(List<String> lKeys, boolean outer)
     {
-        for (int i = 1; i < this.FILE_2.getFile().size(); i++)
-        {
-            List<String> entry = this.FILE_2.getFile().get(i);
+        ArrayDeque<Integer> lines = this.mightMatch(lKeys) ? this.joinIndex.get(lKeys) : null;
 
-            if (!entry.isEmpty())
-            {
-                if (outer && this.matched.contains(i))
-                {
-                    continue;
-                }
+        if (lines == null || lines.isEmpty())
+        {
+            LOGGER.debug("getFirstMatchingKey(): NO MATCH!");
+            return List.of();
+        }
 
-                List<String> rKeys = this.getJoinKeys(entry);
-                LOGGER.debug("getFirstMatchingKey(): LINE[{}]: [{}] vs [{}]", i, lKeys, rKeys);
+        final int i = outer ? lines.poll() : lines.peek();
+        List<String> entry = this.FILE_2.getFile().get(i);
 
-                if (this.matchKeys(lKeys, rKeys) &&
-                    this.matchIncludes(entry, outer))
-                {
-                    LOGGER.debug("getFirstMatchingKey(): Match found; line [{}] // [{}]", i, entry);
-                    this.matched.add(i);
-                    return entry;
-                }
-            }
+        if (LOGGER.isDebug())
+        {
+            LOGGER.debug("getFirstMatchingKey(): Match found; line [{}] // [{}]", i, entry);
         }
 
-        LOGGER.debug("getFirstMatchingKey(): NO MATCH!");
-        return List.of();
+        this.matched.set(i);
+        return entry;
     }
 
-    private HashMap<Integer, List<String>> getAllMatchingKeys(List<String> lKeys, boolean outer)
+    private List<List<String>> getAllMatchingKeys(List<String> lKeys, boolean outer)
     {
-        HashMap<Integer, List<String>> results = new HashMap<>();
+        ArrayDeque<Integer> lines = this.mightMatch(lKeys) ? this.joinIndex.get(lKeys) : null;
+        List<List<String>> results = new ArrayList<>();
 
-        for (int i = 1; i < this.FILE_2.getFile().size(); i++)
+        if (lines == null || lines.isEmpty())
         {
-            List<String> entry = this.FILE_2.getFile().get(i);
-
-            if (!entry.isEmpty())
-            {
-                if (outer && this.matched.contains(i))
-                {
-                    continue;
-                }
+            LOGGER.debug("getAllMatchingKeys(): NO MATCH!");
+            return results;
+        }
 
-                List<String> rKeys = this.getJoinKeys(entry);
+        for (int i : lines)
+        {
+            results.add(this.FILE_2.getFile().get(i));
+            this.matched.set(i);
+        }
 
-                LOGGER.debug("getAllMatchingKeys(): LINE[{}]: [{}] vs [{}]", i, lKeys, rKeys);
+        if (outer)
+        {
+            lines.clear();
+        }
 
-                if (this.matchKeys(lKeys, rKeys) &&
-                    this.matchIncludes(entry, outer))
-                {
-                    LOGGER.debug("getAllMatchingKeys(): Match found; line [{}] // [{}]", i, entry);
-                    this.matched.add(i);
-                    results.put(i, entry);
-                }
-            }
+        if (LOGGER.isDebug())
+        {
+            LOGGER.debug("getAllMatchingKeys(): [{}] Matches found", results.size());
         }
 
-        LOGGER.debug("getAllMatchingKeys(): [{}] Matches found", results.size());
         return results;
     }
 
@@ -753,7 +786,9 @@ public class OperationJoin extends Operation implements AutoCloseable
             this.EXCEPTIONS.clear();
         }
 
+        this.joinIndex.clear();
         this.matched.clear();
+        this.BLOOM = null;
     }
 
     @Override
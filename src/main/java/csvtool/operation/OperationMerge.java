@@ -1,5 +1,6 @@
 package csvtool.operation;
 
+import csvtool.data.BloomFilter;
 import csvtool.data.Context;
 import csvtool.data.FileCache;
 import csvtool.enums.Operations;
@@ -8,6 +9,8 @@ import csvtool.utils.LogWrapper;
 import csvtool.utils.StringUtils;
 
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
 
 public class OperationMerge extends Operation implements AutoCloseable
@@ -49,6 +52,16 @@ public class OperationMerge extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().isColumnar())
+        {
+            super.toggleColumnar(true);
+        }
+
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         if (!ctx.getOpt().hasInput2() || !ctx.getOpt().hasOutput())
         {
             LOGGER.error("runOperation(): Merge FAILED, Second input file and an output is required.");
@@ -63,6 +76,15 @@ public class OperationMerge extends Operation implements AutoCloseable
 
             if (ctx.getOpt().isDeDupe())
             {
+                double bloomFpp = this.getBloomFpp(ctx);
+
+                if (bloomFpp < 0)
+                {
+                    LOGGER.error("runOperation(): Merge FAILED, Bloom filter rate is invalid.");
+                    this.clear();
+                    return false;
+                }
+
                 if (!ctx.getOpt().hasKey())
                 {
                     LOGGER.error("runOperation(): Merge FAILED, De-Dupe is set, but key was not.");
@@ -79,7 +101,7 @@ public class OperationMerge extends Operation implements AutoCloseable
                     return false;
                 }
 
-                if (!this.deDupeFiles(true, ctx.getOpt().isSquashDupe()))
+                if (!this.deDupeFiles(true, ctx.getOpt().isSquashDupe(), bloomFpp))
                 {
                     LOGGER.error("runOperation(): Merge FAILED, DeDuplication attempt has failed.");
                     this.clear();
@@ -149,6 +171,7 @@ public class OperationMerge extends Operation implements AutoCloseable
         System.out.print("You can also pass the (--de-dupe) operation with requires a key field (--key) to be set.\n");
         System.out.print("Optionally, you can enable (--squash-dupe) which combines de-duplicated data values.\n");
         System.out.print("De-Dupe compares the files, and removes duplicate rows based on the key field given.\n");
+        System.out.print("With (--de-dupe), (--bloom) sets a Bloom filter over the keys, with the given false positive rate, which skips most lookups of unmatched keys.\n");
         System.out.print("\n");
     }
 
@@ -185,7 +208,7 @@ public class OperationMerge extends Operation implements AutoCloseable
         return false;
     }
 
-    private boolean deDupeFiles(boolean skipHeader, boolean squash)
+    private boolean deDupeFiles(boolean skipHeader, boolean squash, double bloomFpp)
     {
         if (this.FILE_1.isEmpty() || this.FILE_2.isEmpty() || this.keyId1 < 0)
         {
@@ -194,66 +217,114 @@ public class OperationMerge extends Operation implements AutoCloseable
         }
 
         LOGGER.debug("deDupeFiles(): Attempting to execute De-Dupe by removing duplicates from file2 ...");
+        HashMap<String, List<Integer>> index = new HashMap<>();
+        HashMap<Integer, List<Integer>> matches = new HashMap<>();
         List<List<String>> temp = new ArrayList<>();
-        List<Integer> dupes = new ArrayList<>();
+        BitSet dupes = new BitSet();
 
         this.FILE_2.getFile().forEach((i, list) -> temp.add(list));
         this.FILE_2.clear();
         this.FILE_DUPES.setHeader(this.FILE_1.getHeader());
 
+        // Index FILE_1 by key
         for (int i = 0; i < this.FILE_1.getFile().size(); i++)
         {
             List<String> entry = this.FILE_1.getFile().get(i);
 
-            if (!entry.isEmpty())
+            if (!entry.isEmpty() && (!skipHeader || i > 0))
             {
-                String key = entry.get(this.keyId1);
+                index.computeIfAbsent(entry.get(this.keyId1), k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        LOGGER.debug("deDupeFiles(): FILE1 indexed [{}] unique keys, checking FILE2 ...", index.size());
+        BloomFilter bloom = null;
 
-                LOGGER.debug("FILE1[{}]: key [{}] checking FILE2 ...", i, key);
+        if (bloomFpp > 0)
+        {
+            bloom = new BloomFilter(index.size(), bloomFpp);
+            index.keySet().forEach(bloom::put);
+        }
 
-                for (int j = 0; j < temp.size(); j++)
+        // Check each FILE_2 line once
+        for (int j = 0; j < temp.size(); j++)
+        {
+            List<String> entry2 = temp.get(j);
+
+            if (!entry2.isEmpty() && (!skipHeader || j > 0))
+            {
+                String key = entry2.get(this.keyId1);
+                List<Integer> lines = bloom == null || bloom.mightContain(key) ? index.get(key) : null;
+
+                if (lines != null)
                 {
-                    List<String> entry2 = temp.get(j);
+                    if (LOGGER.isDebug())
+                    {
+                        LOGGER.debug("FILE2[{}]: key [{}] matched FILE1 lines {}", j, entry2.get(this.keyId1), lines);
+                    }
 
-                    if (!entry2.isEmpty())
+                    for (int i : lines)
                     {
-                        String key2 = entry2.get(this.keyId1);
+                        matches.computeIfAbsent(i, k -> new ArrayList<>()).add(j);
+                    }
+
+                    dupes.set(j);
+                }
+            }
+        }
+
+        this.reportBloomFilter("merge", bloom);
 
-                        LOGGER.debug("FILE [{}/{}]: key [{}] / key2 [{}]", i, j, key, key2);
+        // Squash and store the dupes in FILE_1 order
+        for (int i = 0; i < this.FILE_1.getFile().size(); i++)
+        {
+            List<Integer> lines = matches.get(i);
+
+            if (lines == null)
+            {
+                continue;
+            }
 
-                        if (key2.equals(key) && (!skipHeader || j > 0))
+            List<String> entry = this.FILE_1.getFile().get(i);
+
+            for (int j : lines)
+            {
+                List<String> entry2 = temp.get(j);
+
+                // Attempt to squash values
+                if (squash)
+                {
+                    List<String> newLine = this.squashLines(entry, entry2);
+
+                    if (!newLine.equals(entry))
+                    {
+                        if (LOGGER.isDebug())
                         {
-                            // Attempt to squash values
-                            if (squash)
-                            {
-                                // Squash
-                                List<String> newLine = this.squashLines(entry, entry2);
-
-                                if (!newLine.equals(entry))
-                                {
-                                    LOGGER.debug("FILE1 [{}]: SQUASHED LINE: [{}//{}] --> [{}]", i, entry, newLine);
-                                    this.FILE_1.getFile().put(i, newLine);
-                                }
-                            }
-
-                            LOGGER.info("FILE2[{}]: skipping duplicate ...", j);
-                            this.FILE_DUPES.addLine(entry2);
-                            dupes.add(j);
+                            LOGGER.debug("FILE1 [{}]: SQUASHED LINE: [{}//{}] --> [{}]", i, entry, entry2, newLine);
                         }
+
+                        this.FILE_1.getFile().put(i, newLine);
+                        entry = newLine;
                     }
                 }
+
+                this.FILE_DUPES.addLine(entry2);
             }
         }
 
-        LOGGER.debug("deDupeFiles(): Restoring and removing duplicates from file2 (Count: {} dupes found)", dupes.size());
+        LOGGER.info("deDupeFiles(): Restoring and removing duplicates from file2 (Count: {} dupes found)", dupes.cardinality());
         int pos = 0;
 
         // Copy Back
         for (int i = 0; i < temp.size(); i++)
         {
-            if (!dupes.contains(i) || (skipHeader && i == 0))
+            if (!dupes.get(i))
             {
-                LOGGER.debug("LINE[{}]: put {}", pos, temp.get(i).toString());
+                if (LOGGER.isDebug())
+                {
+                    LOGGER.debug("LINE[{}]: put {}", pos, temp.get(i));
+                }
+
                 this.FILE_2.getFile().put(pos, temp.get(i));
                 pos++;
             }
@@ -2,37 +2,44 @@ package csvtool.operation;
 
 import csvtool.data.Const;
 import csvtool.data.Context;
-import csvtool.data.FileCache;
 import csvtool.enums.Operations;
 import csvtool.enums.Settings;
-import csvtool.header.CSVRemap;
-import csvtool.header.CSVRemapList;
+import csvtool.header.CSVRemapCompiled;
+import csvtool.header.CSVRemapPlan;
 import csvtool.header.HeaderParser;
-import csvtool.header.RemapType;
+import csvtool.utils.CSVWrapper;
 import csvtool.utils.LogWrapper;
 import csvtool.utils.StringUtils;
 import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class OperationReformat extends Operation implements AutoCloseable
 {
     private final LogWrapper LOGGER = new LogWrapper(this.getClass());
+    private static final int CHUNK_SIZE = 4096;
     private final HeaderParser PARSER;
-    private FileCache FILE;
-    private final FileCache OUT;
-    private final FileCache EXCEPTIONS;
+    private CSVRemapPlan PLAN;
+    private CSVWrapper EXCEPTIONS;
+    private String outputFile;
+    private String exceptionsFile;
+    private int workers;
 
     public OperationReformat(Operations op)
     {
         super(op);
         this.PARSER = new HeaderParser();
-        this.FILE = new FileCache();
-        this.OUT = new FileCache();
-        this.EXCEPTIONS = new FileCache();
+        this.PLAN = null;
+        this.outputFile = "";
+        this.exceptionsFile = "";
+        this.workers = 1;
     }
 
     @Override
@@ -56,6 +63,11 @@ public class OperationReformat extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         if (!ctx.getOpt().hasHeaders())
         {
             LOGGER.error("runOperation(): Reformat FAILED, a Headers Config file is required.");
@@ -70,421 +82,403 @@ public class OperationReformat extends Operation implements AutoCloseable
 
         LOGGER.debug("runOperation(): --> Input [{}], Headers Config [{}], Output [{}]", ctx.getInputFile(), ctx.getSettingValue(Settings.HEADERS), ctx.getSettingValue(Settings.OUTPUT));
 
-        this.FILE.setFileName(ctx.getInputFile());
-        this.OUT.setFileName(ctx.getSettingValue(Settings.OUTPUT));
+        this.outputFile = ctx.getSettingValue(Settings.OUTPUT);
+        this.exceptionsFile = StringUtils.addFileSuffix(this.outputFile, "-exceptions");
 
-        if (this.readFiles(ctx.getInputFile(), false, ctx.getOpt().isDebug()))
+        if (ctx.getOpt().hasThreads())
         {
-            LOGGER.debug("runOperation(): --> Input [{}] read successfully.", ctx.getInputFile());
+            try
+            {
+                this.workers = Integer.parseInt(ctx.getSettingValue(Settings.THREADS));
+            }
+            catch (NumberFormatException err)
+            {
+                LOGGER.error("runOperation(): Reformat FAILED, Exception reading Threads value; {}", err.getLocalizedMessage());
+                return false;
+            }
 
-            if (this.PARSER.init(ctx, false))
+            if (this.workers < 1)
             {
-                LOGGER.debug("runOperation(): --> Header Config Parser initialized.");
+                LOGGER.error("runOperation(): Reformat FAILED, Threads value must be at least 1.");
+                return false;
+            }
+        }
 
-                if (this.PARSER.loadConfig())
-                {
-                    if (!this.PARSER.checkRemapList())
-                    {
-                        LOGGER.error("runOperation(): Reformat FAILED, checkRemapList() has failed.");
-                        return false;
-                    }
+        if (this.PARSER.init(ctx, false))
+        {
+            LOGGER.debug("runOperation(): --> Header Config Parser initialized.");
 
-                    String exceptionsFile = StringUtils.addFileSuffix(this.OUT.getFileName(), "-exceptions");
-                    LOGGER.debug("runOperation(): --> Config Parser loaded config from [{}].", this.PARSER.getHeaderConfigFile());
+            if (this.PARSER.loadConfig())
+            {
+                if (!this.PARSER.checkRemapList())
+                {
+                    LOGGER.error("runOperation(): Reformat FAILED, checkRemapList() has failed.");
+                    return false;
+                }
 
-                    this.EXCEPTIONS.setFileName(exceptionsFile);
+                LOGGER.debug("runOperation(): --> Config Parser loaded config from [{}].", this.PARSER.getHeaderConfigFile());
+                this.PLAN = this.PARSER.compileRemapList();
 
-                    // Run Reformat
-                    if (this.reformatFile())
-                    {
-                        LOGGER.info("runOperation(): --> File reformat successful.");
+                if (this.PLAN == null)
+                {
+                    LOGGER.error("runOperation(): Reformat FAILED, compileRemapList() has failed.");
+                    return false;
+                }
 
-                        if (this.writeFile(this.OUT, ctx.getOpt().isApplyQuotes(), false, ctx.getOpt().isDebug(), null))
-                        {
-                            LOGGER.info("runOperation(): --> File Output saved as [{}].", ctx.getSettingValue(Settings.OUTPUT));
-
-                            if (!this.EXCEPTIONS.isEmpty())
-                            {
-                                if (this.writeFile(this.EXCEPTIONS, ctx.getOpt().isApplyQuotes(), false, ctx.getOpt().isDebug(), null))
-                                {
-                                    LOGGER.info("runOperation(): --> File exceptions saved as [{}].", exceptionsFile);
-                                    return true;
-                                }
-                                else
-                                {
-                                    LOGGER.error("runOperation(): File exceptions [{}] has failed!", exceptionsFile);
-                                    return false;
-                                }
-                            }
-
-                            return true;
-                        }
-                        else
-                        {
-                            LOGGER.error("runOperation(): File output [{}] has failed!", ctx.getSettingValue(Settings.OUTPUT));
-                            return false;
-                        }
-                    }
-                    else
-                    {
-                        LOGGER.error("runOperation(): File reformat has failed!");
-                        return false;
-                    }
+                // Run Reformat
+                if (this.reformatFile(ctx.getInputFile(), false, ctx.getOpt().isApplyQuotes()))
+                {
+                    LOGGER.info("runOperation(): --> File reformat successful.");
+                    LOGGER.info("runOperation(): --> File Output saved as [{}].", this.outputFile);
+                    return true;
                 }
                 else
                 {
-                    LOGGER.error("runOperation(): --> Failed to load headers config [{}]!", this.PARSER.getHeaderConfigFile());
+                    LOGGER.error("runOperation(): File reformat has failed!");
                     return false;
                 }
             }
+            else
+            {
+                LOGGER.error("runOperation(): --> Failed to load headers config [{}]!", this.PARSER.getHeaderConfigFile());
+                return false;
+            }
         }
 
         LOGGER.error("runOperation(): General Operation failure.");
         return false;
     }
 
-    private boolean readFiles(String input, boolean ignoreQuotes, boolean debug)
+    // Each line is independent, so this streams the input; the Output and Exceptions are written as each line is remapped.
+    private boolean reformatFile(String input, boolean ignoreQuotes, boolean applyQuotes)
     {
-        LOGGER.debug("readFiles(): Reading files ...");
-
-        this.FILE = this.readFile(input, ignoreQuotes, debug);
-
-        if (this.FILE == null || this.FILE.isEmpty())
-        {
-            LOGGER.error("readFiles(): Input File Cache is Empty!");
-            return false;
-        }
-
-        return true;
-    }
+        LOGGER.debug("reformatFile(): Reformatting ...");
 
-    private boolean reformatFile()
-    {
-        if (this.FILE == null || this.FILE.isEmpty())
+        if (this.PARSER.getOutputHeader() == null)
         {
+            LOGGER.error("reformatFile(): Output Headers are empty!");
             return false;
         }
 
-        LOGGER.debug("reformatFile(): Reformatting ...");
-        this.OUT.setHeader(this.PARSER.getOutputHeader());
-        this.EXCEPTIONS.setHeader(this.PARSER.getOutputHeader());
-
         if (Const.DEBUG)
         {
             this.PARSER.dumpRemapList();
         }
 
-        for (int i = 0; i < this.FILE.getFile().size(); i++)
+        List<String> header = this.PARSER.getOutputHeader().stream().toList();
+
+        try (CSVWrapper reader = this.openFileReader(input, true, ignoreQuotes))
         {
-            List<String> entry = this.FILE.getFile().get(i);
+            if (reader == null)
+            {
+                LOGGER.error("reformatFile(): Input File [{}] could not be read!", input);
+                return false;
+            }
+
+            List<String> entry = reader.readNext();
 
-            // Ignore header
-            if (i != 0 && !entry.isEmpty())
+            if (entry == null)
             {
-                LOGGER.debug("[{}] IN: [{}]", i, entry.toString());
-                Pair<Boolean, List<String>> result = this.applyRemap(entry);
+                LOGGER.error("reformatFile(): Input File is Empty!");
+                return false;
+            }
 
-                if (result == null || result.getRight().isEmpty())
+            try (CSVWrapper writer = this.openFileWriter(this.outputFile, header, applyQuotes, false))
+            {
+                if (writer == null)
                 {
-                    LOGGER.error("reformatFile(): Remap failure on line [{}]", i);
+                    LOGGER.error("reformatFile(): File output [{}] has failed!", this.outputFile);
                     return false;
                 }
 
-                LOGGER.debug("[{}] OUT: [{}]", i, result.toString());
-
-                if (result.getLeft())
+                if (this.workers > 1)
                 {
-                    this.EXCEPTIONS.addLine(result.getRight());
+                    return this.reformatParallel(reader, writer, entry, header, applyQuotes);
                 }
-                else
+
+                int i = 1;
+
+                do
                 {
-                    this.OUT.addLine(result.getRight());
-                }
-            }
-        }
+                    if (!entry.isEmpty())
+                    {
+                        if (LOGGER.isDebug())
+                        {
+                            LOGGER.debug("[{}] IN: [{}]", i, entry);
+                        }
 
-        return true;
-    }
+                        Pair<Boolean, List<String>> result = this.applyRemap(entry);
 
-    private @Nullable Pair<Boolean, List<String>> applyRemap(List<String> data)
-    {
-        if (this.PARSER.getRemapList() == null)
-        {
-            LOGGER.error("applyRemap(): Error, Remap List Config is empty!");
-            return null;
-        }
+                        if (result == null || result.getRight().isEmpty())
+                        {
+                            LOGGER.error("reformatFile(): Remap failure on line [{}]", i);
+                            return false;
+                        }
 
-        CSVRemapList remapList = new CSVRemapList(this.PARSER.getRemapList().getList());
+                        if (LOGGER.isDebug())
+                        {
+                            LOGGER.debug("[{}] OUT: [{}]", i, result);
+                        }
 
-        if (remapList.size() != data.size())
-        {
-            LOGGER.debug("applyRemap(): Remap List Config size [{}] > Input Data size [{}] (Expanding)", remapList.size(), data.size());
+                        if (!this.writeResult(writer, result, header, applyQuotes))
+                        {
+                            return false;
+                        }
+                    }
 
-            for (int i = data.size(); i < remapList.size(); i++)
-            {
-                data.add("");
+                    i++;
+                }
+                while ((entry = reader.readNext()) != null);
             }
         }
-
-        LOGGER.debug("applyRemap(): begin (pass 1) with list size [{}]", data.size());
-        // Pass 1 (To process any IF-STATIC/COPY)
-        for (int i = 0; i < data.size(); i++)
+        catch (Exception e)
         {
-            String entry = data.get(i);
+            LOGGER.error("reformatFile(): Exception reformatting file! Error: {}", e.getMessage());
+            return false;
+        }
+        finally
+        {
+            boolean hasExceptions = this.EXCEPTIONS != null;
+            this.closeQuietly(this.EXCEPTIONS);
+            this.EXCEPTIONS = null;
 
-            if (entry == null)
+            if (hasExceptions)
             {
-                LOGGER.error("applyRemap():1: Error; Entry at pos [{}] is empty!", i);
-                return null;
+                LOGGER.info("reformatFile(): --> File exceptions saved as [{}].", this.exceptionsFile);
             }
+        }
 
-            LOGGER.debug("[{}] IN:1: [{}]", i, entry);
+        return true;
+    }
 
-            CSVRemap remap = remapList.getRemap(i);
+    // Reads chunks of rows and remaps them on a pool of workers; the results are written back in their original order.
+    private boolean reformatParallel(CSVWrapper reader, CSVWrapper writer, List<String> entry, List<String> header, boolean applyQuotes)
+    {
+        LOGGER.debug("reformatParallel(): Reformatting with [{}] workers ...", this.workers);
 
-            if (remap == null)
-            {
-                LOGGER.error("applyRemap():1: Error; Remap at pos [{}] is empty!", i);
-                return null;
-            }
+        ForkJoinPool pool = new ForkJoinPool(this.workers);
+        ArrayDeque<Future<List<Pair<Boolean, List<String>>>>> pending = new ArrayDeque<>();
+        int line = 1;
 
-            LOGGER.debug("applyRemap():1: [{}] toString [{}]", i, remap.toString());
-            if (remap.getType() == RemapType.IF_STATIC)
+        try
+        {
+            while (entry != null)
             {
-                // If-Static
-                List<String> params = remap.getParams();
+                List<List<String>> chunk = new ArrayList<>(CHUNK_SIZE);
+                final int start = line;
 
-                if (params == null || params.isEmpty() || params.size() < 3)
+                while (entry != null && chunk.size() < CHUNK_SIZE)
                 {
-                    LOGGER.warn("applyRemap():1: IF_STATIC error; Invalid parameters given");
-                    return null;
+                    chunk.add(entry);
+                    entry = reader.readNext();
+                    line++;
                 }
 
-                try
-                {
-                    int fieldId = Integer.parseInt(params.getFirst());
-                    String otherEntry = data.get(fieldId);
-
-                    LOGGER.debug("applyRemap():1: IF_STATIC test [{}/{}] // otherField [{}/{}]", i, entry, fieldId, otherEntry);
-                    String ifResult = this.applyIfStaticEach(entry, otherEntry, params);
-
-                    if (!ifResult.equalsIgnoreCase(entry))
-                    {
-                        LOGGER.debug("applyRemap():1: IF_STATIC applied to [{}/{}]", i, entry);
-                        data.set(i, ifResult);
-                    }
-                    else
-                    {
-                        LOGGER.debug("applyRemap():1: IF_STATIC no match found!");
-                    }
+                pending.add(pool.submit(() -> this.remapChunk(start, chunk)));
 
-                    if (remap.getSubRemap() != null)
-                    {
-                        remapList.setRemap(i, remap.getSubRemap());
-                    }
-                    else
-                    {
-                        remapList.setRemap(i, new CSVRemap(i, RemapType.NONE));
-                    }
+                // Limit the chunks held in memory
+                if (pending.size() > this.workers * 2 && !this.writeChunk(writer, pending.poll().get(), header, applyQuotes))
+                {
+                    return false;
                 }
-                catch (Exception err)
+            }
+
+            while (!pending.isEmpty())
+            {
+                if (!this.writeChunk(writer, pending.poll().get(), header, applyQuotes))
                 {
-                    LOGGER.warn("applyRemap():1: IF_STATIC Exception; {}", err.getMessage());
-                    return null;
+                    return false;
                 }
             }
-//            else if (remap.getType() == RemapType.COPY)
-//            {
-//                // Copy (Pass 1)
-//                List<String> params = remap.getParams();
-//
-//                if (params == null || params.isEmpty())
-//                {
-//                    LOGGER.warn("applyRemap():1: COPY error; No parameters given");
-//                    return null;
-//                }
-//
-//                try
-//                {
-//                    int copyId = Integer.parseInt(params.getFirst());
-//                    String otherEntry = data.get(copyId);
-//                    CSVRemap otherRemap = remapList.getRemap(copyId);
-//
-//                    LOGGER.debug("applyRemap():1: COPY [{}/{}] apply --> [{}/{}]", copyId, otherEntry, i, entry);
-//                    data.set(i, otherEntry);
-//
-//                    remapList.setRemap(i, new CSVRemap(i, RemapType.NONE));
-//                }
-//                catch (Exception err)
-//                {
-//                    LOGGER.warn("applyRemap():1: COPY Exception; {}", err.getMessage());
-//                    return null;
-//                }
-//            }
+
+            return true;
+        }
+        catch (IOException | InterruptedException | ExecutionException e)
+        {
+            LOGGER.error("reformatParallel(): Exception reformatting file! Error: {}", e.getMessage());
+        }
+        finally
+        {
+            pool.shutdownNow();
         }
 
-        LOGGER.debug("applyRemap(): begin (Pass 2) with list size [{}]", data.size());
-        // Pass 2 (To process the swaps)
-        for (int i = 0; i < data.size(); i++)
+        return false;
+    }
+
+    private @Nullable List<Pair<Boolean, List<String>>> remapChunk(int start, List<List<String>> chunk)
+    {
+        List<Pair<Boolean, List<String>>> results = new ArrayList<>(chunk.size());
+
+        for (int i = 0; i < chunk.size(); i++)
         {
-            String entry = data.get(i);
+            List<String> entry = chunk.get(i);
 
-            if (entry == null)
+            if (entry.isEmpty())
             {
-                LOGGER.error("applyRemap():2: Error; Entry at pos [{}] is empty!", i);
-                return null;
+                continue;
             }
 
-            //LOGGER.debug("[{}] IN:2: [{}]", i, entry);
-
-            CSVRemap remap = remapList.getRemap(i);
+            Pair<Boolean, List<String>> result = this.applyRemap(entry);
 
-            if (remap == null)
+            if (result == null || result.getRight().isEmpty())
             {
-                LOGGER.error("applyRemap():2: Error; Remap at pos [{}] is empty!", i);
+                LOGGER.error("remapChunk(): Remap failure on line [{}]", start + i);
                 return null;
             }
 
-            //LOGGER.debug("applyRemap():2: [{}] toString [{}]", i, remap.toString());
-
-            if (remap.getType() == RemapType.SWAP)
-            {
-                // Swap Fields
-                List<String> params = remap.getParams();
+            results.add(result);
+        }
 
-                if (params == null || params.isEmpty())
-                {
-                    LOGGER.warn("applyRemap():2: SWAP error; No parameters given");
-                    return null;
-                }
+        return results;
+    }
 
-                try
-                {
-                    int swapId = Integer.parseInt(params.getFirst());
-                    String otherEntry = data.get(swapId);
-                    CSVRemap otherRemap = remapList.getRemap(swapId);
+    private boolean writeChunk(CSVWrapper writer, @Nullable List<Pair<Boolean, List<String>>> results, List<String> header, boolean applyQuotes)
+    {
+        if (results == null)
+        {
+            return false;
+        }
 
-                    LOGGER.debug("applyRemap():2: Performing Field swap [{}:{} <-> {}:{}]", i, entry, swapId, otherEntry);
-                    data.set(i, otherEntry);
+        for (Pair<Boolean, List<String>> result : results)
+        {
+            if (!this.writeResult(writer, result, header, applyQuotes))
+            {
+                return false;
+            }
+        }
 
-                    if (otherRemap != null)
-                    {
-                        remapList.setRemap(i, otherRemap);
-                    }
-                    else
-                    {
-                        remapList.setRemap(i, new CSVRemap(i, RemapType.NONE));
-                    }
+        return true;
+    }
 
-                    LOGGER.debug("applyRemap():2:SWAP-A: [{}] toString [{}]", i, Objects.requireNonNullElse(remapList.getRemap(i), "<NULL>").toString());
-                    data.set(swapId, entry);
+    private boolean writeResult(CSVWrapper writer, Pair<Boolean, List<String>> result, List<String> header, boolean applyQuotes)
+    {
+        if (!result.getLeft())
+        {
+            return writer.writeNext(result.getRight());
+        }
 
-                    if (remap.getSubRemap() != null)
-                    {
-                        remapList.setRemap(swapId, remap.getSubRemap());
-                    }
-                    else
-                    {
-                        remapList.setRemap(swapId, new CSVRemap(swapId, RemapType.NONE));
-                    }
+        if (this.EXCEPTIONS == null)
+        {
+            this.EXCEPTIONS = this.openFileWriter(this.exceptionsFile, header, applyQuotes, false);
 
-                    LOGGER.debug("applyRemap():2:SWAP-B: [{}] toString [{}]", swapId, Objects.requireNonNullElse(remapList.getRemap(swapId), "<NULL>").toString());
-                }
-                catch (Exception err)
-                {
-                    LOGGER.warn("applyRemap():2: SWAP error; {}", err.getMessage());
-                    return null;
-                }
+            if (this.EXCEPTIONS == null)
+            {
+                LOGGER.error("writeResult(): File exceptions [{}] has failed!", this.exceptionsFile);
+                return false;
             }
         }
 
-        List<String> result = new ArrayList<>(data);
-        boolean exclude = false;
+        return this.EXCEPTIONS.writeNext(result.getRight());
+    }
 
-        LOGGER.debug("applyRemap(): begin (Pass 3) with list size [{}]", data.size());
-        // Pass 3 (To process the actual each-remaps)
-        for (int i = 0; i < data.size(); i++)
+    private @Nullable Pair<Boolean, List<String>> applyRemap(List<String> data)
+    {
+        if (this.PLAN == null)
         {
-            String entry = data.get(i);
+            LOGGER.error("applyRemap(): Error, Remap Plan is empty!");
+            return null;
+        }
 
-            if (entry == null)
+        if (this.PLAN.size() != data.size())
+        {
+            if (LOGGER.isDebug())
             {
-                LOGGER.error("applyRemap():3: Error; Entry at pos [{}] is empty!", i);
-                return null;
+                LOGGER.debug("applyRemap(): Remap List Config size [{}] > Input Data size [{}] (Expanding)", this.PLAN.size(), data.size());
             }
 
-            //LOGGER.debug("[{}] IN:2: [{}]", i, entry);
+            for (int i = data.size(); i < this.PLAN.size(); i++)
+            {
+                data.add("");
+            }
+        }
 
-            CSVRemap remap = remapList.getRemap(i);
+        if (data.size() > this.PLAN.size())
+        {
+            LOGGER.error("applyRemap(): Error; Remap at pos [{}] is empty!", this.PLAN.size());
+            return null;
+        }
 
-            if (remap == null)
+        for (int i = 0; i < data.size(); i++)
+        {
+            if (data.get(i) == null)
             {
-                LOGGER.error("applyRemap():3: Error; Remap at pos [{}] is empty!", i);
+                LOGGER.error("applyRemap(): Error; Entry at pos [{}] is empty!", i);
                 return null;
             }
+        }
 
-            //LOGGER.debug("applyRemap():2: [{}] toString [{}]", i, remap.toString());
+        // Pass 1 (To process any IF-STATIC)
+        for (CSVRemapPlan.IfStatic ifStatic : this.PLAN.getIfStatics())
+        {
+            String entry = data.get(ifStatic.id());
+            String otherEntry = data.get(ifStatic.field());
 
-            if (remap.getType() == RemapType.DROP)
+            if (LOGGER.isDebug())
             {
-                // Drop Field & advance (By simply ignoring it from the results)
-                LOGGER.debug("applyRemap():3: Performing Field drop [{}:{}] (Pass 2)", i, entry);
+                LOGGER.debug("applyRemap():1: IF_STATIC test [{}/{}] // otherField [{}/{}]", ifStatic.id(), entry, ifStatic.field(), otherEntry);
             }
-            else if (remap.getType() == RemapType.SWAP)
+
+            String ifResult = this.applyIfStaticEach(entry, otherEntry, ifStatic.params());
+
+            if (!ifResult.equalsIgnoreCase(entry))
             {
-                result.set(i, entry);
+                if (LOGGER.isDebug())
+                {
+                    LOGGER.debug("applyRemap():1: IF_STATIC applied to [{}/{}]", ifStatic.id(), entry);
+                }
+
+                data.set(ifStatic.id(), ifResult);
             }
-//            else if (remap.getType() == RemapType.COPY)
-//            {
-//                // Copy (Pass 3 -- from post-swap)
-//                List<String> params = remap.getParams();
-//
-//                if (params == null || params.isEmpty())
-//                {
-//                    LOGGER.warn("applyRemap():3: COPY error; No parameters given");
-//                    return null;
-//                }
-//
-//                try
-//                {
-//                    int copyId = Integer.parseInt(params.getFirst());
-//                    String otherEntry = data.get(copyId);
-//
-//                    LOGGER.debug("applyRemap():3: COPY [{}/{}] apply --> [{}/{}]", copyId, otherEntry, i, entry);
-//                    data.set(i, otherEntry);
-//                    remapList.setRemap(i, new CSVRemap(i, RemapType.NONE));
-//                }
-//                catch (Exception err)
-//                {
-//                    LOGGER.warn("applyRemap():3: COPY Exception; {}", err.getMessage());
-//                    return null;
-//                }
-//            }
             else
             {
-                Pair<Boolean, String> resultEach = this.applyRemapEach(remap, entry, data);
-
-                if (resultEach == null || resultEach.getRight() == null)
-                {
-                    LOGGER.warn("applyRemap():3: Error; ResultEach at pos [{}] is empty!", i);
-                    resultEach = Pair.of(false, entry);
-                }
+                LOGGER.debug("applyRemap():1: IF_STATIC no match found!");
+            }
+        }
 
-                if (resultEach.getLeft())
-                {
-                    exclude = true;
-                }
+        // Pass 2 (To process the swaps)
+        for (CSVRemapPlan.Swap swap : this.PLAN.getSwaps())
+        {
+            String entry = data.get(swap.id());
+            String otherEntry = data.get(swap.other());
 
-                //LOGGER.debug("[{}] OUT:2: [{}]", i, resultEach.getRight());
-                result.set(i, resultEach.getRight());
+            if (LOGGER.isDebug())
+            {
+                LOGGER.debug("applyRemap():2: Performing Field swap [{}:{} <-> {}:{}]", swap.id(), entry, swap.other(), otherEntry);
             }
+
+            data.set(swap.id(), otherEntry);
+            data.set(swap.other(), entry);
         }
 
-        LOGGER.debug("applyRemap(): Post pass 3 data size [{}], result size [{}]", data.size(), result.size());
+        List<String> result = new ArrayList<>(data);
+        boolean exclude = false;
 
-        if (result.size() > data.size())
+        // Pass 3 (To process the actual each-remaps)
+        for (int i = 0; i < data.size(); i++)
         {
-            LOGGER.warn("applyRemap(): Excess Results detected!");
+            CSVRemapCompiled remap = this.PLAN.getRemap(i);
+
+            // DROP is ignored from the results by the Output header
+            if (remap.isNoOp())
+            {
+                continue;
+            }
+
+            String entry = data.get(i);
+            Pair<Boolean, String> resultEach = this.applyRemapEach(remap, entry, data);
+
+            if (resultEach == null || resultEach.getRight() == null)
+            {
+                LOGGER.warn("applyRemap():3: Error; ResultEach at pos [{}] is empty!", i);
+                resultEach = Pair.of(false, entry);
+            }
+
+            if (resultEach.getLeft())
+            {
+                exclude = true;
+            }
+
+            result.set(i, resultEach.getRight());
         }
 
         return Pair.of(exclude, result);
@@ -508,20 +502,7 @@ public class OperationReformat extends Operation implements AutoCloseable
     @Override
     public void clear()
     {
-        if (this.FILE != null && !this.FILE.isEmpty())
-        {
-            this.FILE.clear();
-        }
-
-        if (this.OUT != null && !this.OUT.isEmpty())
-        {
-            this.OUT.clear();
-        }
-
-        if (this.EXCEPTIONS != null && !this.EXCEPTIONS.isEmpty())
-        {
-            this.EXCEPTIONS.clear();
-        }
+        this.PLAN = null;
 
         if (this.PARSER != null && !this.PARSER.isEmpty())
         {
@@ -532,21 +513,6 @@ public class OperationReformat extends Operation implements AutoCloseable
     @Override
     public void close() throws Exception
     {
-        if (this.FILE != null)
-        {
-            this.FILE.close();
-        }
-
-        if (this.OUT != null)
-        {
-            this.OUT.close();
-        }
-
-        if (this.EXCEPTIONS != null)
-        {
-            this.EXCEPTIONS.close();
-        }
-
         if (this.PARSER != null)
         {
             this.PARSER.close();
@@ -2,15 +2,17 @@ package csvtool.operation;
 
 import csvtool.data.Context;
 import csvtool.data.FileCache;
+import csvtool.data.SerialRegistry;
 import csvtool.enums.Operations;
 import csvtool.enums.Settings;
 import csvtool.utils.LogWrapper;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 public class OperationSerialize extends Operation implements AutoCloseable
 {
@@ -25,6 +27,9 @@ public class OperationSerialize extends Operation implements AutoCloseable
     private int keyId5;
 
     private final HashMap<Integer, List<String>> keyMap;
+    private final HashMap<List<String>, Integer> serialMap;
+    @Nullable
+    private SerialRegistry REGISTRY;
 
     public OperationSerialize(Operations op)
     {
@@ -37,6 +42,8 @@ public class OperationSerialize extends Operation implements AutoCloseable
         this.keyId4 = -1;
         this.keyId5 = -1;
         this.keyMap = new HashMap<>();
+        this.serialMap = new HashMap<>();
+        this.REGISTRY = null;
     }
 
     @Override
@@ -60,6 +67,16 @@ public class OperationSerialize extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().isColumnar())
+        {
+            super.toggleColumnar(true);
+        }
+
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         if (!ctx.getOpt().hasOutput())
         {
             LOGGER.error("runOperation(): Serialize FAILED, an output is required.");
@@ -159,6 +176,11 @@ public class OperationSerialize extends Operation implements AutoCloseable
                 }
             }
 
+            if (ctx.getOpt().hasSerialRegistry())
+            {
+                this.REGISTRY = new SerialRegistry(ctx.getOpt().getSerialRegistry());
+            }
+
             if (!this.serializeFile(this.FILE.getHeader().getId(ctx.getSettingValue(Settings.SERIAL_KEY)), ctx.getSettingValue(Settings.SERIAL_START), ctx.getSettingValue(Settings.SERIAL_END)))
             {
                 LOGGER.error("runOperation(): Serialize FAILED, attempt has failed.");
@@ -169,6 +191,14 @@ public class OperationSerialize extends Operation implements AutoCloseable
             if (this.writeFile(this.OUT, ctx.getOpt().isApplyQuotes(), false, ctx.getOpt().isDebug(), null))
             {
                 LOGGER.debug("runOperation(): --> File [{}] written successfully.", ctx.getSettingValue(Settings.OUTPUT));
+
+                if (this.REGISTRY != null && !this.REGISTRY.save())
+                {
+                    LOGGER.error("runOperation(): Serialize FAILED, unable to update the Serial Registry [{}].", this.REGISTRY.getFile());
+                    this.clear();
+                    return false;
+                }
+
                 this.clear();
                 return true;
             }
@@ -192,7 +222,6 @@ public class OperationSerialize extends Operation implements AutoCloseable
 
         int startNum;
         int endNum;
-        int currentNum;
 
         if (start != null)
         {
@@ -228,9 +257,41 @@ public class OperationSerialize extends Operation implements AutoCloseable
             endNum = Integer.MAX_VALUE;
         }
 
-        currentNum = startNum;
+        // The registry is only probed for the keys and serials in this file; new serials continue after the last registered one
+        if (this.REGISTRY != null)
+        {
+            LOGGER.debug("serializeFile(): Opening Serial Registry [{}] ...", this.REGISTRY.getFile());
+
+            if (!this.REGISTRY.open())
+            {
+                LOGGER.error("serializeFile(): Error opening Serial Registry [{}]", this.REGISTRY.getFile());
+                return false;
+            }
 
-        LOGGER.debug("serializeFile(): Inserting any existing serials...");
+            // The registry is only valid for the same set of keys
+            if (this.REGISTRY.getKeyCount() > 0 && this.REGISTRY.getKeyCount() != this.getKeyCount())
+            {
+                LOGGER.error("serializeFile(): Serial Registry [{}] has [{}] keys, but [{}] keys are in use.", this.REGISTRY.getFile(), this.REGISTRY.getKeyCount(), this.getKeyCount());
+                return false;
+            }
+
+            startNum = Math.max(startNum, this.REGISTRY.getMaxSerial());
+        }
+
+        try
+        {
+            return this.serializeLines(key, startNum, endNum);
+        }
+        catch (IOException err)
+        {
+            LOGGER.error("serializeFile(): Exception reading Serial Registry [{}]; {}", this.REGISTRY != null ? this.REGISTRY.getFile() : "", err.getMessage());
+            return false;
+        }
+    }
+
+    private boolean serializeLines(final int key, final int startNum, final int endNum) throws IOException
+    {
+        LOGGER.debug("serializeLines(): Inserting any existing serials...");
 
         // Scan for existing serials, place into HashMap<>
         for (int i = 1; i < this.FILE.getFile().size(); i++)
@@ -248,20 +309,21 @@ public class OperationSerialize extends Operation implements AutoCloseable
 
                     if (serialRec.isEmpty() || !this.tryAddOrCheckMap(entryNum, serialRec))
                     {
-                        LOGGER.error("serializeFile(): Error inserting Serial [{}/{}] from line [{}] into map!", entryNum, serialRec.toString(), i);
+                        LOGGER.error("serializeLines(): Error inserting Serial [{}/{}] from line [{}] into map!", entryNum, serialRec.toString(), i);
                         return false;
                     }
                 }
                 catch (NumberFormatException err)
                 {
-                    LOGGER.error("serializeFile(): Exception detecting existing serials on line [{}]; {}", i, err.getLocalizedMessage());
+                    LOGGER.error("serializeLines(): Exception detecting existing serials on line [{}]; {}", i, err.getLocalizedMessage());
                     return false;
                 }
             }
         }
 
-        LOGGER.debug("serializeFile(): Scanning and building new serials ...");
+        LOGGER.debug("serializeLines(): Scanning and building new serials ...");
         this.dumpKeyMap();
+        SerialAllocator allocator = new SerialAllocator(startNum, this.keyMap.keySet());
 
         // Build Serial Entries
         for (int i = 1; i < this.FILE.getFile().size(); i++)
@@ -278,7 +340,7 @@ public class OperationSerialize extends Operation implements AutoCloseable
 
                     if (!this.isMapped(entryNum))
                     {
-                        LOGGER.error("serializeFile(): Error parsing Serial [{}] from line [{}]; not mapped!", entryNum, i);
+                        LOGGER.error("serializeLines(): Error parsing Serial [{}] from line [{}]; not mapped!", entryNum, i);
                         return false;
                     }
 
@@ -287,15 +349,15 @@ public class OperationSerialize extends Operation implements AutoCloseable
                 }
                 catch (NumberFormatException err)
                 {
-                    LOGGER.error("serializeFile(): Exception reading existing serials on line [{}]; {}", i, err.getLocalizedMessage());
+                    LOGGER.error("serializeLines(): Exception reading existing serials on line [{}]; {}", i, err.getLocalizedMessage());
                     return false;
                 }
             }
             else
             {
-                if (currentNum >= endNum)
+                if (allocator.current() >= endNum)
                 {
-                    LOGGER.error("serializeFile(): Serial values exhausted! [{}] has reached [{}]", currentNum, endNum);
+                    LOGGER.error("serializeLines(): Serial values exhausted! [{}] has reached [{}]", allocator.current(), endNum);
                     return false;
                 }
 
@@ -304,29 +366,26 @@ public class OperationSerialize extends Operation implements AutoCloseable
 
                 if (serialRec.isEmpty())
                 {
-                    LOGGER.error("serializeFile(): Error building SerialRec from entry [{}] on line [{}]", entry.toString(), i);
+                    LOGGER.error("serializeLines(): Error building SerialRec from entry [{}] on line [{}]", entry.toString(), i);
                     return false;
                 }
 
                 int calcSerial = this.getKeyFromKeySet(serialRec);
 
-                LOGGER.debug("serializeFile(): LINE[{}] calcSerial [{}/{}]", i, calcSerial, serialRec.toString());
+                if (LOGGER.isDebug())
+                {
+                    LOGGER.debug("serializeLines(): LINE[{}] calcSerial [{}/{}]", i, calcSerial, serialRec);
+                }
 
                 if (calcSerial == -1)
                 {
-                    do
-                    {
-                        currentNum++;
+                    calcSerial = allocator.next();
 
-                        if (currentNum >= endNum)
-                        {
-                            LOGGER.error("serializeFile(): Serial values exhausted! [{}] has reached [{}]", currentNum, endNum);
-                            return false;
-                        }
+                    if (calcSerial >= endNum)
+                    {
+                        LOGGER.error("serializeLines(): Serial values exhausted! [{}] has reached [{}]", calcSerial, endNum);
+                        return false;
                     }
-                    while (this.isMapped(currentNum));
-
-                    calcSerial = currentNum;
                 }
 
                 if (this.tryAddOrCheckMap(calcSerial, serialRec))
@@ -338,13 +397,13 @@ public class OperationSerialize extends Operation implements AutoCloseable
                 else
                 {
                     // Error
-                    LOGGER.error("serializeFile(): Serial [{}/{}] mismatch, or insert failure on line [{}]", calcSerial, serialRec, i);
+                    LOGGER.error("serializeLines(): Serial [{}/{}] mismatch, or insert failure on line [{}]", calcSerial, serialRec, i);
                     return false;
                 }
             }
         }
 
-        LOGGER.debug("serializeFile(): Unique serial pair's detected: [{}]", this.keyMap.size());
+        LOGGER.debug("serializeLines(): Unique serial pair's detected: [{}]", this.keyMap.size());
         this.dumpKeyMap();
 
         // Everything good?  Okay.
@@ -380,7 +439,22 @@ public class OperationSerialize extends Operation implements AutoCloseable
         return list;
     }
 
-    private boolean tryAddOrCheckMap(final int key, List<String> keySet)
+    private int getKeyCount()
+    {
+        int size = 1;
+
+        for (int keyId : List.of(this.keyId2, this.keyId3, this.keyId4, this.keyId5))
+        {
+            if (keyId > -1)
+            {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    private boolean tryAddOrCheckMap(final int key, List<String> keySet) throws IOException
     {
         if (this.keyMap.containsKey(key))
         {
@@ -397,8 +471,31 @@ public class OperationSerialize extends Operation implements AutoCloseable
             }
         }
 
-        // Add
+        // Handed out by an earlier run
+        List<String> registered = this.REGISTRY != null ? this.REGISTRY.getKeySet(key) : null;
+
+        if (registered != null)
+        {
+            this.keyMap.put(key, registered);
+
+            if (!registered.equals(keySet))
+            {
+                LOGGER.error("tryAddToMap(): Serial [{}], already exists in the Serial Registry, but it doesn't match: keySet [{}]", key, keySet.toString());
+                return false;
+            }
+
+            return true;
+        }
+
+        // Add; the first serial seen for a keySet is the one that gets reused
         this.keyMap.put(key, keySet);
+        this.serialMap.putIfAbsent(keySet, key);
+
+        if (this.REGISTRY != null)
+        {
+            this.REGISTRY.add(key, keySet);
+        }
+
         return true;
     }
 
@@ -407,30 +504,26 @@ public class OperationSerialize extends Operation implements AutoCloseable
         return this.keyMap.containsKey(key);
     }
 
-    private int getKeyFromKeySet(List<String> keys)
+    private int getKeyFromKeySet(List<String> keys) throws IOException
     {
-        AtomicInteger atomic = new AtomicInteger(-1);
-
-        this.keyMap.forEach(
-                (key, map) ->
-                {
-                    if (map.equals(keys))
-                    {
-                        atomic.set(key);
-                    }
-                }
-        );
+        // A serial from an earlier run was seen first
+        int serial = this.REGISTRY != null ? this.REGISTRY.getSerial(keys) : -1;
 
-        return atomic.get();
+        return serial != -1 ? serial : this.serialMap.getOrDefault(keys, -1);
     }
 
     private void dumpKeyMap()
     {
+        if (!LOGGER.isDebug())
+        {
+            return;
+        }
+
         LOGGER.debug("dumpKeyMap() -->");
 
         this.keyMap.forEach(
                 (key, keySet) ->
-                        LOGGER.debug("key[{}], set [{}]", key, keySet.toString())
+                        LOGGER.debug("key[{}], set [{}]", key, keySet)
         );
 
         LOGGER.debug("dumpKeyMap() END");
@@ -476,6 +569,13 @@ public class OperationSerialize extends Operation implements AutoCloseable
         }
 
         this.keyMap.clear();
+        this.serialMap.clear();
+
+        if (this.REGISTRY != null)
+        {
+            this.REGISTRY.clear();
+            this.REGISTRY = null;
+        }
     }
 
     @Override
@@ -483,4 +583,42 @@ public class OperationSerialize extends Operation implements AutoCloseable
     {
         this.clear();
     }
+
+    // Hands out new serials in order, skipping any that are already in use; the used serials are sorted once,
+    // so that each gap is found by walking forward through them, instead of probing the keyMap one by one.
+    private static class SerialAllocator
+    {
+        private final int[] used;
+        private int index;
+        private int current;
+
+        private SerialAllocator(int start, Collection<Integer> used)
+        {
+            this.used = used.stream().mapToInt(Integer::intValue).filter(serial -> serial > start).sorted().toArray();
+            this.index = 0;
+            this.current = start;
+        }
+
+        private int current()
+        {
+            return this.current;
+        }
+
+        private int next()
+        {
+            this.current++;
+
+            while (this.index < this.used.length && this.used[this.index] <= this.current)
+            {
+                if (this.used[this.index] == this.current)
+                {
+                    this.current++;
+                }
+
+                this.index++;
+            }
+
+            return this.current;
+        }
+    }
 }
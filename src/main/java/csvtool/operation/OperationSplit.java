@@ -1,34 +1,52 @@
 package csvtool.operation;
 
 import csvtool.data.Context;
-import csvtool.data.FileCache;
 import csvtool.enums.Operations;
 import csvtool.enums.Settings;
+import csvtool.utils.CSVWrapper;
 import csvtool.utils.LogWrapper;
 import csvtool.utils.StringUtils;
 
+import javax.annotation.Nullable;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 
+// Streams the input into several output files; each row is written as soon as it is read, so only the
+// write buffers of the open files are held in memory.  A new file is started after (--split-rows) rows,
+// or once it reaches (--split-size), and/or for each value of the (--key) field.
 public class OperationSplit extends Operation implements AutoCloseable
 {
     private final LogWrapper LOGGER = new LogWrapper(this.getClass());
+    private static final int DEFAULT_MAX_WRITERS = 32;
+    private static final int MAX_NAME_LENGTH = 64;
 
-    private FileCache FILE;
-    private FileCache OUT;
-    private final HashMap<String, Integer> keyCounts;
-    private String lastKey;
+    private final HashMap<String, Part> parts;
+    private final LinkedHashMap<Part, CSVWrapper> writers;
+    private final HashSet<String> fileNames;
     private int keyId;
-    private final int maxLines = 2500;
+    private long maxRows;
+    private long maxBytes;
+    private int maxWriters;
+    private int filesWritten;
+    private int reopened;
 
     public OperationSplit(Operations op)
     {
         super(op);
-        this.FILE = new FileCache();
-        this.OUT = new FileCache();
-        this.keyCounts = new HashMap<>();
-        this.lastKey = "";
+        this.parts = new HashMap<>();
+        // Access order; so the least recently written file is the first one closed
+        this.writers = new LinkedHashMap<>(16, 0.75f, true);
+        this.fileNames = new HashSet<>();
         this.keyId = -1;
+        this.maxRows = 0;
+        this.maxBytes = 0;
+        this.maxWriters = DEFAULT_MAX_WRITERS;
+        this.filesWritten = 0;
+        this.reopened = 0;
     }
 
     @Override
@@ -52,168 +70,320 @@ public class OperationSplit extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         if (!ctx.getOpt().hasOutput())
         {
-            LOGGER.error("runOperation(): Split FAILED, Second input file and an output is required.");
+            LOGGER.error("runOperation(): Split FAILED, an output file is required.");
             return false;
         }
 
-        if (!ctx.getOpt().hasKey())
+        if (!ctx.getOpt().hasKey() && !ctx.getOpt().hasSplitRows() && !ctx.getOpt().hasSplitSize())
         {
-            LOGGER.error("runOperation(): Split FAILED, a key field is required.");
+            LOGGER.error("runOperation(): Split FAILED, a key field, (--split-rows), or (--split-size) is required.");
             return false;
         }
 
-        LOGGER.debug("runOperation(): --> SPLIT [{}] into [{}].", ctx.getInputFile(), ctx.getSettingValue(Settings.OUTPUT));
-
-        if (this.readFiles(ctx.getInputFile(), false, ctx.getOpt().isDebug()))
+        try
         {
-            LOGGER.debug("runOperation(): --> File [{}] read successfully.", ctx.getInputFile());
+            if (ctx.getOpt().hasSplitRows())
+            {
+                this.maxRows = Long.parseLong(ctx.getSettingValue(Settings.SPLIT_ROWS));
+            }
 
-            if (this.writeFiles(ctx.getOpt().isApplyQuotes(), ctx.getOpt().isDebug(), ctx.getOpt().getOutput(), ctx.getOpt().getKey()))
+            if (ctx.getOpt().hasSplitSize())
             {
-                LOGGER.debug("runOperation(): --> Files [{}] written successfully.", ctx.getSettingValue(Settings.OUTPUT));
-                this.clear();
-                return true;
+                this.maxBytes = Long.parseLong(ctx.getSettingValue(Settings.SPLIT_SIZE)) << 20;
             }
-            else
+
+            if (ctx.getOpt().hasMaxWriters())
             {
-                LOGGER.error("runOperation(): Write file FAILED.");
+                this.maxWriters = Integer.parseInt(ctx.getSettingValue(Settings.MAX_WRITERS));
             }
         }
+        catch (NumberFormatException err)
+        {
+            LOGGER.error("runOperation(): Split FAILED, Exception reading Split settings; {}", err.getLocalizedMessage());
+            return false;
+        }
 
-        LOGGER.error("runOperation(): General Operation failure.");
+        if ((ctx.getOpt().hasSplitRows() && this.maxRows < 1) ||
+            (ctx.getOpt().hasSplitSize() && this.maxBytes < 1) ||
+            this.maxWriters < 1)
+        {
+            LOGGER.error("runOperation(): Split FAILED, Split Rows, Split Size, and Max Writers must be at least 1.");
+            return false;
+        }
+
+        LOGGER.debug("runOperation(): --> SPLIT [{}] into [{}].", ctx.getInputFile(), ctx.getSettingValue(Settings.OUTPUT));
+
+        if (this.splitFile(ctx.getInputFile(), ctx.getOpt().getOutput(), ctx.getOpt().hasKey() ? ctx.getOpt().getKey() : null,
+                           ctx.getOpt().isApplyQuotes(), ctx.getOpt().isAppendOutput()))
+        {
+            LOGGER.info("runOperation(): --> [{}] Files [{}] written successfully.", this.filesWritten, ctx.getSettingValue(Settings.OUTPUT));
+            this.clear();
+            return true;
+        }
+
+        LOGGER.error("runOperation(): Split FAILED, Write files FAILED.");
+        this.clear();
         return false;
     }
 
-    private boolean writeFiles(boolean applyQuotes, boolean debug, String out, String key)
+    private boolean splitFile(String input, String output, @Nullable String key, boolean applyQuotes, boolean append)
     {
-        int fileNum = 0;
-        this.keyId = this.FILE.getHeader().getId(key);
+        try (CSVWrapper reader = this.openFileReader(input, true, false))
+        {
+            if (reader == null || reader.getHeader() == null)
+            {
+                LOGGER.error("splitFile(): Input File [{}] could not be read!", input);
+                return false;
+            }
 
-        String outName = StringUtils.addFileSuffix(out, "_" + fileNum);
-        this.OUT.setHeader(this.FILE.getHeader());
-        this.OUT.setFileName(outName);
+            List<String> header = reader.getHeader().stream().toList();
 
-        for (int i = 1; i < this.FILE.getFile().size(); i++)
-        {
-            List<String> entry = this.FILE.getLine(i);
-            String keyEntry = entry.get(this.keyId);
+            if (key != null)
+            {
+                this.keyId = reader.getHeader().getId(key);
 
-            LOGGER.debug("writeFiles(): LINE[{}]: {}", i, entry.toString());
+                if (this.keyId < 0)
+                {
+                    LOGGER.error("splitFile(): Key field [{}] was not found in the Input File!", key);
+                    return false;
+                }
+            }
+
+            List<String> entry;
+            long rows = 0;
 
-            if (this.countKeysAndSplit(keyEntry, this.OUT.getFile().size()))
+            while ((entry = reader.readNext()) != null)
             {
-                // Write Advance File #
-                this.writeFile(this.OUT, applyQuotes, false, debug, null);
-                this.OUT.clear();
-
-                fileNum++;
-                outName = StringUtils.addFileSuffix(out, "_" + fileNum);
-                this.OUT = new FileCache();
-                this.OUT.setHeader(this.FILE.getHeader());
-                this.OUT.setFileName(outName);
-                LOGGER.debug("writeFiles(): LINE[{}]: --> SPLIT FILE ({})", i, outName);
+                if (entry.isEmpty())
+                {
+                    continue;
+                }
+
+                String value = this.keyId < 0 ? "" : this.keyId < entry.size() && entry.get(this.keyId) != null ? entry.get(this.keyId) : "";
+                Part part = this.parts.get(value);
+
+                if (part == null)
+                {
+                    part = new Part(this.keyId < 0 ? null : this.uniqueName(value));
+                    this.parts.put(value, part);
+                }
+
+                CSVWrapper writer = this.getWriter(part, output, header, applyQuotes, append);
+
+                if (writer == null || !writer.writeNext(entry))
+                {
+                    LOGGER.error("splitFile(): Writing line [{}] to File [{}] has failed!", rows + 1, part.file);
+                    return false;
+                }
+
+                part.rows++;
+                rows++;
             }
 
-            this.OUT.addLine(entry);
-        }
+            if (this.reopened > 0)
+            {
+                LOGGER.warn("splitFile(): Files were closed and reopened [{}] times; raise (--max-writers), or sort the input by the key field.", this.reopened);
+            }
 
-        if (!this.OUT.isEmpty())
+            LOGGER.info("splitFile(): [{}] rows split into [{}] files.", rows, this.filesWritten);
+            return this.closeWriters();
+        }
+        catch (Exception e)
         {
-            this.writeFile(this.OUT, applyQuotes, false, debug, null);
-            this.OUT.clear();
+            LOGGER.error("splitFile(): Exception splitting file! Error: {}", e.getMessage());
+            return false;
+        }
+        finally
+        {
+            this.writers.values().forEach(this::closeQuietly);
+            this.writers.clear();
         }
-
-        return true;
     }
 
-    private boolean countKeysAndSplit(String key, int line)
+    // The part's open writer; moved onto the next file once the current one is full, or reopened (appending) if it was closed
+    private @Nullable CSVWrapper getWriter(Part part, String output, List<String> header, boolean applyQuotes, boolean append) throws Exception
     {
-        int count;
+        CSVWrapper writer = this.writers.get(part);
 
-        if (this.keyCounts.containsKey(key))
+        if (part.file != null && this.isFull(part, writer))
         {
-            count = this.keyCounts.get(key);
-            count++;
-            this.keyCounts.put(key, count);
+            this.closeWriter(part);
+            writer = null;
+            part.next();
         }
-        else
+
+        if (writer != null)
         {
-            this.keyCounts.put(key, 1);
-            count = 1;
+            return writer;
         }
 
-        if (this.lastKey.isEmpty())
+        if (this.writers.size() >= this.maxWriters)
         {
-            this.lastKey = key;
+            this.closeWriter(this.writers.keySet().iterator().next());
         }
 
-        if (this.lastKey.equals(key))
+        boolean reopen = part.file != null;
+
+        if (reopen)
         {
-            return false;
+            this.reopened++;
         }
         else
         {
-            this.lastKey = key;
+            part.file = StringUtils.addFileSuffix(output, this.fileSuffix(part));
+            this.filesWritten++;
         }
 
-        boolean result = count > this.maxLines || line > this.maxLines;
+        LOGGER.debug("getWriter(): {} File [{}].", reopen ? "Reopening" : "Starting", part.file);
+        writer = reopen ? this.reopenFileWriter(part.file, header, applyQuotes) : this.openFileWriter(part.file, header, applyQuotes, append);
 
-        if (result)
+        if (writer != null)
         {
-            this.keyCounts.clear();
+            this.writers.put(part, writer);
         }
-        else
+
+        return writer;
+    }
+
+    private boolean isFull(Part part, @Nullable CSVWrapper writer)
+    {
+        if (this.maxRows > 0 && part.rows >= this.maxRows)
         {
-            this.lastKey = key;
+            return true;
         }
 
-        return result;
+        return this.maxBytes > 0 && part.bytes + (writer != null ? writer.getBytesWritten() : 0) >= this.maxBytes;
     }
 
-    @Override
-    public void displayHelp()
+    // Same as before; (output)_0, (output)_1 ... or (output)_key, with _0, _1 ... if it also splits by rows or size
+    private String fileSuffix(Part part)
     {
-        System.out.print("Split Operation:\n");
-//        System.out.printf("\tAliases: %s\n\n", Operations.SPLIT.getAlias().toString());
+        boolean numbered = this.maxRows > 0 || this.maxBytes > 0;
 
-//        System.out.print("This operation merges two files into a single output file.\n");
-//        System.out.print("It accepts two input files (--input), and an output (--output).\n");
-//        System.out.print("You can also pass the (--de-dupe) operation with requires a key field (--key) to be set.\n");
-//        System.out.print("De-Dupe compares the files, and removes duplicate rows based on the key field given.\n");
-        System.out.print("\n");
+        if (part.name == null)
+        {
+            return "_" + part.number;
+        }
+
+        return numbered ? "_" + part.name + "_" + part.number : "_" + part.name;
     }
 
-    private boolean readFiles(String file, boolean ignoreQuotes, boolean debug)
+    // Key values are made safe for a file name; values that end up with the same name are numbered.
+    // Names are compared ignoring case, since Smith and smith would be the same file on a case-insensitive filesystem.
+    private String uniqueName(String value)
     {
-        LOGGER.debug("readFiles(): Reading file [{}] ...", file);
+        String name = value.isEmpty() ? "empty" : value.replaceAll("[^A-Za-z0-9.\\-]", "_");
+
+        if (name.length() > MAX_NAME_LENGTH)
+        {
+            name = name.substring(0, MAX_NAME_LENGTH);
+        }
 
-        this.FILE = this.readFile(file, ignoreQuotes, false);
+        String result = name;
 
-        if (this.FILE == null)
+        for (int i = 1; !this.fileNames.add(result.toLowerCase(Locale.ROOT)); i++)
         {
-            LOGGER.error("readFiles(): File Cache is Empty!");
-            return false;
+            result = name + "-" + i;
+        }
+
+        return result;
+    }
+
+    private void closeWriter(Part part) throws Exception
+    {
+        CSVWrapper writer = this.writers.remove(part);
+
+        if (writer != null)
+        {
+            part.bytes += writer.getBytesWritten();
+            writer.close();
+        }
+    }
+
+    private boolean closeWriters()
+    {
+        Iterator<CSVWrapper> iter = this.writers.values().iterator();
+
+        while (iter.hasNext())
+        {
+            CSVWrapper writer = iter.next();
+
+            try
+            {
+                writer.close();
+            }
+            catch (Exception e)
+            {
+                LOGGER.error("closeWriters(): Exception closing File [{}]! Error: {}", writer.getFile(), e.getMessage());
+                return false;
+            }
+
+            iter.remove();
         }
 
         return true;
     }
 
     @Override
-    public void clear()
+    public void displayHelp()
     {
-        if (this.FILE != null && !this.FILE.isEmpty())
+        System.out.print("Split Operation:\n");
+        System.out.printf("\tAliases: %s\n\n", Operations.SPLIT.getAlias().toString());
+
+        System.out.print("This operation splits one input file into several output files, each with the same headers.\n");
+        System.out.print("It accepts one input file (--input), and an output (--output) that each file is named after;\n");
+        System.out.print("(ie. out_0.csv, out_1.csv ...), and at least one of the following:\n");
+        System.out.print("(--split-rows) starts a new file after this many rows, (--split-size) starts a new file once it reaches this many MB,\n");
+        System.out.print("and a key field (--key) writes the rows for each value of the key into their own files (ie. out_value.csv).\n");
+        System.out.print("The input is streamed, and every row is written as it is read.  When splitting by key, up to (--max-writers)\n");
+        System.out.print("files are kept open (Default: 32); files that were closed are reopened, and appended to if the key comes back.\n");
+        System.out.print("\n");
+    }
+
+    // The files written for one key value (or all rows, without a key); numbered from 0 when they are split by rows or size
+    private static class Part
+    {
+        private final @Nullable String name;
+        private @Nullable String file;
+        private int number;
+        private long rows;
+        private long bytes;
+
+        private Part(@Nullable String name)
         {
-            this.FILE.clear();
+            this.name = name;
+            this.file = null;
+            this.number = 0;
+            this.rows = 0;
+            this.bytes = 0;
         }
 
-        if (this.OUT != null && !this.OUT.isEmpty())
+        private void next()
         {
-            this.OUT.clear();
+            this.file = null;
+            this.number++;
+            this.rows = 0;
+            this.bytes = 0;
         }
     }
 
+    @Override
+    public void clear()
+    {
+        this.writers.values().forEach(this::closeQuietly);
+        this.writers.clear();
+        this.parts.clear();
+        this.fileNames.clear();
+        this.keyId = -1;
+    }
+
     @Override
     public void close()
     {
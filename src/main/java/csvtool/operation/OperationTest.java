@@ -1,21 +1,20 @@
 package csvtool.operation;
 
 import csvtool.data.Context;
-import csvtool.data.FileCache;
 import csvtool.enums.Operations;
 import csvtool.enums.Settings;
+import csvtool.utils.CSVWrapper;
 import csvtool.utils.LogWrapper;
 
+import java.util.List;
+
 public class OperationTest extends Operation implements AutoCloseable
 {
     private final LogWrapper LOGGER = new LogWrapper(this.getClass());
 
-    private FileCache FILE;
-
     public OperationTest(Operations op)
     {
         super(op);
-        this.FILE = new FileCache();
     }
 
     @Override
@@ -39,30 +38,30 @@ public class OperationTest extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         LOGGER.debug("runOperation(): --> TEST");
 
-        if (readFileAndDump(ctx.getInputFile(), false, ctx.getOpt().isDebug()))
+        if (ctx.getOpt().hasOutput())
         {
-            LOGGER.debug("runOperation(): --> File [{}] read successfully.", ctx.getInputFile());
-
-            if (ctx.getOpt().hasOutput())
+            if (this.copyFileStreaming(ctx.getInputFile(), ctx.getOpt().getOutput(), false, ctx.getOpt().isApplyQuotes(), ctx.getOpt().isAppendOutput(), ctx.getOpt().isDebug()))
             {
-                if (writeFileAndDump(ctx.getOpt().getOutput(), ctx.getOpt().isApplyQuotes(), ctx.getOpt().isAppendOutput(), ctx.getOpt().isDebug()))
-                {
-                    LOGGER.debug("runOperation(): --> File [{}] written successfully.", ctx.getSettingValue(Settings.OUTPUT));
-                    this.clear();
-                    return true;
-                }
-                else
-                {
-                    LOGGER.error("runOperation(): Write file FAILED.");
-                }
+                LOGGER.debug("runOperation(): --> File [{}] written successfully.", ctx.getSettingValue(Settings.OUTPUT));
+                this.clear();
+                return true;
             }
             else
             {
-                LOGGER.error("runOperation(): No Output given!");
+                LOGGER.error("runOperation(): Write file FAILED.");
             }
         }
+        else
+        {
+            LOGGER.error("runOperation(): No Output given!");
+        }
 
         LOGGER.error("runOperation(): General Operation failure.");
         return false;
@@ -79,33 +78,59 @@ public class OperationTest extends Operation implements AutoCloseable
         System.out.print("\n");
     }
 
-    private boolean readFileAndDump(String file, boolean ignoreQuotes, boolean debug)
+    // Copies each line as it is read, so that the file is never held in memory.
+    private boolean copyFileStreaming(String input, String output, boolean ignoreQuotes, boolean applyQuotes, boolean append, boolean debug)
     {
-        this.FILE = this.readFile(file, ignoreQuotes, debug);
-        return this.FILE != null && !this.FILE.isEmpty();
-    }
+        try (CSVWrapper reader = this.openFileReader(input, true, ignoreQuotes))
+        {
+            if (reader == null || reader.getHeader() == null)
+            {
+                LOGGER.error("copyFileStreaming(): Failed to read input file [{}]!", input);
+                return false;
+            }
 
-    private boolean writeFileAndDump(String file, boolean applyQuotes, boolean append, boolean debug)
-    {
-        this.FILE.setFileName(file);
-        return this.writeFile(this.FILE, applyQuotes, append, debug, null);
-    }
+            try (CSVWrapper writer = this.openFileWriter(output, reader.getHeader().stream().toList(), applyQuotes, append))
+            {
+                if (writer == null)
+                {
+                    LOGGER.error("copyFileStreaming(): Failed to open output file [{}]!", output);
+                    return false;
+                }
 
-    @Override
-    public void clear()
-    {
-        if (this.FILE != null && !this.FILE.isEmpty())
+                List<String> entry;
+                int line = 1;
+
+                while ((entry = reader.readNext()) != null)
+                {
+                    if (debug)
+                    {
+                        LOGGER.debug("copyFileStreaming(): LINE[{}] --> {}", line, entry);
+                    }
+
+                    if (!writer.writeNext(entry))
+                    {
+                        LOGGER.error("copyFileStreaming(): Writing line [{}] to File [{}] has failed!", line, output);
+                        return false;
+                    }
+
+                    line++;
+                }
+
+                LOGGER.info("copyFileStreaming(): [{}] lines copied.", line - 1);
+                return true;
+            }
+        }
+        catch (Exception e)
         {
-            this.FILE.clear();
+            LOGGER.error("copyFileStreaming(): Exception copying file! Error: {}", e.getMessage());
         }
+
+        return false;
     }
 
     @Override
-    public void close() throws Exception
+    public void close()
     {
-        if (this.FILE != null)
-        {
-            this.FILE.close();
-        }
+        this.clear();
     }
 }
@@ -8,6 +8,7 @@ import csvtool.enums.Settings;
 import csvtool.header.CSVHeader;
 import csvtool.transform.HeaderTransformList;
 import csvtool.transform.HeaderTransformParser;
+import csvtool.transform.TransformTemplate;
 import csvtool.utils.LogWrapper;
 
 import java.util.ArrayList;
@@ -22,6 +23,7 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
     private FileCache FILE;
     private final FileCache OUT;
     private final HashMap<String, Integer> transformKeys;
+    private final HashMap<Integer, List<String>> rows;
     private final HashMap<String, HashMap<String, Integer>> transformSubkeys;
     private int indexStart;
 
@@ -32,6 +34,7 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
         this.FILE = new FileCache();
         this.OUT = new FileCache();
         this.transformKeys = new HashMap<>();
+        this.rows = new HashMap<>();
         this.transformSubkeys = new HashMap<>();
         this.indexStart = -1;
     }
@@ -57,6 +60,16 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
             LOGGER.toggleAnsiColor(true);
         }
 
+        if (ctx.getOpt().isColumnar())
+        {
+            super.toggleColumnar(true);
+        }
+
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
         if (!ctx.getOpt().hasHeaders())
         {
             LOGGER.error("runOperation(): Transform FAILED, a Transform Config file is required.");
@@ -211,6 +224,33 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
             this.PARSER.dumpTransformList();
         }
 
+        HeaderTransformList transforms = this.PARSER.getTransformList();
+
+        if (transforms == null)
+        {
+            LOGGER.error("applyTransforms(): transforms is null!");
+            return false;
+        }
+
+        // Each format is only parsed once; not for every row
+        TransformTemplate[] templates = new TransformTemplate[transforms.size()];
+
+        try
+        {
+            for (int i = 0; i < transforms.size(); i++)
+            {
+                HeaderTransformList.Entry entry = transforms.getEntry(i);
+                templates[i] = entry != null ? entry.compile() : null;
+            }
+        }
+        catch (NumberFormatException err)
+        {
+            LOGGER.error("applyTransforms(): Exception compiling transforms; {}", err.getLocalizedMessage());
+            return false;
+        }
+
+        StringBuilder result = new StringBuilder();
+
         for (int i = 0; i < this.FILE.getFile().size(); i++)
         {
             List<String> entry = this.FILE.getFile().get(i);
@@ -218,7 +258,7 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
             // Ignore header
             if (i != 0 && !entry.isEmpty())
             {
-                if (!this.applyTransformEachLine(keyId, subkeyId, entry))
+                if (!this.applyTransformEachLine(keyId, subkeyId, entry, transforms, templates, result))
                 {
                     LOGGER.error("applyTransforms(): Transform failure on line [{}]", i);
                     return false;
@@ -226,10 +266,15 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
             }
         }
 
+        // Each output row is only copied once, now that all of its transforms have been applied
+        this.rows.forEach(this.OUT::setLine);
+        this.rows.clear();
+
         return true;
     }
 
-    private boolean applyTransformEachLine(final int keyId, final int subkeyId, List<String> list)
+    private boolean applyTransformEachLine(final int keyId, final int subkeyId, List<String> list,
+                                           HeaderTransformList transforms, TransformTemplate[] templates, StringBuilder result)
     {
         if (keyId > list.size() || subkeyId > list.size())
         {
@@ -245,13 +290,7 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
         final int lineKeyIndex = this.calcLineKeyIndex(keyEntry);
         final int subkeyIndex = this.calcTransformSubkeyIndex(keyEntry, subkeyEntry);
 //        LOGGER.debug("applyTransformEachLine(): lineKeyIndex [{}], subkeyIndex [{}]", lineKeyIndex, subkeyIndex);
-        HeaderTransformList transforms = this.PARSER.getTransformList();
-
-        if (transforms == null)
-        {
-            LOGGER.error("applyTransformEachLine(): transforms is null!");
-            return false;
-        }
+        List<String> data = null;
 
         for (int i = 0; i < transforms.size(); i++)
         {
@@ -260,31 +299,20 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
             if (entry != null)
             {
 //                LOGGER.debug("applyTransformEachLine(): Transform [{}] debug [{}]", i, entry.toString());
-                String result = entry.reformat(subkeyEntry, subkeyIndex, list);
+                result.setLength(0);
+                templates[i].render(result, subkeyEntry, subkeyIndex, list);
 //                LOGGER.debug("applyTransformEachLine(): Transform [{}] result [{}]", i, result);
 
-                final int col = this.calcHeaderColumn(result);
+                final int col = this.calcHeaderColumn(result.toString());
 
                 if (col > 0)
                 {
-                    List<String> data = new ArrayList<>(this.OUT.getHeader().size());
-
-                    if (this.OUT.hasLine(lineKeyIndex))
-                    {
-                        data.addAll(this.OUT.getLine(lineKeyIndex));
-                    }
-                    else
+                    if (data == null)
                     {
-                        data.addAll(list);
+                        data = this.getOutputRow(lineKeyIndex, list);
                     }
 
-                    if (data.size() < this.OUT.getHeader().size())
-                    {
-                        for (int j = data.size(); j < this.OUT.getHeader().size(); j++)
-                        {
-                            data.add("");
-                        }
-                    }
+                    fitRow(data, this.OUT.getHeader().size());
 
                     if (entry.data() < 0 || entry.data() > list.size())
                     {
@@ -296,7 +324,6 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
                     }
 
 //                    LOGGER.debug("applyTransformEachLine(): Setline [{}] data [{}]", lineKeyIndex, data.toString());
-                    this.OUT.setLine(lineKeyIndex, data);
                 }
                 else
                 {
@@ -315,6 +342,35 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
         return true;
     }
 
+    // Output rows are built in place; started from the key's first input row, and grown as columns are added
+    private List<String> getOutputRow(int lineKeyIndex, List<String> list)
+    {
+        List<String> data = this.rows.get(lineKeyIndex);
+
+        if (data == null)
+        {
+            data = new ArrayList<>(Math.max(list.size(), this.OUT.getHeader().size()));
+            data.addAll(list);
+            this.rows.put(lineKeyIndex, data);
+        }
+
+        return data;
+    }
+
+    // Same as setLine(); padded, or truncated to the header size
+    private static void fitRow(List<String> data, int size)
+    {
+        while (data.size() < size)
+        {
+            data.add("");
+        }
+
+        while (data.size() > size)
+        {
+            data.removeLast();
+        }
+    }
+
     private int calcLineKeyIndex(String key)
     {
         if (this.transformKeys.isEmpty())
@@ -378,12 +434,21 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
         if (col == -1)
         {
             // Not found, add column
-            LOGGER.debug("calcHeaderColumn(): Add column [{}] (size: {})", column, this.OUT.getHeader().size());
+            if (LOGGER.isDebug())
+            {
+                LOGGER.debug("calcHeaderColumn(): Add column [{}] (size: {})", column, this.OUT.getHeader().size());
+            }
+
             this.OUT.appendHeader(column);
         }
 
         final int check = this.OUT.getHeader().getId(column);
-        LOGGER.debug("calcHeaderColumn(): column '{}' found at index [{}]", column, check);
+
+        if (LOGGER.isDebug())
+        {
+            LOGGER.debug("calcHeaderColumn(): column '{}' found at index [{}]", column, check);
+        }
+
         return check;
     }
 
@@ -407,6 +472,7 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
 
         this.transformKeys.clear();
         this.transformSubkeys.clear();
+        this.rows.clear();
     }
 
     @Override
@@ -429,5 +495,6 @@ public class OperationTransformExpand extends Operation implements AutoCloseable
 
         this.transformKeys.clear();
         this.transformSubkeys.clear();
+        this.rows.clear();
     }
 }
@@ -1,30 +1,158 @@
 package csvtool.operation;
 
+import csvtool.data.Const;
 import csvtool.data.Context;
-import csvtool.data.FileCache;
 import csvtool.enums.Operations;
+import csvtool.enums.Settings;
+import csvtool.header.CSVHeader;
+import csvtool.transform.HeaderTransformList;
 import csvtool.transform.HeaderTransformParser;
+import csvtool.transform.TransformTemplate;
+import csvtool.utils.CSVWrapper;
+import csvtool.utils.ExternalSorter;
 import csvtool.utils.LogWrapper;
 
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// The inverse of TRANSFORM_EXPAND; each expanded column is matched back to the transform that generated it,
+// and the values for each (subkey, index) are collapsed into their own row, with the original header.
 public class OperationTransformSquash extends Operation implements AutoCloseable
 {
-    private final LogWrapper LOGGER = new LogWrapper(getClass());
+    private final LogWrapper LOGGER = new LogWrapper(this.getClass());
+    private static final int DEFAULT_RUN_SIZE = 1 << 16;
+    private static final int NO_INDEX = Integer.MIN_VALUE;
 
     private final HeaderTransformParser PARSER;
-    private final FileCache FILE;
-    private final FileCache OUT;
+    private final List<Slot> slots;
+    private int[] baseIds;
+    private boolean[] grouped;
+    private int subkeyId;
+    private int runSize;
+    private boolean sorted;
 
     public OperationTransformSquash(Operations op)
     {
         super(op);
         this.PARSER = new HeaderTransformParser();
-        this.FILE = new FileCache();
-        this.OUT = new FileCache();
+        this.slots = new ArrayList<>();
+        this.baseIds = new int[0];
+        this.grouped = new boolean[0];
+        this.subkeyId = -1;
+        this.runSize = DEFAULT_RUN_SIZE;
+        this.sorted = true;
     }
 
+    @Override
     public boolean runOperation(Context ctx)
     {
-        LOGGER.debug("runOperation() [SQUASH]");
+        if (ctx.getOpt().isQuiet())
+        {
+            super.toggleQuiet(true);
+            LOGGER.toggleQuiet(true);
+        }
+
+        if (ctx.getOpt().isDebug())
+        {
+            super.toggleDebug(true);
+            LOGGER.toggleDebug(true);
+        }
+
+        if (ctx.getOpt().isAnsiColors())
+        {
+            super.toggleAnsiColor(true);
+            LOGGER.toggleAnsiColor(true);
+        }
+
+        if (ctx.getOpt().hasWriteBuffer())
+        {
+            super.setWriteBuffer(ctx.getSettingValue(Settings.WRITE_BUFFER));
+        }
+
+        if (!ctx.getOpt().hasHeaders())
+        {
+            LOGGER.error("runOperation(): Squash FAILED, a Transform Config file is required.");
+            return false;
+        }
+
+        if (!ctx.getOpt().hasOutput())
+        {
+            LOGGER.error("runOperation(): Squash FAILED, a Output file is required.");
+            return false;
+        }
+
+        if (!ctx.getOpt().hasKey())
+        {
+            LOGGER.error("runOperation(): Squash FAILED, a key (Primary) field is required.");
+            return false;
+        }
+
+        if (ctx.getOpt().hasSpill())
+        {
+            try
+            {
+                this.runSize = Integer.parseInt(ctx.getSettingValue(Settings.SPILL));
+            }
+            catch (NumberFormatException err)
+            {
+                LOGGER.error("runOperation(): Squash FAILED, Exception reading Spill value; {}", err.getLocalizedMessage());
+                return false;
+            }
+
+            if (this.runSize < 1)
+            {
+                LOGGER.error("runOperation(): Squash FAILED, Spill value must be at least 1.");
+                return false;
+            }
+        }
+
+        LOGGER.debug("runOperation(): --> Input [{}], Transform Config [{}], Output [{}]", ctx.getInputFile(), ctx.getSettingValue(Settings.HEADERS), ctx.getSettingValue(Settings.OUTPUT));
+
+        if (this.PARSER.init(ctx, false))
+        {
+            LOGGER.debug("runOperation(): --> Transform Config Parser initialized.");
+
+            if (this.PARSER.loadConfig())
+            {
+                if (!this.PARSER.checkTransformList())
+                {
+                    LOGGER.error("runOperation(): Squash FAILED, checkTransformList() has failed.");
+                    return false;
+                }
+
+                LOGGER.debug("runOperation(): --> Transform Parser loaded config from [{}].", this.PARSER.getHeaderConfigFile());
+
+                if (this.squashFile(ctx.getInputFile(), ctx.getOpt().getKey(), ctx.getOpt().getOutput(), ctx.getOpt().isApplyQuotes(), ctx.getOpt().isAppendOutput()))
+                {
+                    LOGGER.info("runOperation(): --> File Output saved as [{}].", ctx.getSettingValue(Settings.OUTPUT));
+                    this.clear();
+                    return true;
+                }
+                else
+                {
+                    LOGGER.error("runOperation(): File squash has failed!");
+                    this.clear();
+                    return false;
+                }
+            }
+            else
+            {
+                LOGGER.error("runOperation(): --> Failed to load transform config [{}]!", this.PARSER.getHeaderConfigFile());
+                return false;
+            }
+        }
+
+        LOGGER.error("runOperation(): General Operation failure.");
         return false;
     }
 
@@ -32,48 +160,621 @@ public class OperationTransformSquash extends Operation implements AutoCloseable
     public void displayHelp()
     {
         System.out.print("Header Squash Operation:\n");
-//        System.out.printf("\tAliases: %s\n\n", Operations.TRANSFORM_SQUASH.getAlias().toString());
+        System.out.printf("\tAliases: %s\n\n", Operations.TRANSFORM_SQUASH.getAlias().toString());
 
-//        System.out.print("It accepts one input file (--input), and an output (--output).\n");
-//        System.out.print("This operation simply copies the input to the output file to test the inner-workings of this program.\n");
+        System.out.print("This operation is the reverse of '--transform-expand'; it 'squashes' the expanded columns of a CSV file\n");
+        System.out.print("back into rows with the original headers, using the same 'transform.json' configuration file.\n");
+        System.out.print("Each expanded column is matched against the TransformType formats, and its values are\n");
+        System.out.print("collapsed into one row for each subkey value and index ({i}) of each key (--key).\n");
+        System.out.print("The input is streamed; when it is sorted by the key, only one key is held in memory at a time,\n");
+        System.out.print("otherwise it is sorted by the key into temporary files, of (--spill) rows each (Default: 65536), and squashed again.\n");
         System.out.print("\n");
     }
 
-    @Override
-    public void clear()
+    private boolean squashFile(String input, String key, String output, boolean applyQuotes, boolean append)
     {
-        if (this.FILE != null && !this.FILE.isEmpty())
+        LOGGER.debug("squashFile(): Squashing ...");
+        CSVHeader baseHeader = this.PARSER.getInputHeader();
+        HeaderTransformList transforms = this.PARSER.getTransformList();
+
+        if (baseHeader == null || baseHeader.isEmpty() || transforms == null)
         {
-            this.FILE.clear();
+            LOGGER.error("squashFile(): Transform Config headers or transforms are Empty!");
+            return false;
         }
 
-        if (this.OUT != null && !this.OUT.isEmpty())
+        if (Const.DEBUG)
         {
-            this.OUT.clear();
+            this.PARSER.dumpTransformList();
         }
 
-        if (this.PARSER != null && !this.PARSER.isEmpty())
+        List<String> header = baseHeader.stream().toList();
+        final int keyId;
+        long outputLength = -1;
+
+        try
         {
-            this.PARSER.clear();
+            // Appending; so that the output can be put back if the sorted pass has to be thrown away
+            if (append && Files.exists(Path.of(output)))
+            {
+                outputLength = Files.size(Path.of(output));
+            }
         }
+        catch (IOException e)
+        {
+            LOGGER.error("squashFile(): Exception reading Output File [{}] size! Error: {}", output, e.getMessage());
+            return false;
+        }
+
+        try (CSVWrapper reader = this.openFileReader(input, true, false))
+        {
+            if (reader == null || reader.getHeader() == null)
+            {
+                LOGGER.error("squashFile(): Input File [{}] could not be read!", input);
+                return false;
+            }
+
+            keyId = reader.getHeader().getId(key);
+
+            if (keyId < 0)
+            {
+                LOGGER.error("squashFile(): Key field [{}] was not found in the Input File!", key);
+                return false;
+            }
+
+            if (!this.buildSlots(reader.getHeader(), baseHeader, transforms))
+            {
+                return false;
+            }
+
+            try (CSVWrapper writer = this.openFileWriter(output, header, applyQuotes, append))
+            {
+                if (writer == null)
+                {
+                    LOGGER.error("squashFile(): File output [{}] has failed!", output);
+                    return false;
+                }
+
+                if (!this.squashRows(reader::readNext, writer, keyId))
+                {
+                    return false;
+                }
+
+                if (this.sorted)
+                {
+                    return true;
+                }
+            }
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("squashFile(): Exception squashing file! Error: {}", e.getMessage());
+            return false;
+        }
+
+        if (append && !this.resetOutput(output, outputLength))
+        {
+            return false;
+        }
+
+        return this.squashSorted(input, output, header, keyId, applyQuotes, append);
     }
 
-    @Override
-    public void close() throws Exception
+    // Input that is not grouped by key; it is sorted by (key, line) into runs of runSize rows, and the merged
+    // runs are squashed the same as sorted input.  The output of the sorted pass was thrown away, so it is rewritten.
+    private boolean squashSorted(String input, String output, List<String> header, int keyId, boolean applyQuotes, boolean append)
+    {
+        final Comparator<ExternalSorter.Row> byKey = Comparator
+                .comparing((ExternalSorter.Row row) -> keyOf(row.getData(), keyId), OperationTransformSquash::compareKeys)
+                .thenComparingLong(ExternalSorter.Row::getLine);
+
+        try (CSVWrapper reader = this.openFileReader(input, true, false);
+             ExternalSorter sorter = new ExternalSorter("squash", byKey, this.runSize))
+        {
+            if (reader == null || reader.getHeader() == null)
+            {
+                LOGGER.error("squashSorted(): Input File [{}] could not be read!", input);
+                return false;
+            }
+
+            List<String> entry;
+            long line = 1;
+
+            while ((entry = reader.readNext()) != null)
+            {
+                if (!entry.isEmpty() && keyId < entry.size())
+                {
+                    sorter.add(line++, entry);
+                }
+            }
+
+            sorter.sort();
+            LOGGER.debug("squashSorted(): [{}] rows sorted by key into [{}] runs.", sorter.getSize(), sorter.getRuns());
+
+            try (CSVWrapper writer = this.openFileWriter(output, header, applyQuotes, append))
+            {
+                if (writer == null)
+                {
+                    LOGGER.error("squashSorted(): File output [{}] has failed!", output);
+                    return false;
+                }
+
+                if (!this.squashRows(() ->
+                {
+                    ExternalSorter.Row row = sorter.next();
+                    return row != null ? row.getData() : null;
+                }, writer, keyId))
+                {
+                    return false;
+                }
+
+                if (!this.sorted)
+                {
+                    LOGGER.error("squashSorted(): Sorted Input File [{}] is still out of order!", input);
+                    return false;
+                }
+
+                return true;
+            }
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("squashSorted(): Exception squashing file! Error: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // Truncates an appended output back to its (length) from before the squash; or removes it, if it was new
+    private boolean resetOutput(String output, long length)
+    {
+        try
+        {
+            if (length < 0)
+            {
+                Files.deleteIfExists(Path.of(output));
+                return true;
+            }
+
+            try (FileChannel channel = FileChannel.open(Path.of(output), StandardOpenOption.WRITE))
+            {
+                channel.truncate(length);
+            }
+
+            return true;
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("resetOutput(): Exception resetting Output File [{}]! Error: {}", output, e.getMessage());
+            return false;
+        }
+    }
+
+    // Matches each expanded column to the first transform that could have generated it; done once, from the header
+    private boolean buildSlots(CSVHeader inHeader, CSVHeader baseHeader, HeaderTransformList transforms)
+    {
+        final int baseSize = baseHeader.size();
+
+        this.slots.clear();
+        this.baseIds = new int[baseSize];
+        this.grouped = new boolean[baseSize];
+        this.subkeyId = baseHeader.getId(this.PARSER.getSubkey());
+
+        if (this.subkeyId < 0)
+        {
+            LOGGER.error("buildSlots(): Subkey [{}] is not one of the Transform Config headers!", this.PARSER.getSubkey());
+            return false;
+        }
+
+        this.grouped[this.subkeyId] = true;
+
+        for (int i = 0; i < baseSize; i++)
+        {
+            this.baseIds[i] = inHeader.getId(baseHeader.getFromId(i));
+
+            if (this.baseIds[i] < 0)
+            {
+                LOGGER.warn("buildSlots(): Header [{}] was not found in the Input File, it will be empty.", baseHeader.getFromId(i));
+            }
+        }
+
+        TransformTemplate[] templates = new TransformTemplate[transforms.size()];
+
+        try
+        {
+            for (int i = 0; i < transforms.size(); i++)
+            {
+                HeaderTransformList.Entry entry = transforms.getEntry(i);
+
+                if (entry == null)
+                {
+                    LOGGER.error("buildSlots(): Transform Entry [{}] is null!", i);
+                    return false;
+                }
+
+                templates[i] = entry.compile();
+            }
+        }
+        catch (NumberFormatException err)
+        {
+            LOGGER.error("buildSlots(): Exception compiling transforms; {}", err.getLocalizedMessage());
+            return false;
+        }
+
+        int unmatched = 0;
+
+        for (int col = 0; col < inHeader.size(); col++)
+        {
+            String name = inHeader.getFromId(col);
+
+            if (name == null || baseHeader.getId(name) >= 0)
+            {
+                continue;
+            }
+
+            Slot slot = null;
+
+            for (int i = 0; i < templates.length && slot == null; i++)
+            {
+                slot = this.matchSlot(col, name, templates[i].parse(name), transforms.getEntry(i).data(), baseSize);
+            }
+
+            if (slot != null)
+            {
+                this.slots.add(slot);
+            }
+            else
+            {
+                LOGGER.debug("buildSlots(): Column [{}] does not match any transform.", name);
+                unmatched++;
+            }
+        }
+
+        if (unmatched > 0)
+        {
+            LOGGER.warn("buildSlots(): [{}] columns did not match any transform, and were dropped.", unmatched);
+        }
+
+        LOGGER.debug("buildSlots(): [{}] of [{}] columns matched a transform.", this.slots.size(), inHeader.size());
+        return true;
+    }
+
+    private @Nullable Slot matchSlot(int col, String name, @Nullable TransformTemplate.Parsed parsed, int data, int baseSize)
+    {
+        if (parsed == null || parsed.key() == null)
+        {
+            return null;
+        }
+
+        int index = NO_INDEX;
+
+        if (parsed.index() != null)
+        {
+            try
+            {
+                index = Integer.parseInt(parsed.index());
+            }
+            catch (NumberFormatException err)
+            {
+                LOGGER.debug("matchSlot(): Column [{}] has an invalid index.", name);
+                return null;
+            }
+        }
+
+        // The same bounds as TRANSFORM_EXPAND; anything else was written as empty
+        int target = data >= 0 && data < baseSize ? data : -1;
+        List<Integer> captureIds = new ArrayList<>();
+        List<String> captures = new ArrayList<>();
+
+        for (int i = 0; i < parsed.dataColumns().size(); i++)
+        {
+            int id = parsed.dataColumns().get(i);
+
+            if (id >= 0 && id < baseSize && id != target)
+            {
+                captureIds.add(id);
+                captures.add(parsed.dataValues().get(i));
+            }
+        }
+
+        if (target >= 0)
+        {
+            this.grouped[target] = true;
+        }
+
+        captureIds.forEach(id -> this.grouped[id] = true);
+
+        return new Slot(col, parsed.key(), index, target,
+                        captureIds.stream().mapToInt(Integer::intValue).toArray(),
+                        captures.toArray(new String[0]));
+    }
+
+    // Rows for the same key are merged, and each key is written as soon as the next one starts; so only one key is
+    // held in memory.  This only works if the input is sorted by key; at the first key out of order, the pass
+    // stops with (sorted) cleared, and the caller squashes the input again through an ExternalSorter.
+    private boolean squashRows(RowSource source, CSVWrapper writer, int keyId) throws IOException
+    {
+        List<String> entry;
+        String last = null;
+        KeyGroup group = null;
+        int rowsIn = 0;
+        int[] rowsOut = new int[1];
+
+        this.sorted = true;
+
+        while ((entry = source.next()) != null)
+        {
+            if (entry.isEmpty() || keyId >= entry.size())
+            {
+                continue;
+            }
+
+            rowsIn++;
+            String key = keyOf(entry, keyId);
+
+            if (group == null || !key.equals(last))
+            {
+                if (last != null && compareKeys(key, last) < 0)
+                {
+                    LOGGER.info("squashRows(): Input is not sorted by key at row [{}] (key [{}] after [{}]); sorting by key in runs of [{}] rows.", rowsIn, key, last, this.runSize);
+                    this.sorted = false;
+                    return true;
+                }
+
+                if (group != null && !this.emit(writer, group, rowsOut))
+                {
+                    return false;
+                }
+
+                group = new KeyGroup(this.baseIds.length);
+                last = key;
+            }
+
+            this.merge(group, entry);
+        }
+
+        if (group != null && !this.emit(writer, group, rowsOut))
+        {
+            return false;
+        }
+
+        LOGGER.info("squashRows(): [{}] rows squashed into [{}] rows.", rowsIn, rowsOut[0]);
+        return true;
+    }
+
+    private static String keyOf(List<String> entry, int keyId)
+    {
+        return entry.get(keyId) != null ? entry.get(keyId) : "";
+    }
+
+    // Numeric keys compare by value; so that 9 comes before 10, and all come before the other keys, so that this
+    // is still a total order for the ExternalSorter when the keys are mixed.
+    private static int compareKeys(String a, String b)
     {
-        if (this.FILE != null)
+        boolean digitsA = isDigits(a);
+        boolean digitsB = isDigits(b);
+
+        if (digitsA != digitsB)
         {
-            this.FILE.close();
+            return digitsA ? -1 : 1;
         }
 
-        if (this.OUT != null)
+        if (digitsA && a.length() != b.length())
         {
-            this.OUT.close();
+            return Integer.compare(a.length(), b.length());
         }
 
+        return a.compareTo(b);
+    }
+
+    private static boolean isDigits(String value)
+    {
+        if (value.isEmpty() || value.charAt(0) == '0' && value.length() > 1)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9')
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // The first non-empty value wins; for the base columns, and for each (subkey, index) group
+    private void merge(KeyGroup group, List<String> entry)
+    {
+        for (int i = 0; i < this.baseIds.length; i++)
+        {
+            int id = this.baseIds[i];
+
+            if (id >= 0 && id < entry.size() && isEmpty(group.base[i]))
+            {
+                group.base[i] = entry.get(id);
+            }
+        }
+
+        for (Slot slot : this.slots)
+        {
+            if (slot.column() >= entry.size())
+            {
+                continue;
+            }
+
+            String value = entry.get(slot.column());
+
+            if (isEmpty(value))
+            {
+                continue;
+            }
+
+            String[] values = group.rows
+                    .computeIfAbsent(slot.subkey(), k -> new TreeMap<>())
+                    .computeIfAbsent(slot.index(), k -> new String[this.baseIds.length]);
+
+            if (slot.target() >= 0 && isEmpty(values[slot.target()]))
+            {
+                values[slot.target()] = value;
+            }
+
+            for (int i = 0; i < slot.captureIds().length; i++)
+            {
+                if (isEmpty(values[slot.captureIds()[i]]))
+                {
+                    values[slot.captureIds()[i]] = slot.captures()[i];
+                }
+            }
+        }
+    }
+
+    // One row for each (subkey, index) of the key; the columns without an index are folded into the
+    // highest index of the same subkey, since TRANSFORM_EXPAND leaves them with the last value.
+    // The base values came from the key's first input row, so its subkey is written first; they fill in the
+    // first index of that subkey, or are written as a row of their own if that index has other values.
+    private boolean emit(CSVWrapper writer, KeyGroup group, int[] rowsOut)
+    {
+        for (TreeMap<Integer, String[]> indexes : group.rows.values())
+        {
+            String[] unindexed = indexes.size() > 1 ? indexes.remove(NO_INDEX) : null;
+
+            if (unindexed != null)
+            {
+                fill(indexes.lastEntry().getValue(), unindexed);
+            }
+        }
+
+        String baseSubkey = group.base[this.subkeyId];
+        TreeMap<Integer, String[]> first = baseSubkey != null ? group.rows.get(baseSubkey) : null;
+
+        if (first != null && this.isCompatible(first.firstEntry().getValue(), group.base))
+        {
+            fill(first.firstEntry().getValue(), group.base);
+        }
+        else
+        {
+            if (!this.writeRow(writer, group.base, baseSubkey, group.base, rowsOut))
+            {
+                return false;
+            }
+        }
+
+        if (first != null && !this.writeRows(writer, group, baseSubkey, first, rowsOut))
+        {
+            return false;
+        }
+
+        for (Map.Entry<String, TreeMap<Integer, String[]>> subkey : group.rows.entrySet())
+        {
+            if (subkey.getValue() != first && !this.writeRows(writer, group, subkey.getKey(), subkey.getValue(), rowsOut))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean writeRows(CSVWrapper writer, KeyGroup group, String subkey, TreeMap<Integer, String[]> indexes, int[] rowsOut)
+    {
+        for (String[] values : indexes.values())
+        {
+            if (!this.writeRow(writer, group.base, subkey, values, rowsOut))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private boolean writeRow(CSVWrapper writer, String[] base, @Nullable String subkey, String[] values, int[] rowsOut)
+    {
+        List<String> row = new ArrayList<>(base.length);
+
+        for (int i = 0; i < base.length; i++)
+        {
+            String value = i == this.subkeyId ? subkey : this.grouped[i] ? values[i] : base[i];
+
+            row.add(value != null ? value : "");
+        }
+
+        rowsOut[0]++;
+        return writer.writeNext(row);
+    }
+
+    // Whether the base values could be the same row as these values; they only differ where one is empty
+    private boolean isCompatible(String[] values, String[] base)
+    {
+        for (int i = 0; i < base.length; i++)
+        {
+            if (this.grouped[i] && i != this.subkeyId && !isEmpty(values[i]) && !isEmpty(base[i]) && !values[i].equals(base[i]))
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void fill(String[] values, String[] from)
+    {
+        for (int i = 0; i < values.length; i++)
+        {
+            if (isEmpty(values[i]))
+            {
+                values[i] = from[i];
+            }
+        }
+    }
+
+    private static boolean isEmpty(@Nullable String value)
+    {
+        return value == null || value.isEmpty();
+    }
+
+    // An expanded column; (column) in the input, that holds the value of base column (target) for (subkey, index)
+    private record Slot(int column, String subkey, int index, int target, int[] captureIds, String[] captures) {}
+
+    // Either the input itself, or the input sorted by key
+    private interface RowSource
+    {
+        @Nullable List<String> next() throws IOException;
+    }
+
+    private static class KeyGroup
+    {
+        private final String[] base;
+        private final LinkedHashMap<String, TreeMap<Integer, String[]>> rows;
+
+        private KeyGroup(int size)
+        {
+            this.base = new String[size];
+            this.rows = new LinkedHashMap<>();
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        if (this.PARSER != null && !this.PARSER.isEmpty())
+        {
+            this.PARSER.clear();
+        }
+
+        this.slots.clear();
+    }
+
+    @Override
+    public void close() throws Exception
+    {
         if (this.PARSER != null)
         {
             this.PARSER.close();
         }
+
+        this.slots.clear();
     }
 }
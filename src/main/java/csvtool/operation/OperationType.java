@@ -12,7 +12,7 @@ public class OperationType<T extends Operation>
     public static final OperationType<OperationTest> TEST;
     public static final OperationType<OperationMerge> MERGE;
     public static final OperationType<OperationDedupe> DEDUPE;
-//    public static final OperationType<OperationSplit> SPLIT;
+    public static final OperationType<OperationSplit> SPLIT;
     public static final OperationType<OperationDiff> DIFF;
     public static final OperationType<OperationHeaderAdd> HEADER_ADD;
     public static final OperationType<OperationHeaderSave> HEADER_SAVE;
@@ -21,7 +21,7 @@ public class OperationType<T extends Operation>
     public static final OperationType<OperationReformat> REFORMAT;
     public static final OperationType<OperationSerialize> SERIALIZE;
     public static final OperationType<OperationTransformExpand> TRANSFORM_EXPAND;
-//    public static final OperationType<OperationTransformSquash> TRANSFORM_SQUASH;
+    public static final OperationType<OperationTransformSquash> TRANSFORM_SQUASH;
     public static final OperationType<OperationFilePivot> FILE_PIVOT;
     public static final OperationType<OperationFilePivotSave> FILE_PIVOT_SAVE;
     private final OperationFactory<? extends T> factory;
@@ -55,7 +55,7 @@ public class OperationType<T extends Operation>
         TEST = create(OperationTest::new, Operations.TEST);
         MERGE = create(OperationMerge::new, Operations.MERGE);
         DEDUPE = create(OperationDedupe::new, Operations.DEDUPE);
-//        SPLIT = create(OperationSplit::new, Operations.SPLIT);
+        SPLIT = create(OperationSplit::new, Operations.SPLIT);
         DIFF = create(OperationDiff::new, Operations.DIFF);
         HEADER_ADD = create(OperationHeaderAdd::new, Operations.HEADER_SAVE);
         HEADER_SAVE = create(OperationHeaderSave::new, Operations.HEADER_SAVE);
@@ -64,7 +64,7 @@ public class OperationType<T extends Operation>
         REFORMAT = create(OperationReformat::new, Operations.REFORMAT);
         SERIALIZE = create(OperationSerialize::new, Operations.SERIALIZE);
         TRANSFORM_EXPAND = create(OperationTransformExpand::new, Operations.TRANSFORM_EXPAND);
-//        TRANSFORM_SQUASH = create(OperationTransformSquash::new, Operations.TRANSFORM_SQUASH);
+        TRANSFORM_SQUASH = create(OperationTransformSquash::new, Operations.TRANSFORM_SQUASH);
         FILE_PIVOT = create(OperationFilePivot::new, Operations.FILE_PIVOT);
         FILE_PIVOT_SAVE = create(OperationFilePivotSave::new, Operations.FILE_PIVOT_SAVE);
     }
@@ -5,20 +5,29 @@ import csvtool.utils.LogWrapper;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
+// Directories that have been checked (or created) are cached, so that each one is only touched once;
+// even when many rows land in the same directory, or they are built concurrently.  Failures are never
+// cached, and invalidate() drops a directory that has since gone missing, so that it's checked again.
 public class FilePivotDirectoryBuilder
 {
     private static final LogWrapper LOGGER = new LogWrapper(FilePivotDirectoryBuilder.class);
+    private final ConcurrentHashMap<Path, CompletableFuture<Boolean>> dirCache;
     private Path base;
     private Path workingDir = null;
 
     public FilePivotDirectoryBuilder(Path base) throws RuntimeException
     {
+        this.dirCache = new ConcurrentHashMap<>();
         this.base = base.normalize();
         this.ensurePath(this.base);
+        this.dirCache.put(this.base, CompletableFuture.completedFuture(true));
     }
 
     public FilePivotDirectoryBuilder setBaseDir(@Nonnull Path dir) throws RuntimeException
@@ -26,6 +35,7 @@ public class FilePivotDirectoryBuilder
         if (this.ensurePath(dir))
         {
             this.base = dir.normalize();
+            this.dirCache.put(this.base, CompletableFuture.completedFuture(true));
             return this;
         }
 
@@ -93,6 +103,20 @@ public class FilePivotDirectoryBuilder
     }
 
     public @Nullable Path build(List<Entry> fields, List<String> row)
+    {
+        Path newDir = this.resolve(fields, row);
+
+        if (newDir != null && this.ensureDir(newDir))
+        {
+            this.workingDir = newDir;
+            return newDir;
+        }
+
+        return null;
+    }
+
+    // Only builds the path of the row's sub dir, without touching the filesystem
+    public @Nullable Path resolve(List<Entry> fields, List<String> row)
     {
         Path newDir = this.base;
 
@@ -119,20 +143,79 @@ public class FilePivotDirectoryBuilder
             }
         }
 
+        return newDir;
+    }
+
+    // Thread safe; concurrent callers for the same directory wait on the first one's result
+    public boolean ensureDir(@Nonnull Path dir)
+    {
+        CompletableFuture<Boolean> created = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = this.dirCache.putIfAbsent(dir, created);
+
+        if (existing != null)
+        {
+            return existing.join();
+        }
+
+        boolean result = false;
+
         try
         {
-            if (this.ensurePath(newDir))
+            result = this.ensureCachedPath(dir);
+        }
+        catch (RuntimeException err)
+        {
+            LOGGER.error("ensureDir(): Exception ensuring directory exists; {}", err.getLocalizedMessage());
+        }
+        finally
+        {
+            if (!result)
             {
-                this.workingDir = newDir;
-                return newDir;
+                this.dirCache.remove(dir, created);
             }
+
+            created.complete(result);
         }
-        catch (RuntimeException err)
+
+        return result;
+    }
+
+    // The parent is ensured (and cached) first; so a new directory only costs a single createDirectory()
+    private boolean ensureCachedPath(@Nonnull Path dir) throws RuntimeException
+    {
+        Path parent = dir.getParent();
+
+        if (parent != null && !this.ensureDir(parent))
         {
-            LOGGER.error("build(): Exception ensuring directory exists; {}", err.getLocalizedMessage());
+            return false;
         }
 
-        return null;
+        try
+        {
+            Files.createDirectory(dir);
+            return true;
+        }
+        catch (FileAlreadyExistsException err)
+        {
+            return this.ensurePath(dir);
+        }
+        catch (Exception err)
+        {
+            LOGGER.error("ensureCachedPath(): Exception creating directory '{}'; {}", dir.toAbsolutePath().toString(), err.getLocalizedMessage());
+            return false;
+        }
+    }
+
+    // Drops a directory (and everything under it) from the cache; ie. after it was found to be missing
+    public void invalidate(@Nonnull Path dir)
+    {
+        this.dirCache.keySet().removeIf(entry -> entry.startsWith(dir));
+    }
+
+    public void clearCache()
+    {
+        this.dirCache.clear();
+        this.dirCache.put(this.base, CompletableFuture.completedFuture(true));
     }
 
     public record Entry(int field) {}
@@ -108,79 +108,13 @@ public class HeaderTransformList
     {
         public String reformat(String key, int index, List<String> data)
         {
-            String[] split1 = this.format.split("\\{");
-
-//            LOGGER.debug("reformat(): id [{}] // key [{}], index [{}]", this.id(), key, index);
-
-            if (split1.length > 1)
-            {
-                StringBuilder result = new StringBuilder(split1[0]);
-                int dataIndex = 0;
-
-//                LOGGER.debug("reformat(): 0: [{}], 1: [{}]", split1[0], split1[1]);
-
-                for (int i = 0; i < split1.length; i++)
-                {
-                    String substring = split1[i];
-
-                    if (substring.isEmpty())
-                    {
-                        continue;
-                    }
-
-                    String[] split2 = substring.split("}");
-//                    LOGGER.debug("reformat(): token[{}]: substring [{}], split2 0: [{}] 1: [{}]", i, substring, split2[0], split2.length > 1 ? split2[1] : "<>");
-
-                    String token = "{" + split2[0] + "}";
-//                    LOGGER.debug("reformat(): token[{}]: match [{}]", i, token);
-                    TransformType type = TransformType.matchFormatter(token);
-
-                    if (type != null)
-                    {
-                        String fmt;
-//                        LOGGER.debug("reformat(): token[{}]: type [{}]", i, type.getName());
-
-                        switch (type)
-                        {
-                            case KEY -> fmt = key;
-                            case DATA ->
-                                    {
-                                        if (this.args.size() > dataIndex && data.size() > dataIndex)
-                                        {
-                                            int f = Integer.parseInt(this.args.get(dataIndex));
-                                            fmt = data.get(f);
-                                        }
-                                        else
-                                        {
-                                            fmt = "";
-                                        }
-
-                                        dataIndex++;
-                                    }
-                            case INDEX -> fmt = String.valueOf(index);
-                            case HYPHEN -> fmt = "-";
-                            case UNDERSCORE -> fmt = "_";
-                            default -> fmt = "";
-                        }
-
-                        result.append(fmt);
-                    }
-
-                    if (split2.length > 1)
-                    {
-//                        LOGGER.debug("Append[{}]: split2 [{}]", i, split2[1]);
-                        result.append(split2[1]);
-                    }
-//                    else
-//                    {
-//                        LOGGER.debug("Skip[{}] (No Data)", i);
-//                    }
-                }
-
-                return result.toString();
-            }
+            return this.compile().render(key, index, data);
+        }
 
-            return split1[0];
+        // Compile once, and render() it for each row
+        public TransformTemplate compile()
+        {
+            return TransformTemplate.compile(this.format, this.args);
         }
 
         @Override
@@ -0,0 +1,232 @@
+package csvtool.transform;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// A transform format (ie. '{k}{u}{d}{u}Name'), compiled once into literal and value tokens; so rendering it
+// for each row is a single append loop, without any regex splits, TransformType lookups, or arg parsing.
+// Compiling follows the original split("\\{") / split("}") parsing exactly, including its quirks.
+public class TransformTemplate
+{
+    private final @Nullable TransformType[] types; // null marks a literal
+    private final String[] literals;
+    private final int[] dataIndex;
+    private final int[] columns;
+    private final Pattern pattern;
+
+    private TransformTemplate(List<TransformType> types, List<String> literals, List<int[]> data)
+    {
+        this.types = types.toArray(new TransformType[0]);
+        this.literals = literals.toArray(new String[0]);
+        this.dataIndex = new int[data.size()];
+        this.columns = new int[data.size()];
+
+        for (int i = 0; i < data.size(); i++)
+        {
+            this.dataIndex[i] = data.get(i)[0];
+            this.columns[i] = data.get(i)[1];
+        }
+
+        this.pattern = this.buildPattern();
+    }
+
+    // Matches the names that this template renders; the KEY, INDEX, and DATA tokens are captured in order
+    private Pattern buildPattern()
+    {
+        StringBuilder regex = new StringBuilder();
+
+        for (int i = 0; i < this.types.length; i++)
+        {
+            TransformType type = this.types[i];
+
+            if (type == null)
+            {
+                regex.append(Pattern.quote(this.literals[i]));
+            }
+            else if (type == TransformType.INDEX)
+            {
+                regex.append("(-?\\d+)");
+            }
+            else if (type == TransformType.KEY || this.columns[i] >= 0)
+            {
+                regex.append("(.*?)");
+            }
+        }
+
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    public static TransformTemplate compile(@Nonnull String format, @Nonnull List<String> args) throws NumberFormatException
+    {
+        Builder builder = new Builder();
+        String[] split1 = format.split("\\{");
+
+        builder.literal(split1[0]);
+
+        if (split1.length > 1)
+        {
+            int dataIndex = 0;
+
+            for (String substring : split1)
+            {
+                if (substring.isEmpty())
+                {
+                    continue;
+                }
+
+                String[] split2 = substring.split("}");
+                TransformType type = TransformType.matchFormatter("{" + split2[0] + "}");
+
+                if (type != null)
+                {
+                    switch (type)
+                    {
+                        case KEY, INDEX -> builder.token(type, -1, -1);
+                        case DATA ->
+                        {
+                            // Only resolved against the row when rendering; -1 when there are no more args
+                            builder.token(type, dataIndex, args.size() > dataIndex ? Integer.parseInt(args.get(dataIndex)) : -1);
+                            dataIndex++;
+                        }
+                        case HYPHEN -> builder.literal("-");
+                        case UNDERSCORE -> builder.literal("_");
+                        default -> {}
+                    }
+                }
+
+                if (split2.length > 1)
+                {
+                    builder.literal(split2[1]);
+                }
+            }
+        }
+
+        return builder.build();
+    }
+
+    public String render(String key, int index, @Nonnull List<String> data)
+    {
+        return this.render(new StringBuilder(), key, index, data).toString();
+    }
+
+    // Appends to result; so that one builder can be reused for every row
+    public StringBuilder render(@Nonnull StringBuilder result, String key, int index, @Nonnull List<String> data)
+    {
+        for (int i = 0; i < this.types.length; i++)
+        {
+            TransformType type = this.types[i];
+
+            if (type == null)
+            {
+                result.append(this.literals[i]);
+            }
+            else if (type == TransformType.KEY)
+            {
+                result.append(key);
+            }
+            else if (type == TransformType.INDEX)
+            {
+                result.append(index);
+            }
+            else if (this.columns[i] >= 0 && data.size() > this.dataIndex[i])
+            {
+                result.append(data.get(this.columns[i]));
+            }
+        }
+
+        return result;
+    }
+
+    // The inverse of render(); recovers the token values from a rendered name, or returns null if it doesn't match.
+    // (A DATA value that rendered as empty is returned as empty, since it could have been missing from the row.)
+    public @Nullable Parsed parse(@Nonnull String name)
+    {
+        Matcher matcher = this.pattern.matcher(name);
+
+        if (!matcher.matches())
+        {
+            return null;
+        }
+
+        String key = null;
+        String index = null;
+        List<Integer> dataColumns = new ArrayList<>();
+        List<String> dataValues = new ArrayList<>();
+        int group = 1;
+
+        for (int i = 0; i < this.types.length; i++)
+        {
+            TransformType type = this.types[i];
+
+            if (type == null || (type == TransformType.DATA && this.columns[i] < 0))
+            {
+                continue;
+            }
+
+            String value = matcher.group(group++);
+
+            if (type == TransformType.KEY)
+            {
+                key = value;
+            }
+            else if (type == TransformType.INDEX)
+            {
+                index = value;
+            }
+            else
+            {
+                dataColumns.add(this.columns[i]);
+                dataValues.add(value);
+            }
+        }
+
+        return new Parsed(key, index, dataColumns, dataValues);
+    }
+
+    public record Parsed(@Nullable String key, @Nullable String index, List<Integer> dataColumns, List<String> dataValues) {}
+
+    private static class Builder
+    {
+        private final List<TransformType> types = new ArrayList<>();
+        private final List<String> literals = new ArrayList<>();
+        private final List<int[]> data = new ArrayList<>();
+        private final StringBuilder literal = new StringBuilder();
+
+        private void literal(String text)
+        {
+            this.literal.append(text);
+        }
+
+        private void token(TransformType type, int dataIndex, int column)
+        {
+            this.flush();
+            this.add(type, null, dataIndex, column);
+        }
+
+        private void flush()
+        {
+            if (!this.literal.isEmpty())
+            {
+                this.add(null, this.literal.toString(), -1, -1);
+                this.literal.setLength(0);
+            }
+        }
+
+        private void add(@Nullable TransformType type, @Nullable String literal, int dataIndex, int column)
+        {
+            this.types.add(type);
+            this.literals.add(literal);
+            this.data.add(new int[] {dataIndex, column});
+        }
+
+        private TransformTemplate build()
+        {
+            this.flush();
+            return new TransformTemplate(this.types, this.literals, this.data);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package csvtool.utils;
+
+import csvtool.enums.Compression;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+// Buffered CSV writer; lines are encoded straight into a byte buffer as UTF-8, and only reach the
+// FileChannel in blocks of bufferSize, so that slow (ie. network) filesystems see a few large writes.
+// The output matches the opencsv CSVWriter defaults that were used before; ',' separator, '"' quotes
+// (doubled to escape them), and '\n' line endings.  Each field is only quoted if it needs to be,
+// unless applyQuotes is set.  Files named with a compressed extension (ie. .gz) are compressed on the fly.
+public class CSVChannelWriter implements AutoCloseable
+{
+    private final LogWrapper LOGGER = new LogWrapper(this.getClass());
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+    public static final int MIN_BUFFER_SIZE = 1 << 12;
+    private static final byte SEPARATOR = ',';
+    private static final byte QUOTE = '"';
+    private static final byte LF = '\n';
+
+    private final String file;
+    private final Compression compression;
+    private final WritableByteChannel channel;
+    private final byte[] buffer;
+    private final ByteBuffer wrapped;
+    private int pos;
+    private long written;
+
+    public CSVChannelWriter(String file, boolean append) throws IOException
+    {
+        this(file, append, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CSVChannelWriter(String file, boolean append, int bufferSize) throws IOException
+    {
+        this.file = file;
+        this.compression = Compression.fromFileName(file);
+        this.channel = this.compression.isCompressed()
+                       ? CompressedIO.openOutput(file, this.compression, append)
+                       : append
+                       ? FileChannel.open(Path.of(file), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                       : FileChannel.open(Path.of(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = new byte[Math.max(bufferSize, MIN_BUFFER_SIZE)];
+        this.wrapped = ByteBuffer.wrap(this.buffer);
+        this.pos = 0;
+        this.written = 0;
+
+        if (append && this.channel instanceof FileChannel fileChannel)
+        {
+            fileChannel.position(fileChannel.size());
+            this.startNewLine(fileChannel);
+        }
+
+        LOGGER.debug("init: File [{}] opened for writing, append [{}], buffer [{}], compression [{}]", file, append, this.buffer.length, this.compression.getName());
+    }
+
+    // Appended lines must start on a new line, even if the file did not end with one.
+    // (APPEND can't be combined with READ, so the position is moved to the end instead.)
+    private void startNewLine(FileChannel fileChannel) throws IOException
+    {
+        long size = fileChannel.size();
+
+        if (size == 0)
+        {
+            return;
+        }
+
+        ByteBuffer last = ByteBuffer.allocate(1);
+
+        if (fileChannel.read(last, size - 1) == 1 && last.get(0) != LF && last.get(0) != '\r')
+        {
+            this.put(LF);
+        }
+    }
+
+    public void writeNext(@Nonnull List<String> line, boolean applyQuotes) throws IOException
+    {
+        for (int i = 0; i < line.size(); i++)
+        {
+            if (i > 0)
+            {
+                this.put(SEPARATOR);
+            }
+
+            String field = line.get(i);
+
+            // Same as opencsv; null is written as nothing at all, not even quotes
+            if (field == null)
+            {
+                continue;
+            }
+
+            boolean quote = applyQuotes || needsQuotes(field);
+
+            if (quote)
+            {
+                this.put(QUOTE);
+            }
+
+            this.putField(field, quote);
+
+            if (quote)
+            {
+                this.put(QUOTE);
+            }
+        }
+
+        this.put(LF);
+    }
+
+    private static boolean needsQuotes(String field)
+    {
+        for (int i = 0; i < field.length(); i++)
+        {
+            char c = field.charAt(i);
+
+            if (c == QUOTE || c == SEPARATOR || c == LF || c == '\r')
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void putField(String field, boolean quoted) throws IOException
+    {
+        final int length = field.length();
+
+        for (int i = 0; i < length; i++)
+        {
+            char c = field.charAt(i);
+
+            // 4 bytes is the longest UTF-8 sequence
+            if (this.pos + 4 > this.buffer.length)
+            {
+                this.flush();
+            }
+
+            if (c < 0x80)
+            {
+                if (c == QUOTE && quoted)
+                {
+                    this.buffer[this.pos++] = QUOTE;
+                }
+
+                this.buffer[this.pos++] = (byte) c;
+            }
+            else if (c < 0x800)
+            {
+                this.buffer[this.pos++] = (byte) (0xC0 | (c >> 6));
+                this.buffer[this.pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(field.charAt(i + 1)))
+            {
+                int cp = Character.toCodePoint(c, field.charAt(++i));
+
+                this.buffer[this.pos++] = (byte) (0xF0 | (cp >> 18));
+                this.buffer[this.pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                this.buffer[this.pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                this.buffer[this.pos++] = (byte) (0x80 | (cp & 0x3F));
+            }
+            else if (Character.isSurrogate(c))
+            {
+                // Unpaired surrogate; replaced the same way as String.getBytes()
+                this.buffer[this.pos++] = '?';
+            }
+            else
+            {
+                this.buffer[this.pos++] = (byte) (0xE0 | (c >> 12));
+                this.buffer[this.pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                this.buffer[this.pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void put(byte b) throws IOException
+    {
+        if (this.pos == this.buffer.length)
+        {
+            this.flush();
+        }
+
+        this.buffer[this.pos++] = b;
+    }
+
+    public void flush() throws IOException
+    {
+        this.wrapped.clear().limit(this.pos);
+
+        while (this.wrapped.hasRemaining())
+        {
+            this.channel.write(this.wrapped);
+        }
+
+        this.written += this.pos;
+        this.pos = 0;
+    }
+
+    public String getFile()
+    {
+        return this.file;
+    }
+
+    // Bytes written so far, including the ones still buffered
+    public long getBytesWritten()
+    {
+        return this.written + this.pos;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            this.flush();
+        }
+        finally
+        {
+            this.channel.close();
+        }
+    }
+}
@@ -0,0 +1,509 @@
+package csvtool.utils;
+
+import csvtool.enums.Compression;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+// Memory-mapped CSV reader; record boundaries are found with a sequential scan over the raw bytes
+// (so quoted newlines are kept within their record), then each batch of records is tokenized in parallel.
+// Follows the opencsv CSVParser defaults that were used before; ',' separator, '"' quotes, and '\' escapes,
+// with ignoreQuotes having the same effect as withIgnoreQuotations().  Compressed files (ie. gzip) can't be
+// mapped, so they are streamed instead; decompressed into a (smaller) heap window that is refilled as it's consumed.
+public class CSVTokenizer implements AutoCloseable
+{
+    private final LogWrapper LOGGER = new LogWrapper(this.getClass());
+    private static final byte SEPARATOR = ',';
+    private static final byte QUOTE = '"';
+    private static final byte ESCAPE = '\\';
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final int WINDOW_SIZE = 1 << 28;
+    private static final int STREAM_WINDOW_SIZE = 1 << 23;
+    private static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE - 8;
+    private static final int MIN_BATCH_SIZE = 1 << 16;
+    private static final int MAX_BATCH_SIZE = 1 << 22;
+    private static final int MIN_SLICE = 256;
+
+    private final String file;
+    private final boolean ignoreQuotes;
+    private final int workers;
+    private final Compression compression;
+    private final @Nullable FileChannel channel;
+    private final @Nullable ReadableByteChannel input;
+    private final long fileSize;
+    private final ArrayDeque<List<String>> rows;
+    private ByteBuffer buffer;
+    private boolean inputEof;
+    private long windowStart;
+    private int windowSize;
+    private int pos;
+    private int batchSize;
+    private int[] starts;
+    private int columns;
+
+    public CSVTokenizer(String file, boolean ignoreQuotes) throws IOException
+    {
+        this(file, ignoreQuotes, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CSVTokenizer(String file, boolean ignoreQuotes, int workers) throws IOException
+    {
+        this.file = file;
+        this.ignoreQuotes = ignoreQuotes;
+        this.workers = Math.max(workers, 1);
+        this.compression = Compression.detect(file);
+
+        if (this.compression.isCompressed())
+        {
+            this.channel = null;
+            this.input = CompressedIO.openInput(file, this.compression);
+            this.fileSize = -1;
+        }
+        else
+        {
+            this.channel = FileChannel.open(Path.of(file), StandardOpenOption.READ);
+            this.input = null;
+            this.fileSize = this.channel.size();
+        }
+
+        this.rows = new ArrayDeque<>();
+        this.buffer = null;
+        this.inputEof = false;
+        this.windowStart = 0;
+        this.windowSize = 0;
+        this.pos = 0;
+        this.batchSize = MIN_BATCH_SIZE;
+        this.starts = new int[1024];
+        this.columns = 8;
+
+        LOGGER.debug("init: File [{}] opened for reading, size [{}], workers [{}], compression [{}]", file, this.fileSize, this.workers, this.compression.getName());
+    }
+
+    // Returns the next record, or null at EOF
+    public @Nullable List<String> next() throws UncheckedIOException
+    {
+        if (this.rows.isEmpty() && !this.readBatch())
+        {
+            return null;
+        }
+
+        return this.rows.poll();
+    }
+
+    private boolean readBatch() throws UncheckedIOException
+    {
+        try
+        {
+            if (this.isEnd())
+            {
+                return false;
+            }
+
+            if (this.buffer == null || this.pos >= this.windowSize)
+            {
+                this.remap(this.input != null ? STREAM_WINDOW_SIZE : WINDOW_SIZE);
+            }
+
+            int count = 0;
+            int batchStart = this.pos;
+
+            while (this.pos < this.windowSize && this.pos - batchStart < this.batchSize)
+            {
+                int end = this.parseRecord(this.buffer, this.pos, this.windowSize, this.isLastWindow(), null, null);
+
+                if (end < 0)
+                {
+                    if (count > 0)
+                    {
+                        // Finish this record in the next window
+                        break;
+                    }
+                    else if (this.pos > 0)
+                    {
+                        this.remap(this.windowSize);
+                    }
+                    else if (this.windowSize < MAX_WINDOW_SIZE)
+                    {
+                        this.remap((long) this.windowSize * 2);
+                    }
+                    else
+                    {
+                        throw new IOException("Record at offset " + this.windowStart + " is larger than the maximum window size");
+                    }
+
+                    batchStart = 0;
+                    continue;
+                }
+
+                if (count + 1 >= this.starts.length)
+                {
+                    this.starts = Arrays.copyOf(this.starts, this.starts.length * 2);
+                }
+
+                this.starts[count++] = this.pos;
+                this.pos = end;
+            }
+
+            this.starts[count] = this.pos;
+            this.tokenize(count);
+            this.batchSize = Math.min(this.batchSize * 2, MAX_BATCH_SIZE);
+
+            return !this.rows.isEmpty();
+        }
+        catch (IOException err)
+        {
+            throw new UncheckedIOException("Exception reading file [" + this.file + "]", err);
+        }
+    }
+
+    private boolean isEnd()
+    {
+        if (this.input != null)
+        {
+            return this.inputEof && (this.buffer == null || this.pos >= this.windowSize);
+        }
+
+        return this.windowStart + this.pos >= this.fileSize;
+    }
+
+    private boolean isLastWindow()
+    {
+        if (this.input != null)
+        {
+            return this.inputEof;
+        }
+
+        return this.windowStart + this.windowSize >= this.fileSize;
+    }
+
+    // Maps the next window of the file, starting at the current position
+    private void remap(long size) throws IOException
+    {
+        if (this.input != null)
+        {
+            this.refill((int) Math.min(size, MAX_WINDOW_SIZE));
+            return;
+        }
+
+        long offset = this.windowStart + this.pos;
+
+        this.windowSize = (int) Math.min(Math.min(size, MAX_WINDOW_SIZE), this.fileSize - offset);
+        this.buffer = this.channel.map(FileChannel.MapMode.READ_ONLY, offset, this.windowSize);
+        this.windowStart = offset;
+        this.pos = 0;
+    }
+
+    // Moves the unread bytes of the window to the front, then fills the rest from the stream
+    private void refill(int size) throws IOException
+    {
+        int remaining = this.buffer == null ? 0 : this.windowSize - this.pos;
+        ByteBuffer next = this.buffer != null && this.buffer.capacity() == size ? this.buffer : ByteBuffer.allocate(size);
+
+        if (remaining > 0)
+        {
+            System.arraycopy(this.buffer.array(), this.pos, next.array(), 0, remaining);
+        }
+
+        next.clear().position(remaining);
+
+        while (next.hasRemaining() && !this.inputEof)
+        {
+            if (this.input.read(next) < 0)
+            {
+                this.inputEof = true;
+            }
+        }
+
+        this.windowStart += this.pos;
+        this.windowSize = next.position();
+        this.buffer = next;
+        this.pos = 0;
+    }
+
+    private void tokenize(int count) throws IOException
+    {
+        int slices = Math.min(this.workers, count / MIN_SLICE);
+
+        if (slices <= 1)
+        {
+            this.tokenizeRange(this.buffer, this.starts, 0, count, this.rows);
+            this.columns = this.rows.isEmpty() ? this.columns : this.rows.peekLast().size();
+            return;
+        }
+
+        List<Callable<List<List<String>>>> tasks = new ArrayList<>();
+        int[] bounds = this.starts;
+        int sliceSize = (count + slices - 1) / slices;
+
+        for (int from = 0; from < count; from += sliceSize)
+        {
+            final int start = from;
+            final int end = Math.min(count, from + sliceSize);
+            final ByteBuffer slice = this.buffer.duplicate();
+
+            tasks.add(() ->
+            {
+                List<List<String>> out = new ArrayList<>(end - start);
+                this.tokenizeRange(slice, bounds, start, end, out);
+                return out;
+            });
+        }
+
+        try
+        {
+            for (Future<List<List<String>>> result : ForkJoinPool.commonPool().invokeAll(tasks))
+            {
+                this.rows.addAll(result.get());
+            }
+        }
+        catch (InterruptedException err)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading", err);
+        }
+        catch (ExecutionException err)
+        {
+            throw new IOException(err.getCause());
+        }
+
+        this.columns = this.rows.isEmpty() ? this.columns : this.rows.peekLast().size();
+    }
+
+    private void tokenizeRange(ByteBuffer buf, int[] bounds, int from, int to, Collection<List<String>> out)
+    {
+        Field field = new Field();
+
+        for (int i = from; i < to; i++)
+        {
+            List<String> row = new ArrayList<>(this.columns);
+
+            this.parseRecord(buf, bounds[i], bounds[i + 1], true, field, row);
+            out.add(row);
+        }
+    }
+
+    // Parses the record at pos, and returns the position after its line terminator (or the limit at EOF);
+    // or -1 if the record does not end before the limit.  Only scans for the record's end if out is null.
+    private int parseRecord(ByteBuffer buf, int pos, int limit, boolean eof, @Nullable Field field, @Nullable List<String> out)
+    {
+        boolean inQuotes = false;
+        boolean inField = false;
+        int lineStart = pos;
+        int i = pos;
+
+        while (i < limit)
+        {
+            byte c = buf.get(i);
+
+            if (c == LF || c == CR)
+            {
+                int next = i + 1;
+
+                if (c == CR)
+                {
+                    if (next >= limit && !eof)
+                    {
+                        return -1;
+                    }
+                    else if (next < limit && buf.get(next) == LF)
+                    {
+                        next++;
+                    }
+                }
+
+                if (inQuotes && !this.ignoreQuotes)
+                {
+                    // Quoted newline; the field continues on the next line
+                    append(field, LF);
+                    lineStart = next;
+                    i = next;
+                    continue;
+                }
+
+                addField(field, out);
+                return next;
+            }
+            else if (c == ESCAPE)
+            {
+                inField = true;
+
+                // Same as opencsv; the quote, escape, and separator characters can be escaped
+                if (isNext(buf, i, limit, QUOTE) || isNext(buf, i, limit, ESCAPE) || isNext(buf, i, limit, SEPARATOR))
+                {
+                    append(field, buf.get(++i));
+                }
+            }
+            else if (c == QUOTE)
+            {
+                if (((inQuotes && !this.ignoreQuotes) || inField) && isNext(buf, i, limit, QUOTE))
+                {
+                    append(field, buf.get(++i));
+                }
+                else
+                {
+                    inQuotes = !inQuotes;
+
+                    // A quote in the middle of a field is kept, unless it follows only whitespace
+                    if (field != null && charsBefore(buf, lineStart, i) > 2 && buf.get(i - 1) != SEPARATOR && hasNext(buf, i, limit) && buf.get(i + 1) != SEPARATOR)
+                    {
+                        if (!field.isEmpty() && field.isWhitespace())
+                        {
+                            field.reset();
+                        }
+                        else
+                        {
+                            field.append(QUOTE);
+                        }
+                    }
+                }
+
+                inField = !inField;
+            }
+            else if (c == SEPARATOR && !(inQuotes && !this.ignoreQuotes))
+            {
+                addField(field, out);
+                inField = false;
+            }
+            else
+            {
+                append(field, c);
+                inField = true;
+            }
+
+            i++;
+        }
+
+        if (!eof)
+        {
+            return -1;
+        }
+
+        addField(field, out);
+        return limit;
+    }
+
+    // opencsv counts the chars on the line, not bytes; so each UTF-8 sequence is one char (or two, for a surrogate pair).
+    // Only needs to count up to 3.
+    private static int charsBefore(ByteBuffer buf, int lineStart, int i)
+    {
+        int chars = 0;
+
+        for (int j = lineStart; j < i && chars <= 2; j++)
+        {
+            int b = buf.get(j) & 0xFF;
+
+            if ((b & 0xC0) != 0x80)
+            {
+                chars += b >= 0xF0 ? 2 : 1;
+            }
+        }
+
+        return chars;
+    }
+
+    private static boolean hasNext(ByteBuffer buf, int i, int limit)
+    {
+        return i + 1 < limit && buf.get(i + 1) != LF && buf.get(i + 1) != CR;
+    }
+
+    private static boolean isNext(ByteBuffer buf, int i, int limit, byte b)
+    {
+        return i + 1 < limit && buf.get(i + 1) == b;
+    }
+
+    private static void append(@Nullable Field field, byte b)
+    {
+        if (field != null)
+        {
+            field.append(b);
+        }
+    }
+
+    private static void addField(@Nullable Field field, @Nullable List<String> out)
+    {
+        if (field != null && out != null)
+        {
+            out.add(field.take());
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.rows.clear();
+        this.buffer = null;
+
+        if (this.channel != null)
+        {
+            this.channel.close();
+        }
+
+        if (this.input != null)
+        {
+            this.input.close();
+        }
+    }
+
+    // Reusable UTF-8 byte buffer for the field being tokenized; the separators, quotes,
+    // and line endings are all ASCII, so a multibyte character can never be split.
+    private static class Field
+    {
+        private byte[] bytes = new byte[128];
+        private int length = 0;
+
+        private void append(byte b)
+        {
+            if (this.length == this.bytes.length)
+            {
+                this.bytes = Arrays.copyOf(this.bytes, this.length * 2);
+            }
+
+            this.bytes[this.length++] = b;
+        }
+
+        private boolean isEmpty()
+        {
+            return this.length == 0;
+        }
+
+        private boolean isWhitespace()
+        {
+            for (int i = 0; i < this.length; i++)
+            {
+                if (this.bytes[i] < 0 || !Character.isWhitespace(this.bytes[i]))
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private void reset()
+        {
+            this.length = 0;
+        }
+
+        private @Nonnull String take()
+        {
+            String out = new String(this.bytes, 0, this.length, StandardCharsets.UTF_8);
+
+            this.length = 0;
+            return out;
+        }
+    }
+}
@@ -1,32 +1,31 @@
 package csvtool.utils;
 
-import com.opencsv.*;
 import csvtool.header.CSVHeader;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 @Immutable
 public class CSVWrapper implements AutoCloseable
 {
     private final LogWrapper LOGGER = new LogWrapper(this.getClass());
-    private CSVParser parser;
-    private CSVReader reader;
-    private CSVWriter writer;
+    private CSVTokenizer reader;
+    private CSVChannelWriter writer;
 
     private final String file;
     private HashMap<Integer, String> header;
     private HashMap<Integer, List<String>> lines;
     private int columns;
     private final boolean read;
+    private boolean applyQuotes;
+    private boolean appending;
+    private int bufferSize;
 
     public CSVWrapper(String file)
     {
@@ -36,13 +35,15 @@ public class CSVWrapper implements AutoCloseable
     public CSVWrapper(String file, boolean read)
     {
         this.file = file;
-        this.parser = null;
         this.reader = null;
         this.writer = null;
         this.header = new HashMap<>();
         this.lines = new HashMap<>();
         this.columns = -1;
         this.read = read;
+        this.applyQuotes = false;
+        this.appending = false;
+        this.bufferSize = CSVChannelWriter.DEFAULT_BUFFER_SIZE;
 
         if (FileUtils.fileExists(file))
         {
@@ -54,22 +55,7 @@ public class CSVWrapper implements AutoCloseable
         }
     }
 
-    private CSVParser getParser(boolean ignoreQuotes)
-    {
-        if (this.parser == null)
-        {
-            LOGGER.debug("getParser(): Building Parser ...");
-            this.parser = new CSVParserBuilder()
-                    .withSeparator(',')
-                    .withIgnoreQuotations(ignoreQuotes)
-                    //.withStrictQuotes(!ignoreQuotes)
-                    .build();
-        }
-
-        return this.parser;
-    }
-
-    private @Nullable CSVReader getReader(boolean ignoreQuotes)
+    private @Nullable CSVTokenizer getReader(boolean ignoreQuotes)
     {
         try
         {
@@ -79,9 +65,7 @@ public class CSVWrapper implements AutoCloseable
             }
 
             LOGGER.debug("getReader(): Building Reader ...");
-            this.reader = new CSVReaderBuilder(new FileReader(this.file))
-                    .withCSVParser(this.getParser(ignoreQuotes))
-                    .build();
+            this.reader = new CSVTokenizer(this.file, ignoreQuotes);
         }
         catch (Exception e)
         {
@@ -107,35 +91,38 @@ public class CSVWrapper implements AutoCloseable
 
         if (this.getReader(ignoreQuotes) == null)
         {
-            LOGGER.error("read(): for file [{}] failed to build a CSVReader!", this.file);
+            LOGGER.error("read(): for file [{}] failed to build a CSVTokenizer!", this.file);
             return false;
         }
 
         this.lines = new HashMap<>();
-        AtomicInteger line = new AtomicInteger();
+        int line = 0;
 
         LOGGER.debug("read(): Reading file ...");
-        this.reader.forEach((str) ->
+
+        try
         {
-            // Read header
-            if (withHeader && line.get() == 0)
-            {
-                LOGGER.debug("read(): Reading headers... ");
+            List<String> str;
 
-                for (int i = 0; i < str.length; i++)
+            while ((str = this.reader.next()) != null)
+            {
+                // Read header
+                if (withHeader && line == 0)
                 {
-                    this.header.put(i, str[i]);
+                    LOGGER.debug("read(): Reading headers... ");
+
+                    for (int i = 0; i < str.size(); i++)
+                    {
+                        this.header.put(i, str.get(i));
+                    }
+
+                    this.columns = this.header.size();
                 }
 
-                this.columns = this.header.size();
+                List<String> entry = this.hasHeader() ? this.truncateLine(str) : str;
+                this.lines.put(line++, entry);
             }
 
-            List<String> entry = this.hasHeader() ? this.truncateLine(new ArrayList<>(Arrays.asList(str))) : new ArrayList<>(Arrays.asList(str));
-            this.lines.put((line.getAndIncrement()), entry);
-        });
-
-        try
-        {
             LOGGER.debug("read(): Lines read [{}]", this.getSize());
             this.reader.close();
             this.reader = null;
@@ -159,7 +146,7 @@ public class CSVWrapper implements AutoCloseable
 
         if (this.getReader(ignoreQuotes) == null)
         {
-            LOGGER.error("readHeadersOnly(): for file [{}] failed to build a CSVReader!", this.file);
+            LOGGER.error("readHeadersOnly(): for file [{}] failed to build a CSVTokenizer!", this.file);
             return false;
         }
 
@@ -170,11 +157,17 @@ public class CSVWrapper implements AutoCloseable
         try
         {
             LOGGER.debug("readHeadersOnly(): Reading headers... ");
-            String[] str = this.reader.readNext();
+            List<String> str = this.reader.next();
+
+            if (str == null)
+            {
+                LOGGER.error("readHeadersOnly(): File [{}] is empty!", this.file);
+                return false;
+            }
 
-            for (int i = 0; i < str.length; i++)
+            for (int i = 0; i < str.size(); i++)
             {
-                this.header.put(i, str[i]);
+                this.header.put(i, str.get(i));
             }
 
             this.columns = this.header.size();
@@ -199,12 +192,99 @@ public class CSVWrapper implements AutoCloseable
         return false;
     }
 
-    private @Nullable CSVWriter getWriter()
+    // Streaming mode; reads the header (if any), and leaves the reader open so that lines can be
+    // pulled one at a time using readNext(), without caching the entire file.
+    public boolean openReader(boolean withHeader, boolean ignoreQuotes)
+    {
+        if (!this.read)
+        {
+            LOGGER.warn("openReader(): for file [{}] is not a reader!", this.file);
+            return false;
+        }
+
+        if (this.getReader(ignoreQuotes) == null)
+        {
+            LOGGER.error("openReader(): for file [{}] failed to build a CSVTokenizer!", this.file);
+            return false;
+        }
+
+        this.lines = new HashMap<>();
+
+        if (withHeader)
+        {
+            try
+            {
+                LOGGER.debug("openReader(): Reading headers... ");
+                List<String> str = this.reader.next();
+
+                if (str == null)
+                {
+                    LOGGER.error("openReader(): File [{}] is empty!", this.file);
+                    return false;
+                }
+
+                for (int i = 0; i < str.size(); i++)
+                {
+                    this.header.put(i, str.get(i));
+                }
+
+                this.columns = this.header.size();
+            }
+            catch (Exception e)
+            {
+                LOGGER.error("openReader(): Exception reading file [{}], error: [{}]", this.file, e.getMessage());
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    // Returns the next line from the stream, or null at EOF; a read error (ie. a truncated or corrupt
+    // compressed file) is thrown, so that it is never mistaken for the end of the file.
+    public @Nullable List<String> readNext() throws IOException
+    {
+        if (this.reader == null)
+        {
+            LOGGER.error("readNext(): for file [{}] is not open!", this.file);
+            return null;
+        }
+
+        List<String> entry;
+
+        try
+        {
+            entry = this.reader.next();
+        }
+        catch (UncheckedIOException e)
+        {
+            LOGGER.error("readNext(): Exception reading file [{}], error: [{}]", this.file, e.getMessage());
+            throw new IOException("Exception reading file [" + this.file + "]", e.getCause());
+        }
+
+        if (entry == null)
+        {
+            this.reader.close();
+            this.reader = null;
+            return null;
+        }
+
+        return this.hasHeader() ? this.truncateLine(entry) : entry;
+    }
+
+    // Output buffer size, in bytes; only applies to writers opened after this is set.
+    public CSVWrapper setBufferSize(int size)
+    {
+        this.bufferSize = size;
+        return this;
+    }
+
+    private @Nullable CSVChannelWriter getWriter()
     {
         return this.getWriter(false);
     }
 
-    private @Nullable CSVWriter getWriter(boolean append)
+    private @Nullable CSVChannelWriter getWriter(boolean append)
     {
         try
         {
@@ -213,7 +293,14 @@ public class CSVWrapper implements AutoCloseable
                 this.writer.close();
             }
 
-            if (FileUtils.deleteIfExists(this.file))
+            // Appending goes straight to the end of the existing file, which already has the header
+            this.appending = append && FileUtils.fileSize(this.file) > 0;
+
+            if (this.appending)
+            {
+                LOGGER.debug("getWriter(): Appending to File [{}].", this.file);
+            }
+            else if (FileUtils.deleteIfExists(this.file))
             {
                 LOGGER.debug("getWriter(): File [{}] deleted or not exists.", this.file);
             }
@@ -224,7 +311,7 @@ public class CSVWrapper implements AutoCloseable
             }
 
             LOGGER.debug("getWriter(): Building Writer ...");
-            this.writer = new CSVWriter(new FileWriter(this.file, append));
+            this.writer = new CSVChannelWriter(this.file, append, this.bufferSize);
         }
         catch (Exception e)
         {
@@ -254,60 +341,169 @@ public class CSVWrapper implements AutoCloseable
             return false;
         }
 
-        if (append)
+        if (append && !this.checkAppendHeaders())
         {
-            // Append mode needs matching headers
-            try (CSVWrapper wrapper = new CSVWrapper(this.file, true))
-            {
-                if (wrapper.read(true, false))
-                {
-                    CSVHeader csvHeader = wrapper.getHeader();
-                    CSVHeader newHeader = this.getHeader();
+            return false;
+        }
 
-                    if (csvHeader == null || newHeader == null)
-                    {
-                        LOGGER.error("write(): Append headers check failed (One or the other heads are missing!)");
-                        return false;
-                    }
+        if (this.getWriter(append) == null)
+        {
+            LOGGER.error("write(): for file [{}] failed to build a CSVChannelWriter!", this.file);
+            return false;
+        }
 
-                    if (!csvHeader.matches(newHeader))
-                    {
-                        LOGGER.error("write(): Append headers check failed (Not matched!)");
-                        return false;
-                    }
-                }
-            }
-            catch (Exception e)
+        try
+        {
+            for (int i = this.appending && this.hasHeader() ? 1 : 0; i < this.lines.size(); i++)
             {
-                LOGGER.error("write(): Exception opening output file [{}] for append check, error: [{}]", this.file, e.getMessage());
-                return false;
+                this.writer.writeNext(this.lines.get(i), applyQuotes);
             }
+
+            this.writer.close();
+            this.writer = null;
+            return true;
+        }
+        catch (Exception e)
+        {
+            LOGGER.error("write(): Exception writing file [{}]", this.file);
+        }
+
+        return false;
+    }
+
+    // Streaming mode; writes the header (set via setHeader()), and leaves the writer open so that
+    // lines can be pushed one at a time using writeNext(), without caching the entire file.
+    public boolean openWriter(boolean applyQuotes, boolean append)
+    {
+        if (this.read)
+        {
+            LOGGER.warn("openWriter(): for file [{}] is not a writer!", this.file);
+            return false;
+        }
+
+        if (!this.hasHeader())
+        {
+            LOGGER.error("openWriter(): for file [{}] has no Header!", this.file);
+            return false;
+        }
+
+        if (append && !this.checkAppendHeaders())
+        {
+            return false;
         }
 
         if (this.getWriter(append) == null)
         {
-            LOGGER.error("write(): for file [{}] failed to build a CSVWriter!", this.file);
+            LOGGER.error("openWriter(): for file [{}] failed to build a CSVChannelWriter!", this.file);
             return false;
         }
 
-        for (int i = 0; i < this.lines.size(); i++)
+        this.applyQuotes = applyQuotes;
+
+        if (this.appending)
         {
-            String[] entry = this.lines.get(i).toArray(new String[0]);
-            this.writer.writeNext(entry, applyQuotes);
+            return true;
         }
 
+        List<String> list = new ArrayList<>();
+
+        this.header.forEach((h, s) -> list.add(s));
+
         try
         {
-            this.writer.close();
-            this.writer = null;
+            this.writer.writeNext(list, this.applyQuotes);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("openWriter(): Exception writing header to file [{}], error: [{}]", this.file, e.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    // Streaming mode; appends to a file that was already written with this header (ie. one that was closed
+    // part way through), so it skips the header check, which would have to read the file back.
+    public boolean reopenWriter(boolean applyQuotes)
+    {
+        if (this.read)
+        {
+            LOGGER.warn("reopenWriter(): for file [{}] is not a writer!", this.file);
+            return false;
+        }
+
+        if (!this.hasHeader())
+        {
+            LOGGER.error("reopenWriter(): for file [{}] has no Header!", this.file);
+            return false;
+        }
+
+        if (this.getWriter(true) == null)
+        {
+            LOGGER.error("reopenWriter(): for file [{}] failed to build a CSVChannelWriter!", this.file);
+            return false;
+        }
+
+        this.applyQuotes = applyQuotes;
+        return true;
+    }
+
+    public boolean writeNext(@Nonnull List<String> list)
+    {
+        if (this.writer == null)
+        {
+            LOGGER.error("writeNext(): for file [{}] is not open!", this.file);
+            return false;
+        }
+
+        try
+        {
+            this.writer.writeNext(this.fitLine(list), this.applyQuotes);
+        }
+        catch (IOException e)
+        {
+            LOGGER.error("writeNext(): Exception writing file [{}], error: [{}]", this.file, e.getMessage());
+            return false;
+        }
+
+        return true;
+    }
+
+    // Append mode needs matching headers; only the first record of the existing file is read
+    private boolean checkAppendHeaders()
+    {
+        if (FileUtils.fileSize(this.file) <= 0)
+        {
             return true;
         }
+
+        try (CSVWrapper wrapper = new CSVWrapper(this.file, true))
+        {
+            if (wrapper.readHeadersOnly(false))
+            {
+                CSVHeader csvHeader = wrapper.getHeader();
+                CSVHeader newHeader = this.getHeader();
+
+                if (csvHeader == null || newHeader == null)
+                {
+                    LOGGER.error("checkAppendHeaders(): Append headers check failed (One or the other heads are missing!)");
+                    return false;
+                }
+
+                if (!csvHeader.matches(newHeader))
+                {
+                    LOGGER.error("checkAppendHeaders(): Append headers check failed (Not matched!)");
+                    return false;
+                }
+            }
+        }
         catch (Exception e)
         {
-            LOGGER.error("write(): Exception writing file [{}]", this.file);
+            LOGGER.error("checkAppendHeaders(): Exception opening output file [{}] for append check, error: [{}]", this.file, e.getMessage());
+            return false;
         }
 
-        return false;
+        return true;
     }
 
     public String getFile()
@@ -315,6 +511,12 @@ public class CSVWrapper implements AutoCloseable
         return this.file;
     }
 
+    // Bytes written by the open writer so far (before any compression); 0 once it is closed
+    public long getBytesWritten()
+    {
+        return this.writer != null ? this.writer.getBytesWritten() : 0;
+    }
+
     public boolean hasHeader()
     {
         return this.header != null && !this.header.isEmpty();
@@ -386,6 +588,15 @@ public class CSVWrapper implements AutoCloseable
         return this.lines;
     }
 
+    // Hands over the cached lines without copying them; this leaves the wrapper empty.
+    public HashMap<Integer, List<String>> detachAllLines()
+    {
+        HashMap<Integer, List<String>> result = this.lines;
+
+        this.lines = new HashMap<>();
+        return result;
+    }
+
     private List<String> truncateLine(List<String> list)
     {
         List<String> entry = new ArrayList<>(list);
@@ -403,6 +614,28 @@ public class CSVWrapper implements AutoCloseable
         return entry;
     }
 
+    private List<String> fitLine(List<String> list)
+    {
+        if (this.header.isEmpty() || list.size() == this.columns)
+        {
+            return list;
+        }
+
+        List<String> entry = new ArrayList<>(list);
+
+        while (entry.size() < this.columns)
+        {
+            entry.add("");
+        }
+
+        while (entry.size() > this.columns)
+        {
+            entry.removeLast();
+        }
+
+        return entry;
+    }
+
     public boolean putAllLines(@Nonnull HashMap<Integer, List<String>> mapIn, boolean hasHeader)
     {
         return this.putAllLines(mapIn, hasHeader, -1);
@@ -498,26 +731,24 @@ public class CSVWrapper implements AutoCloseable
 
             List<String> entry = this.hasHeader() ? this.truncateLine(new ArrayList<>(list)) : new ArrayList<>(list);
 
-            LOGGER.debug("putLine(): Writing ... LINE[{}]: {}", line, entry.toString());
+            if (LOGGER.isDebug())
+            {
+                LOGGER.debug("putLine(): Writing ... LINE[{}]: {}", line, entry);
+            }
+
             this.lines.replace(line, entry);
 
             return true;
         }
 
-        // Append
-        for (int i = 0; i < this.lines.size(); i++)
-        {
-            List<String> entry = this.lines.get(i);
-            line = i;
+        // Append; lines are numbered from 0 without gaps, so the tail is always at size()
+        line = this.lines.size();
 
-            if (entry.isEmpty())
-            {
-                break;
-            }
+        if (LOGGER.isDebug())
+        {
+            LOGGER.debug("putLine(): Appending ... LINE[{}]: {}", line, list);
         }
 
-        line++;
-        LOGGER.debug("putLine(): Appending ... LINE[{}]: {}", line, list.toString());
         List<String> entry = this.hasHeader() ? this.truncateLine(new ArrayList<>(list)) : new ArrayList<>(list);
         this.lines.put(line, entry);
 
@@ -569,7 +800,6 @@ public class CSVWrapper implements AutoCloseable
             this.writer = null;
         }
 
-        this.parser = null;
         this.lines.clear();
         this.header.clear();
     }
@@ -0,0 +1,345 @@
+package csvtool.utils;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import csvtool.enums.Compression;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+
+import javax.annotation.Nonnull;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Streams compressed files through byte channels; the codec runs on its own thread, and hands blocks
+// to (or takes them from) the caller through a small queue, so that (de)compression overlaps with the
+// parsing or encoding on the caller's thread.  Gzip is built in, zstd uses zstd-jni, and bzip2 uses commons-compress.
+// Appending to a compressed file adds a new member (or frame, or stream), which every reader (including this one)
+// reads as a continuation of the file.
+public class CompressedIO
+{
+    private static final int BLOCK_SIZE = 1 << 20;
+    private static final int STREAM_BUFFER_SIZE = 1 << 16;
+    private static final int QUEUE_SIZE = 4;
+    private static final byte[] EOF = new byte[0];
+
+    public static ReadableByteChannel openInput(@Nonnull String file, @Nonnull Compression compression) throws IOException
+    {
+        checkCompressed(file, compression);
+
+        InputStream in = Files.newInputStream(Path.of(file));
+
+        try
+        {
+            return new InputChannel(file, decompress(compression, in));
+        }
+        catch (IOException err)
+        {
+            in.close();
+            throw err;
+        }
+    }
+
+    public static WritableByteChannel openOutput(@Nonnull String file, @Nonnull Compression compression, boolean append) throws IOException
+    {
+        checkCompressed(file, compression);
+
+        OutputStream out = Files.newOutputStream(Path.of(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                 append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+
+        try
+        {
+            return new OutputChannel(file, compress(compression, new BufferedOutputStream(out, STREAM_BUFFER_SIZE)));
+        }
+        catch (IOException err)
+        {
+            out.close();
+            throw err;
+        }
+    }
+
+    private static void checkCompressed(String file, Compression compression) throws IOException
+    {
+        if (!compression.isCompressed())
+        {
+            throw new IOException("File [" + file + "] is not compressed");
+        }
+    }
+
+    // Concatenated bzip2 streams are read as one, like gzip members and zstd frames are by default
+    private static InputStream decompress(Compression compression, InputStream in) throws IOException
+    {
+        return switch (compression)
+        {
+            case GZIP -> new GZIPInputStream(in, STREAM_BUFFER_SIZE);
+            case ZSTD -> new ZstdInputStream(new BufferedInputStream(in, STREAM_BUFFER_SIZE));
+            case BZIP2 -> new BZip2CompressorInputStream(new BufferedInputStream(in, STREAM_BUFFER_SIZE), true);
+            case NONE -> in;
+        };
+    }
+
+    private static OutputStream compress(Compression compression, OutputStream out) throws IOException
+    {
+        return switch (compression)
+        {
+            case GZIP -> new GZIPOutputStream(out, STREAM_BUFFER_SIZE);
+            case ZSTD -> new ZstdOutputStream(out);
+            case BZIP2 -> new BZip2CompressorOutputStream(out);
+            case NONE -> out;
+        };
+    }
+
+    // Decompresses on a background thread, ahead of the reader
+    private static class InputChannel implements ReadableByteChannel
+    {
+        private final BlockingQueue<byte[]> queue;
+        private final Thread thread;
+        private volatile IOException error;
+        private volatile boolean closed;
+        private byte[] current;
+        private int offset;
+        private boolean eof;
+
+        private InputChannel(String file, InputStream in)
+        {
+            this.queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+            this.error = null;
+            this.closed = false;
+            this.current = null;
+            this.offset = 0;
+            this.eof = false;
+            this.thread = Thread.ofPlatform().daemon().name("csvtool-inflate").start(() -> this.inflate(file, in));
+        }
+
+        private void inflate(String file, InputStream in)
+        {
+            try (in)
+            {
+                byte[] block;
+
+                do
+                {
+                    block = in.readNBytes(BLOCK_SIZE);
+
+                    if (block.length > 0)
+                    {
+                        this.queue.put(block);
+                    }
+                }
+                while (block.length == BLOCK_SIZE && !this.closed);
+            }
+            catch (IOException err)
+            {
+                this.error = new IOException("Exception decompressing file [" + file + "]", err);
+            }
+            catch (InterruptedException err)
+            {
+                return;
+            }
+
+            try
+            {
+                if (!this.closed)
+                {
+                    this.queue.put(EOF);
+                }
+            }
+            catch (InterruptedException ignored)
+            {
+                // Closed while waiting
+            }
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException
+        {
+            if (this.current == null || this.offset == this.current.length)
+            {
+                if (this.eof)
+                {
+                    return -1;
+                }
+
+                try
+                {
+                    this.current = this.queue.take();
+                    this.offset = 0;
+                }
+                catch (InterruptedException err)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while decompressing");
+                }
+
+                if (this.current == EOF)
+                {
+                    this.eof = true;
+
+                    if (this.error != null)
+                    {
+                        throw this.error;
+                    }
+
+                    return -1;
+                }
+            }
+
+            int length = Math.min(dst.remaining(), this.current.length - this.offset);
+
+            dst.put(this.current, this.offset, length);
+            this.offset += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return !this.closed;
+        }
+
+        @Override
+        public void close()
+        {
+            this.closed = true;
+            this.thread.interrupt();
+            this.queue.clear();
+        }
+    }
+
+    // Compresses on a background thread, behind the writer; every block written is handed over as a copy
+    private static class OutputChannel implements WritableByteChannel
+    {
+        private final String file;
+        private final BlockingQueue<byte[]> queue;
+        private final Thread thread;
+        private volatile IOException error;
+        private boolean closed;
+
+        private OutputChannel(String file, OutputStream out)
+        {
+            this.file = file;
+            this.queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+            this.error = null;
+            this.closed = false;
+            this.thread = Thread.ofPlatform().daemon().name("csvtool-deflate").start(() -> this.deflate(out));
+        }
+
+        private void deflate(OutputStream out)
+        {
+            boolean done = false;
+
+            try (out)
+            {
+                byte[] block;
+
+                while ((block = this.queue.take()) != EOF)
+                {
+                    out.write(block);
+                }
+
+                done = true;
+            }
+            catch (IOException err)
+            {
+                this.error = new IOException("Exception compressing file [" + this.file + "]", err);
+
+                if (!done)
+                {
+                    this.drain();
+                }
+            }
+            catch (InterruptedException err)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Keeps taking blocks after a failure, so that the writer is never left blocked on a full queue
+        private void drain()
+        {
+            try
+            {
+                while (this.queue.take() != EOF)
+                {
+                    // Discarded
+                }
+            }
+            catch (InterruptedException err)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException
+        {
+            if (this.error != null)
+            {
+                throw this.error;
+            }
+
+            if (!src.hasRemaining())
+            {
+                return 0;
+            }
+
+            byte[] block = new byte[src.remaining()];
+
+            src.get(block);
+
+            try
+            {
+                this.queue.put(block);
+            }
+            catch (InterruptedException err)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing");
+            }
+
+            return block.length;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return !this.closed;
+        }
+
+        // Waits for the remaining blocks to be compressed, and the file to be closed
+        @Override
+        public void close() throws IOException
+        {
+            if (this.closed)
+            {
+                return;
+            }
+
+            this.closed = true;
+
+            try
+            {
+                this.queue.put(EOF);
+                this.thread.join();
+            }
+            catch (InterruptedException err)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compressing");
+            }
+
+            if (this.error != null)
+            {
+                throw this.error;
+            }
+        }
+    }
+}
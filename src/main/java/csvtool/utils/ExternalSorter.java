@@ -0,0 +1,371 @@
+package csvtool.utils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// Sorts more rows than will fit in memory; rows are buffered into runs of runSize, then each run is sorted
+// and spilled to a temporary file, and the runs are k-way merged back in order.  At most fanIn runs are open
+// at once; if there are more, they are first merged (fanIn at a time) into longer runs.  Each row is tagged with
+// its line number from the input, so that comparators can break ties with it, or restore the original order.
+// Nothing is spilled if all the rows fit into a single run.
+public class ExternalSorter implements AutoCloseable
+{
+    private final LogWrapper LOGGER = new LogWrapper(this.getClass());
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int DEFAULT_FAN_IN = 64;
+
+    private final String name;
+    private final Comparator<Row> comparator;
+    private final int runSize;
+    private final int fanIn;
+    private final List<Row> buffer;
+    private final List<Path> runs;
+    private final PriorityQueue<RunReader> queue;
+    private @Nullable Iterator<Row> memory;
+    private long size;
+    private boolean sorted;
+
+    public ExternalSorter(@Nonnull String name, @Nonnull Comparator<Row> comparator, int runSize)
+    {
+        this(name, comparator, runSize, DEFAULT_FAN_IN);
+    }
+
+    public ExternalSorter(@Nonnull String name, @Nonnull Comparator<Row> comparator, int runSize, int fanIn)
+    {
+        this.name = name;
+        this.comparator = comparator;
+        this.runSize = Math.max(runSize, 1);
+        this.fanIn = Math.max(fanIn, 2);
+        this.buffer = new ArrayList<>();
+        this.runs = new ArrayList<>();
+        this.queue = new PriorityQueue<>((a, b) -> comparator.compare(a.current, b.current));
+        this.memory = null;
+        this.size = 0;
+        this.sorted = false;
+    }
+
+    public long getSize()
+    {
+        return this.size;
+    }
+
+    public int getRuns()
+    {
+        return this.runs.size();
+    }
+
+    public void add(long line, @Nonnull List<String> data) throws IOException
+    {
+        if (this.sorted)
+        {
+            throw new IllegalStateException("Rows cannot be added after sort()");
+        }
+
+        this.buffer.add(new Row(line, data));
+        this.size++;
+
+        if (this.buffer.size() >= this.runSize)
+        {
+            this.spill();
+        }
+    }
+
+    // Ends the input; after this, the rows are read back in order with next()
+    public void sort() throws IOException
+    {
+        if (this.sorted)
+        {
+            return;
+        }
+
+        this.sorted = true;
+
+        if (this.runs.isEmpty())
+        {
+            this.buffer.sort(this.comparator);
+            this.memory = this.buffer.iterator();
+            return;
+        }
+
+        if (!this.buffer.isEmpty())
+        {
+            this.spill();
+        }
+
+        LOGGER.debug("sort(): [{}] merging [{}] rows from [{}] runs ...", this.name, this.size, this.runs.size());
+
+        // The merged run goes to the back, so every run is merged about as many times as the others
+        while (this.runs.size() > this.fanIn)
+        {
+            List<Path> group = this.runs.subList(0, this.fanIn);
+            Path merged = this.merge(group);
+
+            for (Path run : group)
+            {
+                Files.deleteIfExists(run);
+            }
+
+            group.clear();
+            this.runs.add(merged);
+        }
+
+        this.open(this.runs, this.queue);
+    }
+
+    private void open(List<Path> runs, PriorityQueue<RunReader> queue) throws IOException
+    {
+        for (Path run : runs)
+        {
+            RunReader reader = new RunReader(run);
+
+            if (reader.advance())
+            {
+                queue.add(reader);
+            }
+            else
+            {
+                reader.close();
+            }
+        }
+    }
+
+    // Merges the runs into one new run
+    private Path merge(List<Path> group) throws IOException
+    {
+        PriorityQueue<RunReader> merging = new PriorityQueue<>(this.queue.comparator());
+        Path run = Files.createTempFile("csvtool-" + this.name + "-", ".run");
+        int rows = 0;
+
+        try
+        {
+            this.open(group, merging);
+
+            for (RunReader reader : merging)
+            {
+                rows += reader.remaining + 1;
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE)))
+            {
+                RunReader reader;
+
+                out.writeInt(rows);
+
+                while ((reader = merging.poll()) != null)
+                {
+                    writeRow(out, reader.current);
+
+                    if (reader.advance())
+                    {
+                        merging.add(reader);
+                    }
+                    else
+                    {
+                        reader.close();
+                    }
+                }
+            }
+        }
+        catch (IOException err)
+        {
+            merging.forEach(RunReader::close);
+            Files.deleteIfExists(run);
+            throw err;
+        }
+
+        LOGGER.debug("merge(): [{}] merged [{}] runs into [{}] rows in [{}]", this.name, group.size(), rows, run);
+        return run;
+    }
+
+    // Returns the next row in order, or null once every row has been returned
+    public @Nullable Row next() throws IOException
+    {
+        if (!this.sorted)
+        {
+            this.sort();
+        }
+
+        if (this.memory != null)
+        {
+            return this.memory.hasNext() ? this.memory.next() : null;
+        }
+
+        RunReader reader = this.queue.poll();
+
+        if (reader == null)
+        {
+            return null;
+        }
+
+        Row row = reader.current;
+
+        if (reader.advance())
+        {
+            this.queue.add(reader);
+        }
+        else
+        {
+            reader.close();
+        }
+
+        return row;
+    }
+
+    private void spill() throws IOException
+    {
+        Path run = Files.createTempFile("csvtool-" + this.name + "-", ".run");
+
+        this.runs.add(run);
+        this.buffer.sort(this.comparator);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE)))
+        {
+            out.writeInt(this.buffer.size());
+
+            for (Row row : this.buffer)
+            {
+                writeRow(out, row);
+            }
+        }
+
+        LOGGER.debug("spill(): [{}] run [{}] spilled [{}] rows to [{}]", this.name, this.runs.size(), this.buffer.size(), run);
+        this.buffer.clear();
+    }
+
+    private static void writeRow(DataOutputStream out, Row row) throws IOException
+    {
+        out.writeLong(row.line);
+        out.writeInt(row.data.size());
+
+        for (String field : row.data)
+        {
+            if (field == null)
+            {
+                out.writeInt(-1);
+                continue;
+            }
+
+            byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        for (RunReader reader : this.queue)
+        {
+            reader.close();
+        }
+
+        for (Path run : this.runs)
+        {
+            try
+            {
+                Files.deleteIfExists(run);
+            }
+            catch (IOException err)
+            {
+                LOGGER.error("close(): Exception deleting run file [{}]; {}", run, err.getMessage());
+            }
+        }
+
+        this.queue.clear();
+        this.runs.clear();
+        this.buffer.clear();
+        this.memory = null;
+        this.size = 0;
+        this.sorted = false;
+    }
+
+    public static class Row
+    {
+        private final long line;
+        private List<String> data;
+
+        private Row(long line, List<String> data)
+        {
+            this.line = line;
+            this.data = data;
+        }
+
+        public long getLine()
+        {
+            return this.line;
+        }
+
+        public List<String> getData()
+        {
+            return this.data;
+        }
+
+        public void setData(List<String> data)
+        {
+            this.data = data;
+        }
+    }
+
+    private class RunReader
+    {
+        private final Path run;
+        private final DataInputStream in;
+        private int remaining;
+        private Row current;
+
+        private RunReader(Path run) throws IOException
+        {
+            this.run = run;
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+            this.remaining = this.in.readInt();
+            this.current = null;
+        }
+
+        private boolean advance() throws IOException
+        {
+            if (this.remaining <= 0)
+            {
+                return false;
+            }
+
+            long line = this.in.readLong();
+            int fields = this.in.readInt();
+            List<String> data = new ArrayList<>(fields);
+
+            for (int i = 0; i < fields; i++)
+            {
+                int length = this.in.readInt();
+
+                if (length < 0)
+                {
+                    data.add(null);
+                    continue;
+                }
+
+                data.add(new String(this.in.readNBytes(length), StandardCharsets.UTF_8));
+            }
+
+            this.remaining--;
+            this.current = new Row(line, data);
+            return true;
+        }
+
+        private void close()
+        {
+            try
+            {
+                this.in.close();
+            }
+            catch (IOException err)
+            {
+                LOGGER.error("close(): Exception closing run file [{}]; {}", this.run, err.getMessage());
+            }
+        }
+    }
+}
@@ -22,6 +22,23 @@ public class FileUtils
         return false;
     }
 
+    // Returns the file size, or -1 if it does not exist
+    public static long fileSize(String path)
+    {
+        try
+        {
+            Path file = Path.of(path);
+
+            return Files.exists(file) ? Files.size(file) : -1;
+        }
+        catch (Exception err)
+        {
+            LOGGER.error("fileSize(): Exception reading size of file [\"{}\"]. [{}]", path, err.getMessage());
+        }
+
+        return -1;
+    }
+
     public static boolean deleteIfExists(String path)
     {
         try
@@ -46,6 +46,11 @@ public class LogWrapper
         this.ansiColor = toggle;
     }
 
+    public boolean isDebug()
+    {
+        return this.log != null && this.debug && !this.quiet;
+    }
+
     public void info(String fmt, Object... args)
     {
         if (this.log != null && !this.quiet)
@@ -65,7 +70,7 @@ public class LogWrapper
 
     public void debug(String fmt, Object... args)
     {
-        if (this.log != null && this.debug && !this.quiet)
+        if (this.isDebug())
         {
             String msg = StringUtils.format(fmt, args);
 
@@ -1,5 +1,7 @@
 package csvtool.utils;
 
+import csvtool.enums.Compression;
+
 import java.util.regex.Matcher;
 
 @SuppressWarnings("deprecation")
@@ -7,26 +9,48 @@ public class StringUtils extends org.apache.commons.lang3.StringUtils
 {
 //    private static final LogWrapper LOGGER = new LogWrapper(StringUtils.class);
 
+    // Single pass over the format; each '{}' takes the next arg.
     public static String format(final String format, final Object... args)
     {
-        String result = format;
+        if (args == null || args.length == 0)
+        {
+            return format;
+        }
+
+        StringBuilder result = new StringBuilder(format.length() + (args.length * 16));
+        int last = 0;
 
         for (Object arg : args)
         {
-            result = result.replaceFirst("\\{\\}", formatSafe(arg.toString()));
+            int next = format.indexOf("{}", last);
+
+            if (next < 0)
+            {
+                break;
+            }
+
+            result.append(format, last, next);
+
+            result.append(arg);
+
+            last = next + 2;
         }
 
-        return result;
-    }
+        result.append(format, last, format.length());
 
-    public static String formatSafe(String str)
-    {
-        str = str.replace("\\", "\\\\");
-        return str.replace("\"", "\\\"");
+        return result.toString();
     }
 
     public static String addFileSuffix(String file, String suffix)
     {
+        // Keep the compression extension last; out.csv.gz -> out-suffix.csv.gz
+        String base = Compression.fromFileName(file).stripExtension(file);
+
+        if (base.length() < file.length())
+        {
+            return addFileSuffix(base, suffix) + file.substring(base.length());
+        }
+
         StringBuilder result = new StringBuilder();
         String[] split = file.split("\\.(?=[^\\.]+$)");
 
@@ -0,0 +1,220 @@
+package csvtool.data;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SerialRegistryTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    public void reopensAndCatchesUp() throws Exception
+    {
+        String file = this.dir.resolve("reg.csv").toString();
+
+        try (SerialRegistry registry = new SerialRegistry(file))
+        {
+            assertTrue(registry.open());
+            assertEquals(Integer.MIN_VALUE, registry.getMaxSerial());
+
+            registry.add(1, List.of("a", "x"));
+            registry.add(2, List.of("b", "y"));
+            assertTrue(registry.save());
+            assertEquals(0, registry.getPendingSize());
+        }
+
+        // Appended by another run, after the index was written
+        this.append(file, "3,c,z\n7,d,w\n");
+
+        try (SerialRegistry registry = new SerialRegistry(file))
+        {
+            assertTrue(registry.open());
+            assertEquals(2, registry.getKeyCount());
+            assertEquals(7, registry.getMaxSerial());
+            assertEquals(1, registry.getSerial(List.of("a", "x")));
+            assertEquals(2, registry.getSerial(List.of("b", "y")));
+            assertEquals(3, registry.getSerial(List.of("c", "z")));
+            assertEquals(List.of("d", "w"), registry.getKeySet(7));
+            assertEquals(-1, registry.getSerial(List.of("e", "v")));
+            assertNull(registry.getKeySet(4));
+        }
+    }
+
+    @Test
+    public void rebuildsMissingIndex() throws Exception
+    {
+        String file = this.write(100);
+
+        Files.delete(Path.of(file + ".idx"));
+        this.assertEntries(file, 100);
+    }
+
+    @Test
+    public void rebuildsCorruptIndex() throws Exception
+    {
+        String file = this.write(100);
+
+        // A bad magic, then an index that was cut short
+        try (FileChannel index = FileChannel.open(Path.of(file + ".idx"), StandardOpenOption.WRITE))
+        {
+            index.write(ByteBuffer.allocate(8), 0);
+        }
+
+        this.assertEntries(file, 100);
+
+        try (FileChannel index = FileChannel.open(Path.of(file + ".idx"), StandardOpenOption.WRITE))
+        {
+            index.truncate(100);
+        }
+
+        this.assertEntries(file, 100);
+    }
+
+    // The index starts with room for 4096 entries, and is rebuilt at twice the size once it is 3/4 full
+    @Test
+    public void growsPastMinCapacity() throws Exception
+    {
+        String file = this.dir.resolve("reg.csv").toString();
+        long initial;
+
+        try (SerialRegistry registry = new SerialRegistry(file))
+        {
+            assertTrue(registry.open());
+            initial = Files.size(Path.of(file + ".idx"));
+        }
+
+        this.write(10000);
+        assertTrue(Files.size(Path.of(file + ".idx")) > initial * 2);
+        this.assertEntries(file, 10000);
+    }
+
+    @Test
+    public void quotedKeys() throws Exception
+    {
+        String file = this.dir.resolve("reg.csv").toString();
+        List<List<String>> keySets = List.of(
+                List.of("a,b", "c"),
+                List.of("say \"hi\"", ""),
+                List.of("line\none", "cr\r\nlf"),
+                List.of("\"", ",\n"));
+
+        try (SerialRegistry registry = new SerialRegistry(file))
+        {
+            assertTrue(registry.open());
+
+            for (int i = 0; i < keySets.size(); i++)
+            {
+                registry.add(i, keySets.get(i));
+            }
+
+            assertTrue(registry.save());
+        }
+
+        // Written by hand; a blank line is skipped
+        this.append(file, "\n10,\"x,\"\"y\"\"\",\"multi\nline\"\n");
+        Files.delete(Path.of(file + ".idx"));
+
+        try (SerialRegistry registry = new SerialRegistry(file))
+        {
+            assertTrue(registry.open());
+
+            for (int i = 0; i < keySets.size(); i++)
+            {
+                assertEquals(i, registry.getSerial(keySets.get(i)));
+                assertEquals(keySets.get(i), registry.getKeySet(i));
+            }
+
+            assertEquals(List.of("x,\"y\"", "multi\nline"), registry.getKeySet(10));
+        }
+    }
+
+    @Test
+    public void rejectsConflictingSerial() throws Exception
+    {
+        String file = this.dir.resolve("reg.csv").toString();
+
+        try (SerialRegistry registry = new SerialRegistry(file))
+        {
+            assertTrue(registry.open());
+            registry.add(5, List.of("a"));
+            assertTrue(registry.save());
+
+            // The same record again is not a conflict
+            registry.add(5, List.of("a"));
+            assertTrue(registry.save());
+
+            registry.add(5, List.of("b"));
+            assertFalse(registry.save());
+        }
+
+        try (SerialRegistry registry = new SerialRegistry(file))
+        {
+            assertFalse(registry.open());
+        }
+
+        String other = this.dir.resolve("other.csv").toString();
+
+        Files.writeString(Path.of(other), "1,a\n2,b\n1,c\n", StandardCharsets.UTF_8);
+
+        try (SerialRegistry registry = new SerialRegistry(other))
+        {
+            assertFalse(registry.open());
+        }
+    }
+
+    private String write(int entries) throws IOException
+    {
+        String file = this.dir.resolve("reg.csv").toString();
+
+        try (SerialRegistry registry = new SerialRegistry(file))
+        {
+            assertTrue(registry.open());
+
+            for (int i = 0; i < entries; i++)
+            {
+                registry.add(i * 3, List.of("key" + i, String.valueOf(i % 7)));
+            }
+
+            assertTrue(registry.save());
+        }
+
+        return file;
+    }
+
+    private void assertEntries(String file, int entries) throws IOException
+    {
+        try (SerialRegistry registry = new SerialRegistry(file))
+        {
+            assertTrue(registry.open());
+            assertEquals((entries - 1) * 3, registry.getMaxSerial());
+
+            for (int i = 0; i < entries; i++)
+            {
+                assertEquals(i * 3, registry.getSerial(List.of("key" + i, String.valueOf(i % 7))));
+                assertEquals(List.of("key" + i, String.valueOf(i % 7)), registry.getKeySet(i * 3));
+            }
+
+            assertNull(registry.getKeySet(1));
+        }
+    }
+
+    private void append(String file, String text) throws IOException
+    {
+        Files.writeString(Path.of(file), text, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,138 @@
+package csvtool.utils;
+
+import com.opencsv.CSVParserBuilder;
+import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Differential test; CSVTokenizer replaced the opencsv CSVReader, so both must read the same rows from the same bytes
+public class CSVTokenizerTest
+{
+    private static final String ALPHABET = "ab,\"\\\n\r\t é€𝄞";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void escapedSeparatorIsKept() throws Exception
+    {
+        assertEquals(List.of(List.of("1", "O,Brien")), this.tokenize("1,O\\,Brien", false));
+        this.assertSameAsOpenCsv("1,O\\,Brien\n2,\"O\\,Brien\"\n3,\\\\,\\\"\n");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bé\" ", "é\"a\" b", "€€\"x\",y", "𝄞\"a\"", "a,é\"b\"\n", "ü,\"ö\nä\",ß\n"})
+    public void nonAsciiFields(String input) throws Exception
+    {
+        this.assertSameAsOpenCsv(input);
+    }
+
+    @Test
+    public void quotedMultiline() throws Exception
+    {
+        this.assertSameAsOpenCsv("a,\"b\nc\",d\r\ne,\"f\r\ng\"\n");
+    }
+
+    @Test
+    public void randomInput() throws Exception
+    {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 5000; i++)
+        {
+            StringBuilder input = new StringBuilder();
+            int length = random.nextInt(60);
+
+            for (int j = 0; j < length; j++)
+            {
+                int c = ALPHABET.codePointAt(ALPHABET.offsetByCodePoints(0, random.nextInt(ALPHABET.codePointCount(0, ALPHABET.length()))));
+                input.appendCodePoint(c);
+            }
+
+            this.assertSameAsOpenCsv(input.toString());
+        }
+    }
+
+    private void assertSameAsOpenCsv(String input) throws Exception
+    {
+        for (boolean ignoreQuotes : new boolean[]{false, true})
+        {
+            Path file = this.write(input);
+            List<List<String>> expected = this.readOpenCsv(file, ignoreQuotes);
+
+            // opencsv rejects some input (ie. an unterminated quote); those aren't compared
+            if (expected != null)
+            {
+                assertEquals(expected, this.read(file, ignoreQuotes), () -> "ignoreQuotes [" + ignoreQuotes + "], input [" + input + "]");
+            }
+        }
+    }
+
+    private List<List<String>> tokenize(String input, boolean ignoreQuotes) throws Exception
+    {
+        return this.read(this.write(input), ignoreQuotes);
+    }
+
+    private Path write(String input) throws IOException
+    {
+        Path file = this.dir.resolve("test.csv");
+        Files.writeString(file, input, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private List<List<String>> read(Path file, boolean ignoreQuotes) throws Exception
+    {
+        List<List<String>> rows = new ArrayList<>();
+
+        try (CSVTokenizer tokenizer = new CSVTokenizer(file.toString(), ignoreQuotes))
+        {
+            List<String> row;
+
+            while ((row = tokenizer.next()) != null)
+            {
+                rows.add(row);
+            }
+        }
+
+        return rows;
+    }
+
+    private @Nullable List<List<String>> readOpenCsv(Path file, boolean ignoreQuotes)
+    {
+        List<List<String>> rows = new ArrayList<>();
+
+        try (CSVReader reader = new CSVReaderBuilder(new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8))
+                .withCSVParser(new CSVParserBuilder().withIgnoreQuotations(ignoreQuotes).build())
+                .build())
+        {
+            String[] line;
+
+            while ((line = reader.readNext()) != null)
+            {
+                rows.add(Arrays.asList(line));
+            }
+        }
+        catch (Exception e)
+        {
+            return null;
+        }
+
+        return rows;
+    }
+}
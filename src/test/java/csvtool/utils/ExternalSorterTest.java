@@ -0,0 +1,100 @@
+package csvtool.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExternalSorterTest
+{
+    private static final Comparator<ExternalSorter.Row> BY_KEY = Comparator
+            .comparing((ExternalSorter.Row row) -> row.getData().getFirst())
+            .thenComparingLong(ExternalSorter.Row::getLine);
+
+    @Test
+    public void sortsInMemory() throws Exception
+    {
+        this.assertSorted(1000, 5000, 4);
+    }
+
+    @Test
+    public void mergesInOnePass() throws Exception
+    {
+        this.assertSorted(1000, 100, 64);
+    }
+
+    // 400 runs with a fan-in of 4 takes several passes; no more than 4 runs are left open for the last one
+    @Test
+    public void mergesInPasses() throws Exception
+    {
+        this.assertSorted(20000, 50, 4);
+    }
+
+    @Test
+    public void deletesRunsOnClose() throws Exception
+    {
+        List<Path> before = this.listRuns("close");
+
+        try (ExternalSorter sorter = new ExternalSorter("close", BY_KEY, 10, 3))
+        {
+            for (int i = 0; i < 200; i++)
+            {
+                sorter.add(i, List.of(String.valueOf(i % 7), "x"));
+            }
+
+            sorter.sort();
+            assertTrue(this.listRuns("close").size() - before.size() <= 3);
+        }
+
+        assertEquals(before, this.listRuns("close"));
+    }
+
+    private void assertSorted(int rows, int runSize, int fanIn) throws Exception
+    {
+        Random random = new Random(rows);
+        List<List<String>> expected = new ArrayList<>();
+
+        try (ExternalSorter sorter = new ExternalSorter("test", BY_KEY, runSize, fanIn))
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                List<String> data = new ArrayList<>(List.of(String.format("%05d", random.nextInt(rows / 4 + 1)), String.valueOf(i)));
+
+                // null fields are kept through the spill
+                data.add(i % 10 == 0 ? null : "é" + i);
+                expected.add(data);
+                sorter.add(i, data);
+            }
+
+            sorter.sort();
+            assertTrue(sorter.getRuns() <= fanIn, "runs left open [" + sorter.getRuns() + "]");
+
+            // Ties keep the input order
+            expected.sort(Comparator.comparing((List<String> data) -> data.getFirst()).thenComparingInt(data -> Integer.parseInt(data.get(1))));
+
+            for (List<String> data : expected)
+            {
+                assertEquals(data, sorter.next().getData());
+            }
+
+            assertNull(sorter.next());
+        }
+    }
+
+    private List<Path> listRuns(String name) throws Exception
+    {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir"))))
+        {
+            return files.filter(file -> file.getFileName().toString().startsWith("csvtool-" + name + "-")).sorted().toList();
+        }
+    }
+}